@@ -0,0 +1,221 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService;
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
+import uk.gov.dwp.uc.pairtest.domain.TicketPriceLookupService;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
+
+/**
+ * Throughput of {@link TicketService#purchaseTickets} for valid orders, orders at MAX_PURCHASE_TICKETS
+ * and each invalid order shape covered by TicketServiceInvalidCasesTest.
+ * Thread count is chosen by the runner so the same benchmarks run single-threaded and under contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PurchaseBenchmark {
+
+    public static final int MAX_PURCHASE_TICKETS = 25;
+
+    private static final long VALID_ACCOUNT_ID = 1L;
+    private static final long INVALID_ACCOUNT_ID = 0L;
+
+    @Param({"0"})
+    public long paymentLatencyNanos;
+
+    @Param({"0"})
+    public long reservationLatencyNanos;
+
+    private TicketServiceImpl ticketService;
+
+    private TicketTypeRequest[] validOrder;
+    private TicketOrder compactValidOrder;
+    private TicketTypeRequest[] maxTicketsOrder;
+    private TicketTypeRequest[] overMaxTicketsOrder;
+    private TicketTypeRequest[] emptyOrder;
+    private TicketTypeRequest[] adultOnlyOrder;
+    private TicketTypeRequest[] infantOnlyOrder;
+    private TicketTypeRequest[] childOnlyOrder;
+    private TicketTypeRequest[] childAndInfantOnlyOrder;
+    private TicketTypeRequest[] moreInfantsThanAdultsOrder;
+    private TicketTypeRequest[] tooManyChildrenOrder;
+    private TicketTypeRequest[] tooManyChildrenWithInfantOrder;
+
+    @Setup
+    public void setUp() {
+        Map<String, Integer> config = Map.of(
+                KEY_MAX_PURCHASE_TICKETS, MAX_PURCHASE_TICKETS,
+                KEY_MAX_CHILDREN_WITH_ADULT, 7,
+                KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT, 3);
+        CinemaTicketsConfigService configService = config::get;
+        TicketPriceLookupService priceLookupService = type -> switch (type) {
+            case ADULT -> 25;
+            case CHILD -> 15;
+            case INFANT -> 0;
+        };
+
+        ticketService = new TicketServiceImpl(
+                new StubTicketPaymentService(paymentLatencyNanos),
+                new StubSeatReservationService(reservationLatencyNanos),
+                priceLookupService,
+                configService);
+
+        validOrder = new TicketTypeRequest[]{
+                new TicketTypeRequest(ADULT, 2),
+                new TicketTypeRequest(CHILD, 2),
+                new TicketTypeRequest(INFANT, 1)};
+        compactValidOrder = TicketOrder.of(2, 2, 1);
+        maxTicketsOrder = lines(MAX_PURCHASE_TICKETS);
+        overMaxTicketsOrder = lines(MAX_PURCHASE_TICKETS + 1);
+        emptyOrder = new TicketTypeRequest[]{};
+        adultOnlyOrder = new TicketTypeRequest[]{new TicketTypeRequest(ADULT, 1)};
+        infantOnlyOrder = new TicketTypeRequest[]{new TicketTypeRequest(INFANT, 1)};
+        childOnlyOrder = new TicketTypeRequest[]{new TicketTypeRequest(CHILD, 1)};
+        childAndInfantOnlyOrder = new TicketTypeRequest[]{
+                new TicketTypeRequest(CHILD, 1),
+                new TicketTypeRequest(INFANT, 1)};
+        moreInfantsThanAdultsOrder = new TicketTypeRequest[]{
+                new TicketTypeRequest(INFANT, 2),
+                new TicketTypeRequest(ADULT, 1)};
+        tooManyChildrenOrder = new TicketTypeRequest[]{
+                new TicketTypeRequest(CHILD, 8),
+                new TicketTypeRequest(ADULT, 1)};
+        tooManyChildrenWithInfantOrder = new TicketTypeRequest[]{
+                new TicketTypeRequest(CHILD, 6),
+                new TicketTypeRequest(INFANT, 1),
+                new TicketTypeRequest(ADULT, 1)};
+    }
+
+    private static TicketTypeRequest[] lines(int noOfLines) {
+        return IntStream.range(0, noOfLines)
+                .mapToObj(i -> new TicketTypeRequest(ADULT, 1))
+                .toArray(TicketTypeRequest[]::new);
+    }
+
+    @Benchmark
+    public void validOrder() {
+        ticketService.purchaseTickets(VALID_ACCOUNT_ID, validOrder);
+    }
+
+    @Benchmark
+    public void compactValidOrder() {
+        ticketService.purchaseTickets(VALID_ACCOUNT_ID, compactValidOrder);
+    }
+
+    @Benchmark
+    public void maxTicketsOrder() {
+        ticketService.purchaseTickets(VALID_ACCOUNT_ID, maxTicketsOrder);
+    }
+
+    @Benchmark
+    public Object invalidNullRequests() {
+        return rejected(VALID_ACCOUNT_ID, null);
+    }
+
+    @Benchmark
+    public Object invalidNoRequests() {
+        return rejected(VALID_ACCOUNT_ID, emptyOrder);
+    }
+
+    @Benchmark
+    public Object invalidAccountId() {
+        return rejected(INVALID_ACCOUNT_ID, adultOnlyOrder);
+    }
+
+    @Benchmark
+    public Object invalidNullAccountId() {
+        return rejected(null, adultOnlyOrder);
+    }
+
+    @Benchmark
+    public Object invalidOverMaxTickets() {
+        return rejected(VALID_ACCOUNT_ID, overMaxTicketsOrder);
+    }
+
+    @Benchmark
+    public Object invalidInfantOnly() {
+        return rejected(VALID_ACCOUNT_ID, infantOnlyOrder);
+    }
+
+    @Benchmark
+    public Object invalidChildOnly() {
+        return rejected(VALID_ACCOUNT_ID, childOnlyOrder);
+    }
+
+    @Benchmark
+    public Object invalidChildAndInfantOnly() {
+        return rejected(VALID_ACCOUNT_ID, childAndInfantOnlyOrder);
+    }
+
+    @Benchmark
+    public Object invalidChildAndInfantOnlyAndAccountId() {
+        return rejected(INVALID_ACCOUNT_ID, childAndInfantOnlyOrder);
+    }
+
+    @Benchmark
+    public Object invalidMoreInfantsThanAdults() {
+        return rejected(VALID_ACCOUNT_ID, moreInfantsThanAdultsOrder);
+    }
+
+    @Benchmark
+    public Object invalidNotEnoughAdultsForChildren() {
+        return rejected(VALID_ACCOUNT_ID, tooManyChildrenOrder);
+    }
+
+    @Benchmark
+    public Object invalidNotEnoughAdultsForChildrenWithInfants() {
+        return rejected(VALID_ACCOUNT_ID, tooManyChildrenWithInfantOrder);
+    }
+
+    @Benchmark
+    public Object failFastChildAndInfantOnly() {
+        return ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, childAndInfantOnlyOrder);
+    }
+
+    @Benchmark
+    public Object failFastNotEnoughAdultsForChildrenWithInfants() {
+        return ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, tooManyChildrenWithInfantOrder);
+    }
+
+    @Benchmark
+    public Object quoteValidOrder() {
+        return ticketService.quote(VALID_ACCOUNT_ID, compactValidOrder);
+    }
+
+    private Object rejected(Long accountId, TicketTypeRequest[] requests) {
+        try {
+            ticketService.purchaseTickets(accountId, requests);
+        } catch (InvalidPurchaseException e) {
+            return e;
+        }
+        throw new IllegalStateException("Order should have been rejected");
+    }
+}
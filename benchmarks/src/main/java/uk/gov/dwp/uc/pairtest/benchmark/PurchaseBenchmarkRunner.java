@@ -0,0 +1,60 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Runs {@link PurchaseBenchmark} once single-threaded and once with a thread per core, at least two, with the GC
+ * profiler attached, writing each run to its own JSON file under the module's {@code target} directory, wherever it
+ * is started from (or under {@code -Djmh.resultDir}), so results can be compared between builds.
+ * Any standard JMH command line options (e.g. {@code -p paymentLatencyNanos=20000}) are passed through.
+ */
+public class PurchaseBenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        String resultDirProperty = System.getProperty("jmh.resultDir");
+        Path resultDir = Files.createDirectories(resultDirProperty != null ? Path.of(resultDirProperty) : targetDir());
+
+        run(commandLineOptions, 1, resultDir.resolve("purchase-single-threaded.json"));
+        run(commandLineOptions, Math.max(2, Runtime.getRuntime().availableProcessors()),
+                resultDir.resolve("purchase-contended.json"));
+    }
+
+    /*
+    * The directory holding benchmarks.jar, or target/classes when run from the IDE, which is the module's target
+    * directory either way
+    * */
+    private static Path targetDir() {
+        try {
+            URI location = PurchaseBenchmarkRunner.class.getProtectionDomain().getCodeSource().getLocation().toURI();
+            return Path.of(location).toAbsolutePath().getParent();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Cannot locate the benchmarks module", e);
+        }
+    }
+
+    private static void run(CommandLineOptions commandLineOptions, int threads, Path resultFile) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .parent(commandLineOptions)
+                .include(PurchaseBenchmark.class.getSimpleName())
+                .threads(threads)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile.toString())
+                .build();
+        new Runner(options).run();
+    }
+}
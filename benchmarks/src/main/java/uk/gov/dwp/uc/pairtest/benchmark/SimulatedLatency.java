@@ -0,0 +1,29 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Simulated downstream latency for the stub third-party services.
+ * Short waits are spun so they stay accurate, longer ones park the calling thread.
+ */
+final class SimulatedLatency {
+
+    private static final long SPIN_LIMIT_NANOS = 50_000L;
+
+    private SimulatedLatency() {
+    }
+
+    static void pause(long latencyNanos) {
+        if(latencyNanos <= 0) {
+            return;
+        }
+        if(latencyNanos > SPIN_LIMIT_NANOS) {
+            LockSupport.parkNanos(latencyNanos);
+            return;
+        }
+        long deadline = System.nanoTime() + latencyNanos;
+        while(System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+}
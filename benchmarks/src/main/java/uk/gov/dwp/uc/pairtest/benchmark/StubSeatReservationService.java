@@ -0,0 +1,20 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import thirdparty.seatbooking.SeatReservationService;
+
+/**
+ * Seat reservation stand-in that simulates latency instead of reserving seats.
+ */
+public class StubSeatReservationService implements SeatReservationService {
+
+    private final long latencyNanos;
+
+    public StubSeatReservationService(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+        SimulatedLatency.pause(latencyNanos);
+    }
+}
@@ -0,0 +1,20 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+
+/**
+ * Payment stand-in that simulates gateway latency instead of taking a payment.
+ */
+public class StubTicketPaymentService implements TicketPaymentService {
+
+    private final long latencyNanos;
+
+    public StubTicketPaymentService(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay) {
+        SimulatedLatency.pause(latencyNanos);
+    }
+}
@@ -0,0 +1,165 @@
+package uk.gov.dwp.uc.pairtest;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.PurchaseOverloadException;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sheds purchases the downstream services could not absorb, before they reach the wrapped {@link TicketService}.
+ * Each purchase needs a token from a global bucket and from its account's bucket, and is rejected at once with a
+ * {@link PurchaseOverloadException} when either is empty.
+ * The global rate adapts to the latency of admitted purchases: it is cut by a quarter whenever the smoothed latency
+ * is above target and otherwise grows by a twentieth of the configured rate, never leaving its configured bounds.
+ */
+public class AdmissionControlledTicketService implements TicketService {
+
+    public record Limits(double maxGlobalRatePerSecond,
+                         double minGlobalRatePerSecond,
+                         int globalBurst,
+                         double accountRatePerSecond,
+                         int accountBurst,
+                         Duration targetLatency,
+                         Duration adjustInterval) {
+
+        public Limits {
+            if(minGlobalRatePerSecond <= 0 || maxGlobalRatePerSecond < minGlobalRatePerSecond
+                    || accountRatePerSecond <= 0 || globalBurst < 1 || accountBurst < 1) {
+                throw new IllegalArgumentException("Rates and bursts should be greater than zero");
+            }
+            if(globalBurst > TokenBucket.MAX_CAPACITY || accountBurst > TokenBucket.MAX_CAPACITY) {
+                throw new IllegalArgumentException("Bursts should be at most " + TokenBucket.MAX_CAPACITY);
+            }
+        }
+    }
+
+    private static final int MAX_TRACKED_ACCOUNTS = 1_000_000;
+    private static final int EVICTION_SWEEP = 64;
+    private static final double DECREASE_FACTOR = 0.75;
+    private static final double INCREASE_FRACTION = 0.05;
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final TicketService ticketService;
+    private final Limits limits;
+    private final long startNanos = System.nanoTime();
+    private final TokenBucket globalBucket;
+    private final ConcurrentHashMap<Long, TokenBucket> accountBuckets = new ConcurrentHashMap<>();
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    private Iterator<TokenBucket> sweep;
+
+    private volatile double globalRatePerSecond;
+    private volatile double smoothedLatencyNanos;
+    private final AtomicLong nextAdjustNanos;
+    private final LongAdder shed = new LongAdder();
+
+    public AdmissionControlledTicketService(TicketService ticketService, Limits limits) {
+        this.ticketService = ticketService;
+        this.limits = limits;
+        this.globalBucket = new TokenBucket(limits.globalBurst(), startNanos);
+        this.globalRatePerSecond = limits.maxGlobalRatePerSecond();
+        this.nextAdjustNanos = new AtomicLong(startNanos + limits.adjustInterval().toNanos());
+    }
+
+    @Override
+    public void purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
+        long now = System.nanoTime();
+        TokenBucket account = accountId == null ? null : accountBucket(accountId);
+        if(account != null && !account.tryAcquire(limits.accountRatePerSecond(), now)) {
+            shed.increment();
+            throw new PurchaseOverloadException("Too many purchases for this account, please try again later");
+        }
+        if(!globalBucket.tryAcquire(globalRatePerSecond, now)) {
+            /*
+            * The account did not get to purchase, so it should not lose its token to a busy box office
+            * */
+            if(account != null) {
+                account.refund();
+            }
+            shed.increment();
+            throw new PurchaseOverloadException("Too many purchases, please try again later");
+        }
+
+        try {
+            ticketService.purchaseTickets(accountId, ticketTypeRequests);
+        } finally {
+            long finished = System.nanoTime();
+            observeLatency(finished - now);
+            adjustRate(finished);
+        }
+    }
+
+    public double getGlobalRatePerSecond() {
+        return globalRatePerSecond;
+    }
+
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    private TokenBucket accountBucket(long accountId) {
+        TokenBucket bucket = accountBuckets.get(accountId);
+        if(bucket != null) {
+            return bucket;
+        }
+        if(accountBuckets.size() >= MAX_TRACKED_ACCOUNTS) {
+            evictIdleAccounts();
+        }
+        return accountBuckets.computeIfAbsent(accountId, id -> new TokenBucket(limits.accountBurst(), startNanos));
+    }
+
+    /*
+    * A bucket idle for long enough to have refilled completely is no different from a new one.
+    * Each new account arriving at a full map checks the next few buckets of a sweep that carries on where the last
+    * one stopped, so the cost is spread over new accounts; one thread sweeps at a time and the others go straight on
+    * */
+    private void evictIdleAccounts() {
+        if(!sweepLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = globalBucket.elapsedMillis(System.nanoTime());
+            long refillMillis = (long) (limits.accountBurst() * 1_000 / limits.accountRatePerSecond());
+            for(int i = 0; i < EVICTION_SWEEP; i++) {
+                if(sweep == null || !sweep.hasNext()) {
+                    sweep = accountBuckets.values().iterator();
+                    if(!sweep.hasNext()) {
+                        return;
+                    }
+                }
+                if(now - sweep.next().lastAcquiredMillis() > refillMillis) {
+                    sweep.remove();
+                }
+            }
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    /*
+    * Lossy under contention by design, a dropped sample barely moves an exponential average
+    * */
+    private void observeLatency(long latencyNanos) {
+        double smoothed = smoothedLatencyNanos;
+        smoothedLatencyNanos = smoothed == 0 ? latencyNanos : smoothed + LATENCY_SMOOTHING * (latencyNanos - smoothed);
+    }
+
+    private void adjustRate(long now) {
+        long next = nextAdjustNanos.get();
+        if(now < next || !nextAdjustNanos.compareAndSet(next, now + limits.adjustInterval().toNanos())) {
+            return;
+        }
+        double rate = globalRatePerSecond;
+        if(smoothedLatencyNanos > limits.targetLatency().toNanos()) {
+            rate *= DECREASE_FACTOR;
+        } else {
+            rate += limits.maxGlobalRatePerSecond() * INCREASE_FRACTION;
+        }
+        globalRatePerSecond = Math.max(limits.minGlobalRatePerSecond(), Math.min(limits.maxGlobalRatePerSecond(), rate));
+    }
+}
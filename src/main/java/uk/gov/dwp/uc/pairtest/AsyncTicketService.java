@@ -0,0 +1,17 @@
+package uk.gov.dwp.uc.pairtest;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link TicketService}.
+ * Invalid purchases are still rejected synchronously, the returned future completes once
+ * payment has been taken and the seats reserved.
+ */
+public interface AsyncTicketService {
+
+    CompletableFuture<Void> purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException;
+
+}
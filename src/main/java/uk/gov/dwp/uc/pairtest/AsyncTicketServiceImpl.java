@@ -0,0 +1,105 @@
+package uk.gov.dwp.uc.pairtest;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService;
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
+import uk.gov.dwp.uc.pairtest.domain.TicketPriceLookupService;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.sales.PurchaseListener;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs the payment and then the seat reservation of each purchase on its own virtual thread,
+ * so waiting on the third-party services holds no platform thread.
+ * Each service is called by at most its configured number of purchases at a time, the rest park until a permit frees up.
+ * Once both calls have succeeded the {@link PurchaseListener} is told, on the purchase's virtual thread.
+ */
+public class AsyncTicketServiceImpl implements AsyncTicketService, AutoCloseable {
+
+    private final TicketPaymentService ticketPaymentService;
+    private final SeatReservationService seatReservationService;
+    private final PurchaseValidator purchaseValidator;
+    private final PurchaseListener listener;
+
+    private final Semaphore paymentPermits;
+    private final Semaphore reservationPermits;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public AsyncTicketServiceImpl(TicketPaymentService ticketPaymentService,
+                                  SeatReservationService seatReservationService,
+                                  TicketPriceLookupService ticketPriceLookupService,
+                                  CinemaTicketsConfigService cinemaTicketsConfigService,
+                                  int maxConcurrentPayments,
+                                  int maxConcurrentReservations) {
+        this(ticketPaymentService, seatReservationService, ticketPriceLookupService, cinemaTicketsConfigService,
+                maxConcurrentPayments, maxConcurrentReservations, PurchaseListener.NONE);
+    }
+
+    public AsyncTicketServiceImpl(TicketPaymentService ticketPaymentService,
+                                  SeatReservationService seatReservationService,
+                                  TicketPriceLookupService ticketPriceLookupService,
+                                  CinemaTicketsConfigService cinemaTicketsConfigService,
+                                  int maxConcurrentPayments,
+                                  int maxConcurrentReservations,
+                                  PurchaseListener listener) {
+        if(maxConcurrentPayments < TicketServiceImpl.ONE_ITEM || maxConcurrentReservations < TicketServiceImpl.ONE_ITEM) {
+            throw new IllegalArgumentException("Concurrency limits should be greater than zero");
+        }
+        this.ticketPaymentService = ticketPaymentService;
+        this.seatReservationService = seatReservationService;
+        this.purchaseValidator = new PurchaseValidator(ticketPriceLookupService, cinemaTicketsConfigService);
+        this.paymentPermits = new Semaphore(maxConcurrentPayments, true);
+        this.reservationPermits = new Semaphore(maxConcurrentReservations, true);
+        this.listener = listener;
+    }
+
+    @Override
+    public CompletableFuture<Void> purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
+
+        TicketOrder order = TicketOrder.from(ticketTypeRequests);
+
+        String errors = purchaseValidator.validationErrors(accountId, order);
+        if(errors != null) {
+            throw new InvalidPurchaseException(errors);
+        }
+
+        long account = accountId;
+        int totalPrice = purchaseValidator.totalPrice(order);
+        int totalSeats = order.getTotalTickets();
+
+        return CompletableFuture.runAsync(() -> {
+            withPermit(paymentPermits, () -> ticketPaymentService.makePayment(account, totalPrice));
+            withPermit(reservationPermits, () -> seatReservationService.reserveSeat(account, totalSeats));
+            PurchaseListener.notifySafely(listener, account, order, totalPrice);
+        }, executor);
+    }
+
+    private static void withPermit(Semaphore permits, Runnable call) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+        try {
+            call.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /*
+    * Stops accepting purchases and waits for the in-flight ones to finish
+    * */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
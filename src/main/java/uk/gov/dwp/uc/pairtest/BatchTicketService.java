@@ -0,0 +1,17 @@
+package uk.gov.dwp.uc.pairtest;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+
+import java.util.List;
+
+/**
+ * A {@link TicketService} that can also purchase many orders at once.
+ * Orders are validated independently and each gets its own result instead of an exception,
+ * while the accepted ones are paid for and reserved together.
+ */
+public interface BatchTicketService extends TicketService {
+
+    List<PurchaseResult> purchaseTickets(List<PurchaseOrder> orders);
+
+}
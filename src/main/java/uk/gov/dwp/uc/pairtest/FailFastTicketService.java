@@ -0,0 +1,28 @@
+package uk.gov.dwp.uc.pairtest;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseCode;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.PurchaseRejectedException;
+
+/**
+ * {@link TicketService} view of {@link TicketServiceImpl#tryPurchaseTickets} for callers that need an exception:
+ * an invalid purchase throws the shared, stackless {@link PurchaseRejectedException} for the first broken rule
+ * instead of building every message and a new exception. Use {@link TicketServiceImpl} directly for the full list.
+ */
+public class FailFastTicketService implements TicketService {
+
+    private final TicketServiceImpl ticketService;
+
+    public FailFastTicketService(TicketServiceImpl ticketService) {
+        this.ticketService = ticketService;
+    }
+
+    @Override
+    public void purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
+        PurchaseCode code = ticketService.tryPurchaseTickets(accountId, ticketTypeRequests);
+        if(!code.isAccepted()) {
+            throw PurchaseRejectedException.of(code);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package uk.gov.dwp.uc.pairtest;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService;
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
+import uk.gov.dwp.uc.pairtest.domain.TicketPriceLookupService;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.sales.PurchaseListener;
+import uk.gov.dwp.uc.pairtest.seating.SeatHold;
+import uk.gov.dwp.uc.pairtest.seating.SeatHoldService;
+
+/**
+ * Purchases in two phases so that money is only taken for seats that can be given: the seats are held first,
+ * then the payment is made and finally the hold is confirmed. A hold that cannot be made fails the purchase
+ * before any payment, and a failed payment releases the hold. A hold stops expiring once its payment starts, so a
+ * customer who has been charged always gets the seats. The {@link PurchaseListener} is told once the hold is
+ * confirmed.
+ */
+public class HoldConfirmTicketService implements TicketService {
+
+    private final TicketPaymentService ticketPaymentService;
+    private final SeatHoldService seatHoldService;
+    private final PurchaseValidator purchaseValidator;
+    private final PurchaseListener listener;
+
+    public HoldConfirmTicketService(TicketPaymentService ticketPaymentService,
+                                    SeatHoldService seatHoldService,
+                                    TicketPriceLookupService ticketPriceLookupService,
+                                    CinemaTicketsConfigService cinemaTicketsConfigService) {
+        this(ticketPaymentService, seatHoldService, ticketPriceLookupService, cinemaTicketsConfigService,
+                PurchaseListener.NONE);
+    }
+
+    public HoldConfirmTicketService(TicketPaymentService ticketPaymentService,
+                                    SeatHoldService seatHoldService,
+                                    TicketPriceLookupService ticketPriceLookupService,
+                                    CinemaTicketsConfigService cinemaTicketsConfigService,
+                                    PurchaseListener listener) {
+        this.ticketPaymentService = ticketPaymentService;
+        this.seatHoldService = seatHoldService;
+        this.purchaseValidator = new PurchaseValidator(ticketPriceLookupService, cinemaTicketsConfigService);
+        this.listener = listener;
+    }
+
+    @Override
+    public void purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
+
+        TicketOrder order = TicketOrder.from(ticketTypeRequests);
+
+        String errors = purchaseValidator.validationErrors(accountId, order);
+        if(errors != null) {
+            throw new InvalidPurchaseException(errors);
+        }
+
+        int totalPrice = purchaseValidator.totalPrice(order);
+        SeatHold hold = seatHoldService.hold(accountId, order.getTotalTickets());
+        seatHoldService.startPayment(hold);
+        try {
+            ticketPaymentService.makePayment(accountId, totalPrice);
+        } catch (RuntimeException e) {
+            seatHoldService.release(hold);
+            throw e;
+        }
+        seatHoldService.confirm(hold);
+        PurchaseListener.notifySafely(listener, accountId, order, totalPrice);
+    }
+}
@@ -0,0 +1,208 @@
+package uk.gov.dwp.uc.pairtest;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.PurchaseOverloadException;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * De-duplicates purchases that share a client supplied request id, so a retried purchase is neither charged
+ * nor reserved twice. The outcome of each request id is remembered for a limited time in a bounded cache
+ * split into independently locked stripes. A duplicate arriving while the first attempt is still running waits
+ * for that attempt's outcome instead of running the purchase again. A request id reused for a different account or
+ * order is rejected rather than answered with the outcome of the purchase it was first used for.
+ * Rejected purchases are remembered like successful ones, while a purchase that failed for any other reason,
+ * including being shed with a {@link PurchaseOverloadException}, is forgotten so that a retry can try again.
+ * A full stripe makes room by forgetting its oldest finished outcome; a purchase still running is never forgotten,
+ * since its duplicates would then run it again, so a stripe full of running purchases turns new ones away with a
+ * {@link PurchaseOverloadException}.
+ */
+public class IdempotentTicketService {
+
+    private static final int STRIPES = 64;
+
+    private final TicketService ticketService;
+    private final long timeToLiveNanos;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public IdempotentTicketService(TicketService ticketService, int maxEntries, Duration timeToLive) {
+        if(maxEntries < STRIPES) {
+            throw new IllegalArgumentException("Max entries should be at least " + STRIPES);
+        }
+        this.ticketService = ticketService;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        for(int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(maxEntries / STRIPES);
+        }
+    }
+
+    public void purchaseTickets(String requestId, Long accountId, TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
+        if(requestId == null || requestId.isEmpty()) {
+            throw new InvalidPurchaseException("Request Id should not be empty");
+        }
+
+        Stripe stripe = stripeFor(requestId);
+        CompletableFuture<Void> outcome = new CompletableFuture<>();
+        TicketOrder order = orderOf(ticketTypeRequests);
+        Entry previous = stripe.putIfAbsent(requestId, new Entry(outcome, accountId, order, System.nanoTime()),
+                timeToLiveNanos);
+
+        if(previous != null) {
+            if(!previous.isFor(accountId, order)) {
+                throw new InvalidPurchaseException("Request Id was already used for a different purchase");
+            }
+            awaitOutcome(previous.outcome());
+            return;
+        }
+
+        try {
+            ticketService.purchaseTickets(accountId, ticketTypeRequests);
+            outcome.complete(null);
+        } catch (PurchaseOverloadException e) {
+            stripe.remove(requestId, outcome);
+            outcome.completeExceptionally(e);
+            throw e;
+        } catch (InvalidPurchaseException e) {
+            outcome.completeExceptionally(e);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            stripe.remove(requestId, outcome);
+            outcome.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /*
+    * Null when the requests are malformed, which the wrapped service rejects anyway
+    * */
+    private static TicketOrder orderOf(TicketTypeRequest[] ticketTypeRequests) {
+        if(ticketTypeRequests == null) {
+            return null;
+        }
+        for(TicketTypeRequest request : ticketTypeRequests) {
+            if(request == null || request.getTicketType() == null) {
+                return null;
+            }
+        }
+        return TicketOrder.from(ticketTypeRequests);
+    }
+
+    private static void awaitOutcome(CompletableFuture<Void> outcome) {
+        try {
+            outcome.join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for(Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private Stripe stripeFor(String requestId) {
+        int hash = requestId.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    private record Entry(CompletableFuture<Void> outcome, Long accountId, TicketOrder order, long createdAtNanos) {
+
+        boolean isFor(Long accountId, TicketOrder order) {
+            return Objects.equals(this.accountId, accountId) && Objects.equals(this.order, order);
+        }
+    }
+
+    /*
+    * Insertion ordered map evicting its oldest finished entry once full, guarded by its own lock
+    * */
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+        private final int maxEntries;
+
+        Stripe(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        Entry putIfAbsent(String requestId, Entry entry, long timeToLiveNanos) {
+            lock.lock();
+            try {
+                evictExpired(entry.createdAtNanos(), timeToLiveNanos);
+                Entry existing = entries.get(requestId);
+                if(existing != null) {
+                    return existing;
+                }
+                if(entries.size() >= maxEntries && !evictOldestFinished()) {
+                    throw new PurchaseOverloadException("Too many purchases in progress, please try again later");
+                }
+                entries.put(requestId, entry);
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(String requestId, CompletableFuture<Void> outcome) {
+            lock.lock();
+            try {
+                Entry existing = entries.get(requestId);
+                if(existing != null && existing.outcome() == outcome) {
+                    entries.remove(requestId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return entries.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean evictOldestFinished() {
+            var iterator = entries.values().iterator();
+            while(iterator.hasNext()) {
+                if(iterator.next().outcome().isDone()) {
+                    iterator.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /*
+        * Entries are in insertion order, so expired ones are always at the head. Expired purchases still running
+        * are kept and stepped over
+        * */
+        private void evictExpired(long now, long timeToLiveNanos) {
+            var iterator = entries.values().iterator();
+            while(iterator.hasNext()) {
+                Entry eldest = iterator.next();
+                if(now - eldest.createdAtNanos() <= timeToLiveNanos) {
+                    return;
+                }
+                if(eldest.outcome().isDone()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+}
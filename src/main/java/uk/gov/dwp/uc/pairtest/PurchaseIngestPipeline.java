@@ -0,0 +1,393 @@
+package uk.gov.dwp.uc.pairtest;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.domain.BatchSeatReservationService;
+import uk.gov.dwp.uc.pairtest.domain.BatchTicketPaymentService;
+import uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService;
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
+import uk.gov.dwp.uc.pairtest.domain.TicketPriceLookupService;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.metrics.PurchaseMetrics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Runs a file of orders through the purchase rules and the downstream services in parallel stages:
+ * one reader, a pool of validation workers, a pool of fulfilment workers that pay for and reserve accepted orders in
+ * batches, and the calling thread writing one result line per input line, in input order.
+ * At most {@link Options#maxInFlight()} lines are between the reader and the writer at any time, so memory stays flat
+ * whatever the size of the file and a slow stage holds back the reader rather than piling up work.
+ * <p>
+ * Input lines are {@code accountId,TYPE:count[,TYPE:count...]}, for example {@code 42,ADULT:2,CHILD:1}.
+ * Result lines are {@code line,ACCEPTED,accountId,amount,seats}, {@code line,REJECTED,accountId,errors},
+ * {@code line,FAILED,accountId,message} or, for an order paid for whose seats could not be reserved,
+ * {@code line,UNRESERVED,accountId,amount,message}, which the summary counts as failed.
+ * Several errors are separated by {@code |}; text fields holding a comma, quote or line break are quoted as in CSV.
+ */
+public class PurchaseIngestPipeline {
+
+    public record Options(int validationWorkers, int fulfilmentWorkers, int maxInFlight, int batchSize) {
+
+        public Options {
+            if(validationWorkers < 1 || fulfilmentWorkers < 1 || maxInFlight < 1 || batchSize < 1) {
+                throw new IllegalArgumentException("Workers, lines in flight and batch size should be greater than zero");
+            }
+        }
+
+        public static Options defaults() {
+            int cores = Runtime.getRuntime().availableProcessors();
+            return new Options(cores, Math.max(1, cores / 2), 4096, 64);
+        }
+    }
+
+    public record Summary(long lines, long accepted, long rejected, long failed) {
+    }
+
+    private enum Status {
+        ACCEPTED, REJECTED, FAILED, UNRESERVED
+    }
+
+    private record Line(long number, String text) {
+    }
+
+    private record Accepted(long number, long accountId, int totalAmountToPay, int totalSeatsToAllocate) {
+    }
+
+    private record Outcome(long number, Status status, String text) {
+    }
+
+    private static final String SEPARATOR = ",";
+    private static final String QUOTE = "\"";
+    private static final String COUNT_SEPARATOR = ":";
+    private static final String ERROR_SEPARATOR = "|";
+    private static final String MALFORMED_LINE = "Malformed order line";
+    private static final Line NO_MORE_LINES = new Line(-1, null);
+    private static final Accepted NO_MORE_ORDERS = new Accepted(-1, 0, 0, 0);
+    private static final Outcome NO_MORE_OUTCOMES = new Outcome(-1, null, null);
+
+    private final BatchTicketPaymentService ticketPaymentService;
+    private final BatchSeatReservationService seatReservationService;
+    private final PurchaseValidator purchaseValidator;
+    private final Options options;
+
+    public PurchaseIngestPipeline(TicketPaymentService ticketPaymentService,
+                                  SeatReservationService seatReservationService,
+                                  TicketPriceLookupService ticketPriceLookupService,
+                                  CinemaTicketsConfigService cinemaTicketsConfigService,
+                                  Options options) {
+        this.ticketPaymentService = BatchTicketPaymentService.of(ticketPaymentService);
+        this.seatReservationService = BatchSeatReservationService.of(seatReservationService);
+        this.purchaseValidator = new PurchaseValidator(ticketPriceLookupService, cinemaTicketsConfigService,
+                PurchaseMetrics.NONE);
+        this.options = options;
+    }
+
+    public Summary ingest(Path input, Path results) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter writer = Files.newBufferedWriter(results, StandardCharsets.UTF_8)) {
+            return new Run(reader, writer).execute();
+        }
+    }
+
+    /*
+    * Neither stream is closed; the results are flushed before returning
+    * */
+    public Summary ingest(InputStream input, OutputStream results) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(results, StandardCharsets.UTF_8));
+        Summary summary = new Run(reader, writer).execute();
+        writer.flush();
+        return summary;
+    }
+
+    /**
+     * Queues and threads of one ingest.
+     */
+    private final class Run {
+
+        private final BufferedReader reader;
+        private final Writer writer;
+        private final Semaphore inFlight = new Semaphore(options.maxInFlight());
+        private final BlockingQueue<Line> lines = new ArrayBlockingQueue<>(options.maxInFlight());
+        private final BlockingQueue<Accepted> accepted = new ArrayBlockingQueue<>(options.maxInFlight());
+        private final BlockingQueue<Outcome> outcomes = new ArrayBlockingQueue<>(options.maxInFlight() + 1);
+        private final AtomicInteger validationWorkersLeft = new AtomicInteger(options.validationWorkers());
+        private final List<Thread> threads = new ArrayList<>();
+        private volatile long totalLines = -1;
+        private volatile IOException readFailure;
+
+        Run(BufferedReader reader, Writer writer) {
+            this.reader = reader;
+            this.writer = writer;
+        }
+
+        Summary execute() throws IOException {
+            threads.add(Thread.ofPlatform().name("ingest-reader").start(this::read));
+            for(int i = 0; i < options.validationWorkers(); i++) {
+                threads.add(Thread.ofPlatform().name("ingest-validate-" + i).start(this::validate));
+            }
+            for(int i = 0; i < options.fulfilmentWorkers(); i++) {
+                threads.add(Thread.ofPlatform().name("ingest-fulfil-" + i).start(this::fulfil));
+            }
+
+            boolean completed = false;
+            try {
+                Summary summary = write();
+                completed = true;
+                if(readFailure != null) {
+                    throw readFailure;
+                }
+                return summary;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Ingest interrupted");
+            } finally {
+                if(!completed) {
+                    threads.forEach(Thread::interrupt);
+                }
+            }
+        }
+
+        private void read() {
+            long number = 0;
+            try {
+                String text;
+                while((text = reader.readLine()) != null) {
+                    inFlight.acquire();
+                    lines.put(new Line(++number, text));
+                }
+            } catch (IOException e) {
+                readFailure = e;
+            } catch (InterruptedException e) {
+                return;
+            }
+            totalLines = number;
+            try {
+                for(int i = 0; i < options.validationWorkers(); i++) {
+                    lines.put(NO_MORE_LINES);
+                }
+                outcomes.put(NO_MORE_OUTCOMES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void validate() {
+            try {
+                for(Line line = lines.take(); line != NO_MORE_LINES; line = lines.take()) {
+                    try {
+                        process(line);
+                    } catch (RuntimeException e) {
+                        outcomes.put(new Outcome(line.number(), Status.FAILED, line.number() + SEPARATOR
+                                + Status.FAILED + SEPARATOR + SEPARATOR + field(e.getMessage())));
+                    }
+                }
+                if(validationWorkersLeft.decrementAndGet() == 0) {
+                    accepted.put(NO_MORE_ORDERS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /*
+        * Parses and validates a line, queueing it for fulfilment when it passes and for writing otherwise
+        * */
+        private void process(Line line) throws InterruptedException {
+            String[] fields = line.text().split(SEPARATOR);
+            Long accountId = parseAccountId(fields[0]);
+            TicketOrder order = accountId == null ? null : parseOrder(fields);
+            String prefix = line.number() + SEPARATOR + Status.REJECTED + SEPARATOR;
+            if(order == null) {
+                outcomes.put(new Outcome(line.number(), Status.REJECTED, prefix + field(fields[0].trim()) + SEPARATOR
+                        + MALFORMED_LINE));
+                return;
+            }
+            String errors = purchaseValidator.validationErrors(accountId, order);
+            if(errors != null) {
+                outcomes.put(new Outcome(line.number(), Status.REJECTED, prefix + accountId + SEPARATOR
+                        + field(errors.replace(TicketServiceImpl.LINE_BREAK, ERROR_SEPARATOR))));
+                return;
+            }
+            accepted.put(new Accepted(line.number(), accountId, purchaseValidator.totalPrice(order),
+                    order.getTotalTickets()));
+        }
+
+        /*
+        * Pays for and reserves accepted orders in batches of whatever is already queued, up to the batch size
+        * */
+        private void fulfil() {
+            List<Accepted> batch = new ArrayList<>(options.batchSize());
+            try {
+                boolean more = true;
+                while(more) {
+                    batch.add(accepted.take());
+                    accepted.drainTo(batch, options.batchSize() - 1);
+                    more = !batch.remove(NO_MORE_ORDERS);
+                    if(!more) {
+                        accepted.put(NO_MORE_ORDERS);
+                    }
+                    if(!batch.isEmpty()) {
+                        fulfil(batch);
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void fulfil(List<Accepted> batch) throws InterruptedException {
+            RuntimeException[] failures = new RuntimeException[batch.size()];
+            call(batch, failures, ticketPaymentService::makePayments, Accepted::totalAmountToPay);
+            boolean[] paid = new boolean[batch.size()];
+            for(int i = 0; i < batch.size(); i++) {
+                paid[i] = failures[i] == null;
+            }
+            call(batch, failures, seatReservationService::reserveSeats, Accepted::totalSeatsToAllocate);
+            for(int i = 0; i < batch.size(); i++) {
+                Accepted order = batch.get(i);
+                String prefix = order.number() + SEPARATOR;
+                if(failures[i] == null) {
+                    outcomes.put(new Outcome(order.number(), Status.ACCEPTED, prefix + Status.ACCEPTED + SEPARATOR
+                            + order.accountId() + SEPARATOR + order.totalAmountToPay() + SEPARATOR
+                            + order.totalSeatsToAllocate()));
+                } else if(paid[i]) {
+                    outcomes.put(new Outcome(order.number(), Status.UNRESERVED, prefix + Status.UNRESERVED + SEPARATOR
+                            + order.accountId() + SEPARATOR + order.totalAmountToPay() + SEPARATOR
+                            + field(failures[i].getMessage())));
+                } else {
+                    outcomes.put(new Outcome(order.number(), Status.FAILED, prefix + Status.FAILED + SEPARATOR
+                            + order.accountId() + SEPARATOR + field(failures[i].getMessage())));
+                }
+            }
+        }
+
+        /*
+        * One batch call for the orders that have not failed yet, recording the failures it reports against them;
+        * a call that throws fails them all
+        * */
+        private void call(List<Accepted> batch, RuntimeException[] failures,
+                          BiFunction<long[], int[], RuntimeException[]> batchCall, ToIntFunction<Accepted> value) {
+            int[] positions = new int[batch.size()];
+            int count = 0;
+            for(int i = 0; i < batch.size(); i++) {
+                if(failures[i] == null) {
+                    positions[count++] = i;
+                }
+            }
+            if(count == 0) {
+                return;
+            }
+            long[] accountIds = new long[count];
+            int[] values = new int[count];
+            for(int i = 0; i < count; i++) {
+                accountIds[i] = batch.get(positions[i]).accountId();
+                values[i] = value.applyAsInt(batch.get(positions[i]));
+            }
+            RuntimeException[] callFailures;
+            try {
+                callFailures = batchCall.apply(accountIds, values);
+            } catch (RuntimeException e) {
+                callFailures = new RuntimeException[count];
+                Arrays.fill(callFailures, e);
+            }
+            for(int i = 0; callFailures != null && i < count; i++) {
+                failures[positions[i]] = callFailures[i];
+            }
+        }
+
+        /*
+        * Free text such as a downstream exception message may hold separators or line breaks of its own
+        * */
+        private static String field(String text) {
+            if(text == null) {
+                return "";
+            }
+            if(!text.contains(SEPARATOR) && !text.contains(QUOTE) && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                return text;
+            }
+            return QUOTE + text.replace(QUOTE, QUOTE + QUOTE) + QUOTE;
+        }
+
+        /*
+        * Lines finish out of order; each waits in a ring slot until every earlier line has been written,
+        * and its in-flight permit is handed back to the reader once it is
+        * */
+        private Summary write() throws IOException, InterruptedException {
+            Outcome[] pending = new Outcome[options.maxInFlight()];
+            long next = 1;
+            long[] counts = new long[Status.values().length];
+            boolean allRead = false;
+            while(!allRead || next <= totalLines) {
+                Outcome outcome = outcomes.take();
+                if(outcome == NO_MORE_OUTCOMES) {
+                    allRead = true;
+                    continue;
+                }
+                pending[slot(outcome.number())] = outcome;
+                for(Outcome ready = pending[slot(next)]; ready != null && ready.number() == next;
+                    ready = pending[slot(next)]) {
+                    pending[slot(next)] = null;
+                    writer.write(ready.text());
+                    writer.write(System.lineSeparator());
+                    counts[ready.status().ordinal()]++;
+                    inFlight.release();
+                    next++;
+                }
+            }
+            return new Summary(next - 1, counts[Status.ACCEPTED.ordinal()], counts[Status.REJECTED.ordinal()],
+                    counts[Status.FAILED.ordinal()] + counts[Status.UNRESERVED.ordinal()]);
+        }
+
+        private int slot(long number) {
+            return (int) (number % options.maxInFlight());
+        }
+    }
+
+    private static Long parseAccountId(String field) {
+        try {
+            return Long.valueOf(field.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static TicketOrder parseOrder(String[] fields) {
+        TicketTypeRequest[] requests = new TicketTypeRequest[fields.length - 1];
+        for(int i = 1; i < fields.length; i++) {
+            String[] typeAndCount = fields[i].split(COUNT_SEPARATOR);
+            if(typeAndCount.length != 2) {
+                return null;
+            }
+            try {
+                requests[i - 1] = TicketTypeRequest.of(TicketTypeRequest.Type.valueOf(typeAndCount[0].trim()),
+                        Integer.parseInt(typeAndCount[1].trim()));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return TicketOrder.from(requests);
+    }
+}
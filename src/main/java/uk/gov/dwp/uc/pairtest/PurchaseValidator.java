@@ -0,0 +1,336 @@
+package uk.gov.dwp.uc.pairtest;
+
+import uk.gov.dwp.uc.pairtest.domain.CachingTicketPriceLookupService;
+import uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfig;
+import uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService;
+import uk.gov.dwp.uc.pairtest.domain.PriceTable;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseCode;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseRule;
+import uk.gov.dwp.uc.pairtest.domain.RefreshingCinemaTicketsConfigService;
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
+import uk.gov.dwp.uc.pairtest.domain.TicketPriceLookupService;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.ledger.PurchaseLedger;
+import uk.gov.dwp.uc.pairtest.metrics.PurchaseMetrics;
+import uk.gov.dwp.uc.pairtest.rules.CompiledRules;
+import uk.gov.dwp.uc.pairtest.rules.DecisionTable;
+import uk.gov.dwp.uc.pairtest.rules.PurchaseRules;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static uk.gov.dwp.uc.pairtest.TicketServiceImpl.LINE_BREAK;
+import static uk.gov.dwp.uc.pairtest.TicketServiceImpl.ONE_ITEM;
+import static uk.gov.dwp.uc.pairtest.TicketServiceImpl.ZERO_ITEMS;
+import static uk.gov.dwp.uc.pairtest.domain.PurchaseRule.ACCOUNT_ID;
+import static uk.gov.dwp.uc.pairtest.domain.PurchaseRule.ACCOUNT_WINDOW_CAP;
+import static uk.gov.dwp.uc.pairtest.domain.PurchaseRule.REQUESTS_EXIST;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
+
+/**
+ * The purchase rules and pricing shared by the synchronous, batch and asynchronous ticket services.
+ * Verdicts and prices come from a {@link DecisionTable} built for the current limits and prices, and rebuilt on a
+ * background thread when either changes; until the rebuild is swapped in, and for orders outside the table, the
+ * rules are evaluated and prices looked up directly, with the same outcome.
+ * An order that passes every rule is then recorded in the {@link PurchaseLedger}, which refuses it when the account
+ * has already bought too many tickets in its window.
+ */
+final class PurchaseValidator {
+
+    private static final ExecutorService DECISION_TABLE_BUILDER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "decision-table-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final TicketPriceLookupService ticketPriceLookupService;
+    private final Supplier<CinemaTicketsConfig> config;
+    private final PurchaseMetrics metrics;
+    private final CinemaTicketsConfigService cinemaTicketsConfigService;
+    private final PurchaseRules rules;
+    private final PurchaseLedger ledger;
+    private final boolean ledgered;
+    private volatile Compiled compiled;
+    private volatile Decisions decisions;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    private record Compiled(CinemaTicketsConfig config, CompiledRules rules) {
+    }
+
+    private record Decisions(CinemaTicketsConfig config, DecisionTable table) {
+    }
+
+    /*
+    * Limits are read once here, unless the config service is refreshing, in which case each purchase
+    * reads its current snapshot
+    * */
+    PurchaseValidator(TicketPriceLookupService ticketPriceLookupService,
+                      CinemaTicketsConfigService cinemaTicketsConfigService) {
+        this(ticketPriceLookupService, cinemaTicketsConfigService, PurchaseMetrics.NONE);
+    }
+
+    PurchaseValidator(TicketPriceLookupService ticketPriceLookupService,
+                      CinemaTicketsConfigService cinemaTicketsConfigService,
+                      PurchaseMetrics metrics) {
+        this(ticketPriceLookupService, cinemaTicketsConfigService, metrics, PurchaseRules.DEFAULT);
+    }
+
+    PurchaseValidator(TicketPriceLookupService ticketPriceLookupService,
+                      CinemaTicketsConfigService cinemaTicketsConfigService,
+                      PurchaseMetrics metrics,
+                      PurchaseRules rules) {
+        this(ticketPriceLookupService, cinemaTicketsConfigService, metrics, rules, PurchaseLedger.NONE);
+    }
+
+    PurchaseValidator(TicketPriceLookupService ticketPriceLookupService,
+                      CinemaTicketsConfigService cinemaTicketsConfigService,
+                      PurchaseMetrics metrics,
+                      PurchaseRules rules,
+                      PurchaseLedger ledger) {
+        this.ticketPriceLookupService = ticketPriceLookupService;
+        this.metrics = metrics;
+        this.cinemaTicketsConfigService = cinemaTicketsConfigService;
+        this.rules = rules;
+        this.ledger = ledger;
+        this.ledgered = ledger != PurchaseLedger.NONE;
+
+        if(cinemaTicketsConfigService instanceof RefreshingCinemaTicketsConfigService refreshing) {
+            this.config = refreshing::snapshot;
+        } else {
+            CinemaTicketsConfig fixed = CinemaTicketsConfig.from(cinemaTicketsConfigService);
+            this.config = () -> fixed;
+        }
+        this.compiled = compile(config.get());
+        this.decisions = buildDecisions();
+    }
+
+    CinemaTicketsConfig config() {
+        return config.get();
+    }
+
+    /*
+    * Evaluates every rule in order and joins the messages of those that fail, or returns null when all pass,
+    * in which case the order has been recorded in the ledger
+    * */
+    String validationErrors(Long accountId, TicketOrder order) {
+        return validationErrors(accountId, order, metrics, true);
+    }
+
+    /*
+    * What the order would cost, or why it would be rejected, with no rejections recorded
+    * */
+    PurchaseResult quote(Long accountId, TicketOrder order) {
+        String errors = validationErrors(accountId, order, PurchaseMetrics.NONE, false);
+        if(errors != null) {
+            return PurchaseResult.rejected(accountId, errors);
+        }
+        return PurchaseResult.accepted(accountId, totalPrice(order), order.getTotalTickets());
+    }
+
+    private String validationErrors(Long accountId, TicketOrder order, PurchaseMetrics rejections, boolean record) {
+        CinemaTicketsConfig limits = config.get();
+        StringBuilder errors = null;
+        if(isInvalidAccountId(accountId)) {
+            errors = addError(errors, ACCOUNT_ID, "Account Id should be greater than zero", rejections);
+        }
+        if(order.getNoOfRequests() == ZERO_ITEMS) {
+            errors = addError(errors, REQUESTS_EXIST, "Requests array is null or empty", rejections);
+            return errors.toString();
+        }
+        CompiledRules compiledRules = rulesFor(limits);
+        for(long broken = violations(limits, order); broken != 0; broken &= broken - 1) {
+            int rule = Long.numberOfTrailingZeros(broken);
+            errors = addError(errors, compiledRules.purchaseRule(rule), compiledRules.message(rule), rejections);
+        }
+        if(ledgered && !withinAccountCap(accountId, order, record && errors == null)) {
+            errors = addError(errors, ACCOUNT_WINDOW_CAP, PurchaseCode.ACCOUNT_WINDOW_CAP.getMessage(), rejections);
+        }
+        return errors == null ? null : errors.toString();
+    }
+
+    /*
+    * Stops at the first broken rule and reports it as a code, building no message
+    * */
+    PurchaseCode firstViolation(Long accountId, TicketOrder order) {
+        if(isInvalidAccountId(accountId)) {
+            return rejected(ACCOUNT_ID);
+        }
+        if(order.getNoOfRequests() == ZERO_ITEMS) {
+            return rejected(REQUESTS_EXIST);
+        }
+        CinemaTicketsConfig limits = config.get();
+        int rule = firstBroken(limits, order);
+        if(rule >= ZERO_ITEMS) {
+            return rejected(rulesFor(limits).purchaseRule(rule));
+        }
+        if(ledgered && !ledger.tryRecord(accountId, order)) {
+            return rejected(ACCOUNT_WINDOW_CAP);
+        }
+        return PurchaseCode.ACCEPTED;
+    }
+
+    /*
+    * Only an order that would otherwise be accepted is recorded; the others are checked so the message can be added
+    * */
+    private boolean withinAccountCap(Long accountId, TicketOrder order, boolean record) {
+        if(isInvalidAccountId(accountId)) {
+            return true;
+        }
+        return record ? ledger.tryRecord(accountId, order) : ledger.allows(accountId, order);
+    }
+
+    /*
+    * Gives back to the account's cap an order that was accepted but whose purchase then failed
+    * */
+    void release(Long accountId, TicketOrder order) {
+        if(ledgered) {
+            ledger.release(accountId, order);
+        }
+    }
+
+    private PurchaseCode rejected(PurchaseRule rule) {
+        if(rule != null) {
+            metrics.recordRejection(rule);
+        }
+        return PurchaseCode.of(rule);
+    }
+
+    /*
+    * Rules are recompiled only when a refresh has replaced the config snapshot
+    * */
+    private CompiledRules rulesFor(CinemaTicketsConfig limits) {
+        Compiled current = compiled;
+        if(current.config() != limits) {
+            current = compile(limits);
+            compiled = current;
+        }
+        return current.rules();
+    }
+
+    /*
+    * The table for these limits and the order's entry in it, falling back to the rules themselves
+    * */
+    private long violations(CinemaTicketsConfig limits, TicketOrder order) {
+        DecisionTable table = decisionsFor(limits);
+        int index = table == null ? -1 : table.indexOf(order);
+        return index < ZERO_ITEMS ? rulesFor(limits).violations(order) : table.violations(index);
+    }
+
+    private int firstBroken(CinemaTicketsConfig limits, TicketOrder order) {
+        DecisionTable table = decisionsFor(limits);
+        int index = table == null ? -1 : table.indexOf(order);
+        return index < ZERO_ITEMS ? rulesFor(limits).firstBroken(order) : table.firstBroken(index);
+    }
+
+    /*
+    * The table for these limits, or null while one is being rebuilt
+    * */
+    private DecisionTable decisionsFor(CinemaTicketsConfig limits) {
+        Decisions current = decisions;
+        if(current.config() != limits) {
+            scheduleRebuild();
+            return null;
+        }
+        return current.table();
+    }
+
+    /*
+    * At most one build per validator is queued; a change made while it runs is picked up by the next one
+    * */
+    private void scheduleRebuild() {
+        if(rebuildScheduled.get() || !rebuildScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        DECISION_TABLE_BUILDER.execute(() -> {
+            try {
+                decisions = buildDecisions();
+            } finally {
+                rebuildScheduled.set(false);
+            }
+        });
+    }
+
+    private Decisions buildDecisions() {
+        CinemaTicketsConfig limits = config.get();
+        return new Decisions(limits, DecisionTable.build(rulesFor(limits), limits.maxPurchaseTickets(), pricesToTable()));
+    }
+
+    /*
+    * Only prices that cannot change unseen are put in the table
+    * */
+    private PriceTable pricesToTable() {
+        if(ticketPriceLookupService instanceof PriceTable fixed) {
+            return fixed;
+        }
+        if(ticketPriceLookupService instanceof CachingTicketPriceLookupService caching) {
+            return caching.loadedTable();
+        }
+        return null;
+    }
+
+    /*
+    * A custom key missing from the snapshot is read from the service; a refreshing service then carries it in
+    * its snapshots, so later recompiles see refreshed values
+    * */
+    private Compiled compile(CinemaTicketsConfig limits) {
+        return new Compiled(limits, rules.compile(key -> limits.hasKey(key)
+                ? limits.getIntConfig(key)
+                : cinemaTicketsConfigService.getIntConfig(key)));
+    }
+
+    private static StringBuilder addError(StringBuilder errors, PurchaseRule rule, String error,
+                                          PurchaseMetrics rejections) {
+        if(rule != null) {
+            rejections.recordRejection(rule);
+        }
+        if(errors == null) {
+            return new StringBuilder(error);
+        }
+        return errors.append(LINE_BREAK).append(error);
+    }
+
+    private static boolean isInvalidAccountId(Long accountId) {
+        return accountId == null || accountId < ONE_ITEM;
+    }
+
+    /*
+    * A caching lookup is asked for its table once, so every ticket type in the order is priced from the same table;
+    * the decision table's price is used only when it was built from that same table
+    * */
+    int totalPrice(TicketOrder order) {
+        TicketPriceLookupService prices = ticketPriceLookupService instanceof CachingTicketPriceLookupService caching
+                ? caching.priceTable()
+                : ticketPriceLookupService;
+        DecisionTable table = pricedWith(prices);
+        int index = table == null ? -1 : table.indexOf(order);
+        if(index >= ZERO_ITEMS) {
+            return table.totalPrice(index);
+        }
+        return priceFor(prices, ADULT, order.getAdults(), order.isAdultRequested())
+                + priceFor(prices, CHILD, order.getChildren(), order.isChildRequested())
+                + priceFor(prices, INFANT, order.getInfants(), order.isInfantRequested());
+    }
+
+    /*
+    * The table when it was priced from these prices; a table that could hold them but does not is rebuilt
+    * */
+    private DecisionTable pricedWith(TicketPriceLookupService prices) {
+        DecisionTable table = decisions.table();
+        if(table.prices() == prices) {
+            return table;
+        }
+        if(prices instanceof PriceTable) {
+            scheduleRebuild();
+        }
+        return null;
+    }
+
+    private static int priceFor(TicketPriceLookupService prices, TicketTypeRequest.Type type, int noOfTickets, boolean requested) {
+        return requested ? noOfTickets * prices.priceFor(type) : ZERO_ITEMS;
+    }
+}
@@ -0,0 +1,206 @@
+package uk.gov.dwp.uc.pairtest;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs purchases on a fixed number of single-writer lanes, chosen by hashing the account id.
+ * Purchases for one account always run on the same lane in the order they were submitted, while different
+ * accounts proceed in parallel, which replaces a global lock around the underlying {@link TicketService}.
+ * Each lane has a bounded queue; when it is full the submitter either blocks or is rejected, as configured.
+ */
+public class ShardedTicketService implements TicketService, AutoCloseable {
+
+    public enum Backpressure {
+        BLOCK, REJECT
+    }
+
+    public record ShardStats(int queueDepth, int maxQueueDepth, long processed, long rejected) {
+    }
+
+    private static final Runnable STOP = () -> {};
+
+    private final TicketService ticketService;
+    private final Backpressure backpressure;
+    private final Shard[] shards;
+    private volatile boolean closed;
+
+    public ShardedTicketService(TicketService ticketService, int noOfShards, int queueCapacity, Backpressure backpressure) {
+        if(noOfShards < TicketServiceImpl.ONE_ITEM || queueCapacity < TicketServiceImpl.ONE_ITEM) {
+            throw new IllegalArgumentException("Shards and queue capacity should be greater than zero");
+        }
+        this.ticketService = ticketService;
+        this.backpressure = backpressure;
+        this.shards = new Shard[noOfShards];
+        for(int i = 0; i < noOfShards; i++) {
+            shards[i] = new Shard(i, queueCapacity);
+        }
+    }
+
+    /*
+    * Blocks until the purchase has run on its account's lane
+    * */
+    @Override
+    public void purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
+        try {
+            submit(accountId, ticketTypeRequests).join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public CompletableFuture<Void> submit(Long accountId, TicketTypeRequest... ticketTypeRequests) {
+        if(closed) {
+            throw new RejectedExecutionException("Ticket service is closed");
+        }
+        Purchase purchase = new Purchase(() -> ticketService.purchaseTickets(accountId, ticketTypeRequests));
+        Shard shard = shardFor(accountId);
+        shard.enqueue(purchase, backpressure);
+        /*
+        * Closing between the check above and the enqueue may have put the purchase behind its lane's STOP, where it
+        * would never run; whichever of this and close() takes it back out of the queue fails it
+        * */
+        if(closed && shard.queue.remove(purchase)) {
+            purchase.reject();
+        }
+        return purchase.outcome;
+    }
+
+    public List<ShardStats> shardStats() {
+        List<ShardStats> stats = new ArrayList<>(shards.length);
+        for(Shard shard : shards) {
+            stats.add(shard.stats());
+        }
+        return stats;
+    }
+
+    private Shard shardFor(Long accountId) {
+        long id = accountId == null ? 0 : accountId;
+        int hash = Long.hashCode(id) * 0x9E3779B9;
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    /*
+    * Stops accepting purchases, lets every lane finish what is already queued and waits for them, then fails any
+    * purchase that slipped in behind a STOP. An interrupt does not cut the wait short but is kept for the caller
+    * */
+    @Override
+    public void close() {
+        closed = true;
+        boolean interrupted = false;
+        for(Shard shard : shards) {
+            while(true) {
+                try {
+                    shard.queue.put(STOP);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        for(Shard shard : shards) {
+            while(true) {
+                try {
+                    shard.worker.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            for(Runnable orphan = shard.queue.poll(); orphan != null; orphan = shard.queue.poll()) {
+                if(orphan instanceof Purchase purchase) {
+                    purchase.reject();
+                }
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Purchase implements Runnable {
+
+        private final Runnable purchase;
+        private final CompletableFuture<Void> outcome = new CompletableFuture<>();
+
+        Purchase(Runnable purchase) {
+            this.purchase = purchase;
+        }
+
+        @Override
+        public void run() {
+            try {
+                purchase.run();
+                outcome.complete(null);
+            } catch (Throwable e) {
+                outcome.completeExceptionally(e);
+            }
+        }
+
+        void reject() {
+            outcome.completeExceptionally(new RejectedExecutionException("Ticket service is closed"));
+        }
+    }
+
+    private static final class Shard {
+
+        private final BlockingQueue<Runnable> queue;
+        private final Thread worker;
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+
+        Shard(int index, int queueCapacity) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.worker = Thread.ofPlatform()
+                    .name("purchase-shard-" + index)
+                    .daemon(true)
+                    .start(this::drain);
+        }
+
+        void enqueue(Runnable purchase, Backpressure backpressure) {
+            if(backpressure == Backpressure.REJECT) {
+                if(!queue.offer(purchase)) {
+                    rejected.incrementAndGet();
+                    throw new RejectedExecutionException("Purchase queue is full");
+                }
+            } else {
+                try {
+                    queue.put(purchase);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted waiting for purchase queue", e);
+                }
+            }
+            maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+        }
+
+        private void drain() {
+            try {
+                for(Runnable purchase = queue.take(); purchase != STOP; purchase = queue.take()) {
+                    purchase.run();
+                    processed.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        ShardStats stats() {
+            return new ShardStats(queue.size(), maxQueueDepth.get(), processed.get(), rejected.get());
+        }
+    }
+}
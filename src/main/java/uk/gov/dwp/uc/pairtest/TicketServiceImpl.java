@@ -2,212 +2,447 @@ package uk.gov.dwp.uc.pairtest;
 
 import thirdparty.paymentgateway.TicketPaymentService;
 import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.domain.BatchSeatReservationService;
+import uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfig;
 import uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseCode;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
 import uk.gov.dwp.uc.pairtest.domain.TicketPriceLookupService;
 import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
 import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.jfr.PurchaseEvent;
+import uk.gov.dwp.uc.pairtest.jfr.RecordedSeatReservationService;
+import uk.gov.dwp.uc.pairtest.jfr.RecordedTicketPaymentService;
+import uk.gov.dwp.uc.pairtest.jfr.ValidationEvent;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseJournal;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseStatus;
+import uk.gov.dwp.uc.pairtest.ledger.PurchaseLedger;
+import uk.gov.dwp.uc.pairtest.metrics.PurchaseMetrics;
+import uk.gov.dwp.uc.pairtest.rules.PurchaseRules;
+import uk.gov.dwp.uc.pairtest.sales.PurchaseListener;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.EnumMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.function.Function;
-import java.util.stream.Collector;
-import java.util.stream.Collectors;
 
-import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
-import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
-import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
-import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
-import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
-import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
-
-public class TicketServiceImpl implements TicketService {
+import static uk.gov.dwp.uc.pairtest.journal.PurchaseStatus.COMPLETED;
+import static uk.gov.dwp.uc.pairtest.journal.PurchaseStatus.PAID;
+import static uk.gov.dwp.uc.pairtest.journal.PurchaseStatus.PAYMENT_FAILED;
+import static uk.gov.dwp.uc.pairtest.journal.PurchaseStatus.RESERVATION_FAILED;
+import static uk.gov.dwp.uc.pairtest.metrics.PurchaseMetrics.Stage.PAYMENT;
+import static uk.gov.dwp.uc.pairtest.metrics.PurchaseMetrics.Stage.PRICING;
+import static uk.gov.dwp.uc.pairtest.metrics.PurchaseMetrics.Stage.RESERVATION;
+import static uk.gov.dwp.uc.pairtest.metrics.PurchaseMetrics.Stage.VALIDATION;
+
+/**
+ * Checks each purchase against the purchase rules and, when it passes, takes the payment and reserves the seats.
+ * Besides the {@link TicketService} method it accepts a {@link TicketOrder} without a request per line, can stop at
+ * the first broken rule and return its code, can quote an order without buying it and can buy orders in batches.
+ * Metrics, a journal, custom rules, a sales listener and a purchase ledger are optional and set through
+ * {@link #builder}.
+ */
+public class TicketServiceImpl implements BatchTicketService {
 
     public static final String LINE_BREAK = "\n";
     public static final int ONE_ITEM = 1;
     public static final int ZERO_ITEMS = 0;
 
-    private final TicketPaymentService ticketPaymentService;
-    private final SeatReservationService seatReservationService;
-    private final TicketPriceLookupService ticketPriceLookupService;
-    private final CinemaTicketsConfigService cinemaTicketsConfigService;
+    private final RecordedTicketPaymentService ticketPaymentService;
+    private final BatchSeatReservationService seatReservationService;
+    private final PurchaseValidator purchaseValidator;
+    private final PurchaseMetrics metrics;
+    private final boolean timed;
+    private final PurchaseJournal journal;
+    private final boolean journaled;
+    private final PurchaseListener listener;
 
+    /**
+     * @deprecated read once at construction, so stale after the config service refreshes; use {@link #getConfig()}
+     */
+    @Deprecated
     public final int maxPurchaseTicket;
+    /**
+     * @deprecated read once at construction, so stale after the config service refreshes; use {@link #getConfig()}
+     */
+    @Deprecated
     public final int maxChildrenWithOneAdult;
+    /**
+     * @deprecated read once at construction, so stale after the config service refreshes; use {@link #getConfig()}
+     */
+    @Deprecated
     public final int maxChildrenWithOneAdultWithInfant;
 
     public TicketServiceImpl(TicketPaymentService ticketPaymentService,
                              SeatReservationService seatReservationService,
                              TicketPriceLookupService ticketPriceLookupService,
                              CinemaTicketsConfigService cinemaTicketsConfigService) {
-        this.ticketPaymentService = ticketPaymentService;
-        this.seatReservationService = seatReservationService;
-        this.ticketPriceLookupService = ticketPriceLookupService;
-        this.cinemaTicketsConfigService = cinemaTicketsConfigService;
+        this(builder(ticketPaymentService, seatReservationService, ticketPriceLookupService, cinemaTicketsConfigService));
+    }
+
+    private TicketServiceImpl(Builder builder) {
+        this.ticketPaymentService = new RecordedTicketPaymentService(builder.ticketPaymentService);
+        this.seatReservationService = new RecordedSeatReservationService(builder.seatReservationService);
+        this.purchaseValidator = new PurchaseValidator(builder.ticketPriceLookupService,
+                builder.cinemaTicketsConfigService, builder.metrics, builder.rules, builder.ledger);
+        this.metrics = builder.metrics;
+        this.timed = metrics != PurchaseMetrics.NONE;
+        this.journal = builder.journal;
+        this.journaled = journal != PurchaseJournal.NONE;
+        this.listener = builder.listener;
+
+        CinemaTicketsConfig config = purchaseValidator.config();
+        this.maxPurchaseTicket = config.maxPurchaseTickets();
+        this.maxChildrenWithOneAdult = config.maxChildrenWithAdult();
+        this.maxChildrenWithOneAdultWithInfant = config.maxChildrenWithAdultWithInfant();
+    }
 
-        maxPurchaseTicket = cinemaTicketsConfigService.getIntConfig(KEY_MAX_PURCHASE_TICKETS);
-        maxChildrenWithOneAdult = cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT);
-        maxChildrenWithOneAdultWithInfant = cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT);
+    public static Builder builder(TicketPaymentService ticketPaymentService,
+                                  SeatReservationService seatReservationService,
+                                  TicketPriceLookupService ticketPriceLookupService,
+                                  CinemaTicketsConfigService cinemaTicketsConfigService) {
+        return new Builder(ticketPaymentService, seatReservationService, ticketPriceLookupService,
+                cinemaTicketsConfigService);
     }
 
     /**
-     * Should only have private methods other than the one below.
+     * The four services a purchase needs, plus the optional collaborators, each of which does nothing unless set.
      */
+    public static final class Builder {
+
+        private final TicketPaymentService ticketPaymentService;
+        private final SeatReservationService seatReservationService;
+        private final TicketPriceLookupService ticketPriceLookupService;
+        private final CinemaTicketsConfigService cinemaTicketsConfigService;
+        private PurchaseMetrics metrics = PurchaseMetrics.NONE;
+        private PurchaseJournal journal = PurchaseJournal.NONE;
+        private PurchaseRules rules = PurchaseRules.DEFAULT;
+        private PurchaseListener listener = PurchaseListener.NONE;
+        private PurchaseLedger ledger = PurchaseLedger.NONE;
+
+        private Builder(TicketPaymentService ticketPaymentService,
+                        SeatReservationService seatReservationService,
+                        TicketPriceLookupService ticketPriceLookupService,
+                        CinemaTicketsConfigService cinemaTicketsConfigService) {
+            this.ticketPaymentService = ticketPaymentService;
+            this.seatReservationService = seatReservationService;
+            this.ticketPriceLookupService = ticketPriceLookupService;
+            this.cinemaTicketsConfigService = cinemaTicketsConfigService;
+        }
+
+        public Builder metrics(PurchaseMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public Builder journal(PurchaseJournal journal) {
+            this.journal = journal;
+            return this;
+        }
+
+        /*
+        * Replaces the default rules; the limits they read still come from the config service
+        * */
+        public Builder rules(PurchaseRules rules) {
+            this.rules = rules;
+            return this;
+        }
+
+        public Builder listener(PurchaseListener listener) {
+            this.listener = listener;
+            return this;
+        }
 
-    record Totals(int totalNoOfTickets, int totalPrice) {}
+        /*
+        * The ledger caps the tickets each account can buy over a window of time, across all its purchases
+        * */
+        public Builder ledger(PurchaseLedger ledger) {
+            this.ledger = ledger;
+            return this;
+        }
+
+        public TicketServiceImpl build() {
+            return new TicketServiceImpl(this);
+        }
+    }
+
+    /*
+    * The limits purchases are checked against right now, which change when the config service refreshes
+    * */
+    public CinemaTicketsConfig getConfig() {
+        return purchaseValidator.config();
+    }
 
     @Override
     public void purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
 
-        ValidationContext validation = validate(
-                this::validateAccountId,
-                this::validateRequestsExists,
-                this::validateMaxTickets,
-                this::validateAdultPresent,
-                this::validateOneInfantShouldBeManagedByOneAdult,
-                this::validateEnoughAdultsForChildren
-        ).apply(new ValidationContext(accountId, ticketTypeRequests));
-
-        Optional.of(validation.getErrors())
-                .map(errors -> String.join(LINE_BREAK, errors).trim())
-                .filter(e -> !e.isEmpty())
-                .ifPresent(s -> {
-                    throw new InvalidPurchaseException(s);
-                });
-
-        Totals totals = Arrays.stream(ticketTypeRequests).collect(
-                Collectors.teeing(
-                        Collectors.summingInt(TicketTypeRequest::getNoOfTickets),
-                        Collectors.summingInt(r -> r.getNoOfTickets() *
-                                ticketPriceLookupService.priceFor(r.getTicketType())),
-                        Totals::new
-                )
-        );
-
-        ticketPaymentService.makePayment(accountId, totals.totalPrice);
-        seatReservationService.reserveSeat(accountId, totals.totalNoOfTickets);
+        /*
+         * Single pass over the requests: tickets are tallied per type and every rule is evaluated
+         * against that one tally, with no per-line or per-rule objects. The tally and the JFR events are still
+         * created on every call; the JIT can only scalar-replace them when it inlines everything they reach.
+         */
+        long start = timed ? System.nanoTime() : ZERO_ITEMS;
+        purchase(accountId, TicketOrder.from(ticketTypeRequests), start);
     }
 
     /*
-    * Composes a number of functions into one function
+    * Same rules and outcome as the TicketTypeRequest form, without allocating a request per line
     * */
-    @SafeVarargs
-    private static <T> Function<T, T> validate(Function<T, T>... fns) {
-        return Arrays.stream(fns).reduce(Function.identity(), Function::andThen);
+    public void purchaseTickets(Long accountId, TicketOrder order) throws InvalidPurchaseException {
+        long start = timed ? System.nanoTime() : ZERO_ITEMS;
+        purchase(accountId, order == null ? TicketOrder.EMPTY : order, start);
     }
 
-    private ValidationContext validateAccountId(ValidationContext context) {
-        if(context.getAccountId() == null || context.getAccountId() < ONE_ITEM) {
-            return context.addError("Account Id should be greater than zero");
+    /*
+    * Fail-fast form: stops at the first broken rule and returns its code instead of throwing,
+    * paying for and reserving the tickets only when the code is ACCEPTED
+    * */
+    public PurchaseCode tryPurchaseTickets(Long accountId, TicketOrder order) {
+        long start = timed ? System.nanoTime() : ZERO_ITEMS;
+        PurchaseEvent event = new PurchaseEvent();
+        event.begin();
+        ValidationEvent validation = new ValidationEvent();
+        validation.begin();
+        TicketOrder ticketOrder = order == null ? TicketOrder.EMPTY : order;
+        PurchaseCode code = purchaseValidator.firstViolation(accountId, ticketOrder);
+        validation.record(accountId, ticketOrder, code.name());
+        long validated = lap(VALIDATION, start);
+        if(!code.isAccepted()) {
+            metrics.recordOutcome(false);
+            event.record(accountId, ticketOrder, PurchaseEvent.REJECTED, ZERO_ITEMS);
+            return code;
         }
-        return context;
+        fulfil(accountId, ticketOrder, validated, event);
+        return code;
     }
 
-    private ValidationContext validateRequestsExists(ValidationContext context) {
-        if(context.getRequests() == null || context.getRequests().length == ZERO_ITEMS) {
-            return context.addError("Requests array is null or empty");
-        }
-        return context;
+    public PurchaseCode tryPurchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests) {
+        return tryPurchaseTickets(accountId, TicketOrder.from(ticketTypeRequests));
     }
 
-    private ValidationContext validateMaxTickets(ValidationContext context) {
-        if(context.getRequests() != null &&
-                context.getRequests().length > cinemaTicketsConfigService.getIntConfig(KEY_MAX_PURCHASE_TICKETS)) {
-            return context.addError("Too many tickets in purchase");
-        }
-        return context;
+    /*
+    * What the order would cost, or the errors it would be rejected with, without paying, reserving seats
+    * or recording anything
+    * */
+    public PurchaseResult quote(Long accountId, TicketOrder order) {
+        return purchaseValidator.quote(accountId, order == null ? TicketOrder.EMPTY : order);
     }
 
-    private ValidationContext validateAdultPresent(ValidationContext context) {
-        if(context.getRequests() != null && context.getRequests().length > ZERO_ITEMS) {
-            boolean includeAdult = Arrays.stream(context.getRequests())
-                    .collect(Collectors.groupingBy(TicketTypeRequest::getTicketType))
-                    .containsKey(ADULT);
-            boolean noAdultsIncluded = !includeAdult;
-            if(noAdultsIncluded) {
-                return context.addError("Infants or Child only purchase not allowed");
-            }
-        }
-        return context;
+    public PurchaseResult quote(Long accountId, TicketTypeRequest... ticketTypeRequests) {
+        return quote(accountId, TicketOrder.from(ticketTypeRequests));
     }
 
-    private static Collector<TicketTypeRequest, ?, Map<TicketTypeRequest.Type, Integer>> countTicketsByType() {
-        return Collectors.toMap(
-                TicketTypeRequest::getTicketType,
-                TicketTypeRequest::getNoOfTickets,
-                Integer::sum,
-                () -> new EnumMap<>(TicketTypeRequest.Type.class)
-        );
-    }
+    /*
+    * Each order gets its outcome once its own payment and reservation have returned: the accepted orders are paid
+    * for together, those whose payment was taken are reserved together, and a failure fails only its own order
+    * */
+    @Override
+    public List<PurchaseResult> purchaseTickets(List<PurchaseOrder> orders) {
+        PurchaseResult[] results = new PurchaseResult[orders.size()];
+        TicketOrder[] ticketOrders = new TicketOrder[orders.size()];
+        int[] positions = new int[orders.size()];
+        int accepted = ZERO_ITEMS;
+
+        for(int i = 0; i < orders.size(); i++) {
+            PurchaseOrder order = orders.get(i);
+            ticketOrders[i] = TicketOrder.from(order.ticketTypeRequests());
+            String errors = purchaseValidator.validationErrors(order.accountId(), ticketOrders[i]);
+            if(errors != null) {
+                metrics.recordOutcome(false);
+                results[i] = PurchaseResult.rejected(order.accountId(), errors);
+                continue;
+            }
+            results[i] = PurchaseResult.accepted(order.accountId(), purchaseValidator.totalPrice(ticketOrders[i]),
+                    ticketOrders[i].getTotalTickets());
+            positions[accepted++] = i;
+        }
 
-    private ValidationContext validateOneInfantShouldBeManagedByOneAdult(ValidationContext context) {
-        if(context.getRequests() != null && context.getRequests().length > ZERO_ITEMS) {
-            Map<TicketTypeRequest.Type, Integer> ticketsPerType =
-                    Arrays.stream(context.getRequests()).collect(countTicketsByType());
-            if(ticketsPerType.containsKey(ADULT) && ticketsPerType.containsKey(INFANT)) {
-                if(ticketsPerType.get(ADULT) < ticketsPerType.get(INFANT)) {
-                    return context.addError("Not enough adults for infants");
-                }
+        if(accepted > ZERO_ITEMS) {
+            int paid = payBatch(results, ticketOrders, positions, accepted);
+            if(journaled) {
+                journalBatch(ticketOrders, results, PAID);
+            }
+            if(paid > ZERO_ITEMS) {
+                reserveBatch(results, positions, paid);
+            }
+            if(journaled) {
+                journal.awaitDurable(journalBatch(ticketOrders, results, COMPLETED));
+            }
+            for(int i = 0; i < results.length; i++) {
+                settleBatch(results[i], ticketOrders[i]);
             }
         }
-        return context;
+        return List.of(results);
     }
 
-    private ValidationContext validateEnoughAdultsForChildren(ValidationContext context) {
-        if (context.getRequests() == null || context.getRequests().length == ZERO_ITEMS) return context;
-
-        Map<TicketTypeRequest.Type, Integer> ticketsPerType =
-                Arrays.stream(context.getRequests()).collect(countTicketsByType());
+    private void purchase(Long accountId, TicketOrder order, long start) {
+        PurchaseEvent event = new PurchaseEvent();
+        event.begin();
+        ValidationEvent validation = new ValidationEvent();
+        validation.begin();
+        String errors = purchaseValidator.validationErrors(accountId, order);
+        validation.record(accountId, order, errors == null ? PurchaseEvent.ACCEPTED : PurchaseEvent.REJECTED);
+        long validated = lap(VALIDATION, start);
+        if(errors != null) {
+            metrics.recordOutcome(false);
+            event.record(accountId, order, PurchaseEvent.REJECTED, ZERO_ITEMS);
+            throw new InvalidPurchaseException(errors);
+        }
+        fulfil(accountId, order, validated, event);
+    }
 
-        if(ticketsPerType.containsKey(ADULT) && ticketsPerType.containsKey(CHILD)) {
-            int adults   = ticketsPerType.getOrDefault(TicketTypeRequest.Type.ADULT, ZERO_ITEMS);
-            int children = ticketsPerType.getOrDefault(TicketTypeRequest.Type.CHILD, ZERO_ITEMS);
-            int infants  = ticketsPerType.getOrDefault(TicketTypeRequest.Type.INFANT, ZERO_ITEMS);
+    private void fulfil(Long accountId, TicketOrder order, long validated, PurchaseEvent event) {
+        int totalPrice = purchaseValidator.totalPrice(order);
+        long priced = lap(PRICING, validated);
 
-            int childrenPerAdult = (infants > ZERO_ITEMS) ? maxChildrenWithOneAdultWithInfant : maxChildrenWithOneAdult;
+        try {
+            if(journaled) {
+                journaledPurchase(accountId, order, totalPrice, priced);
+            } else {
+                ticketPaymentService.makePayment(accountId, totalPrice, order);
+                long paid = lap(PAYMENT, priced);
 
-            if (children > 0 && adults * childrenPerAdult < children) {
-                return context.addError("Not enough adults for children (1 adult per "
-                        + childrenPerAdult + " children"
-                        + (infants > ZERO_ITEMS ? " when infants are present" : "")
-                        + ")");
+                seatReservationService.reserveSeat(accountId, order.getTotalTickets());
+                lap(RESERVATION, paid);
             }
+        } catch (RuntimeException e) {
+            metrics.recordOutcome(false);
+            purchaseValidator.release(accountId, order);
+            event.record(accountId, order, PurchaseEvent.FAILED, totalPrice);
+            throw e;
         }
-
-        return context;
+        metrics.recordOutcome(true);
+        event.record(accountId, order, PurchaseEvent.ACCEPTED, totalPrice);
+        PurchaseListener.notifySafely(listener, accountId, order, totalPrice);
     }
 
-}
+    /*
+    * Pays for the orders at the first count positions and moves those whose payment was taken to the front,
+    * returning how many there are
+    * */
+    private int payBatch(PurchaseResult[] results, TicketOrder[] ticketOrders, int[] positions, int count) {
+        long[] accountIds = new long[count];
+        int[] amountsToPay = new int[count];
+        TicketOrder[] ordersToPay = new TicketOrder[count];
+        for(int i = 0; i < count; i++) {
+            accountIds[i] = results[positions[i]].accountId();
+            amountsToPay[i] = results[positions[i]].totalAmountToPay();
+            ordersToPay[i] = ticketOrders[positions[i]];
+        }
+        RuntimeException[] failures;
+        try {
+            failures = ticketPaymentService.makePayments(accountIds, amountsToPay, ordersToPay);
+        } catch (RuntimeException e) {
+            failures = new RuntimeException[count];
+            Arrays.fill(failures, e);
+        }
+        return keepSucceeded(results, positions, count, failures, PurchaseResult.Outcome.PAYMENT_FAILED);
+    }
 
-class ValidationContext {
-    private final Long accountId;
-    private final TicketTypeRequest[] requests;
-    private final List<String> errors;
+    private void reserveBatch(PurchaseResult[] results, int[] positions, int count) {
+        long[] accountIds = new long[count];
+        int[] seatsToAllocate = new int[count];
+        for(int i = 0; i < count; i++) {
+            accountIds[i] = results[positions[i]].accountId();
+            seatsToAllocate[i] = results[positions[i]].totalSeatsToAllocate();
+        }
+        RuntimeException[] failures;
+        try {
+            failures = seatReservationService.reserveSeats(accountIds, seatsToAllocate);
+        } catch (RuntimeException e) {
+            failures = new RuntimeException[count];
+            Arrays.fill(failures, e);
+        }
+        keepSucceeded(results, positions, count, failures, PurchaseResult.Outcome.RESERVATION_FAILED);
+    }
 
-    public ValidationContext(Long accountId, TicketTypeRequest[] requests) {
-        this.accountId = accountId;
-        this.requests = requests;
-        this.errors = new ArrayList<>();
+    private static int keepSucceeded(PurchaseResult[] results, int[] positions, int count, RuntimeException[] failures,
+                                     PurchaseResult.Outcome failure) {
+        if(failures == null) {
+            return count;
+        }
+        int succeeded = ZERO_ITEMS;
+        for(int i = 0; i < count; i++) {
+            if(failures[i] == null) {
+                positions[succeeded++] = positions[i];
+            } else {
+                results[positions[i]] = results[positions[i]].failed(failure, failures[i]);
+            }
+        }
+        return succeeded;
     }
 
-    public Long getAccountId() {
-        return accountId;
+    /*
+    * Rejections were counted during validation; anything else is counted now its outcome is known
+    * */
+    private void settleBatch(PurchaseResult result, TicketOrder order) {
+        if(result.outcome() == PurchaseResult.Outcome.REJECTED) {
+            return;
+        }
+        metrics.recordOutcome(result.isAccepted());
+        if(result.isAccepted()) {
+            PurchaseListener.notifySafely(listener, result.accountId(), order, result.totalAmountToPay());
+        } else {
+            purchaseValidator.release(result.accountId(), order);
+        }
     }
 
-    public TicketTypeRequest[] getRequests() {
-        return requests;
+    /*
+    * Records each side effect as it happens and returns only once the outcome is durable,
+    * so after a crash a PAID record with nothing after it is the one purchase left to reconcile
+    * */
+    private void journaledPurchase(Long accountId, TicketOrder order, int totalPrice, long priced) {
+        try {
+            ticketPaymentService.makePayment(accountId, totalPrice, order);
+        } catch (RuntimeException e) {
+            journal.append(accountId, order, totalPrice, PAYMENT_FAILED);
+            throw e;
+        }
+        journal.append(accountId, order, totalPrice, PAID);
+        long paid = lap(PAYMENT, priced);
+
+        try {
+            seatReservationService.reserveSeat(accountId, order.getTotalTickets());
+        } catch (RuntimeException e) {
+            journal.awaitDurable(journal.append(accountId, order, totalPrice, RESERVATION_FAILED));
+            throw e;
+        }
+        journal.awaitDurable(journal.append(accountId, order, totalPrice, COMPLETED));
+        lap(RESERVATION, paid);
     }
 
-    public List<String> getErrors() {
-        return Collections.unmodifiableList(errors);
+    /*
+    * Journals every order that reached the downstream calls with the outcome the last batch call left it with,
+    * as the single purchase does: PAID or PAYMENT_FAILED once the payments have returned, then COMPLETED or
+    * RESERVATION_FAILED once the reservations have. Returns the position of the last record
+    * */
+    private long journalBatch(TicketOrder[] ticketOrders, PurchaseResult[] results, PurchaseStatus succeeded) {
+        long last = ZERO_ITEMS;
+        for(int i = 0; i < results.length; i++) {
+            PurchaseResult result = results[i];
+            PurchaseStatus status = switch (result.outcome()) {
+                case ACCEPTED -> succeeded;
+                case PAYMENT_FAILED -> succeeded == PAID ? PAYMENT_FAILED : null;
+                case RESERVATION_FAILED -> RESERVATION_FAILED;
+                case REJECTED -> null;
+            };
+            if(status != null) {
+                last = journal.append(result.accountId(), ticketOrders[i], result.totalAmountToPay(), status);
+            }
+        }
+        return last;
     }
 
-    public ValidationContext addError(String error) {
-        this.errors.add(error);
-        return this;
+    /*
+    * Records the time taken by a stage and returns when it finished, a no-op without metrics
+    * */
+    private long lap(PurchaseMetrics.Stage stage, long since) {
+        if(!timed) {
+            return ZERO_ITEMS;
+        }
+        long now = System.nanoTime();
+        metrics.recordLatency(stage, now - since);
+        return now;
     }
+
 }
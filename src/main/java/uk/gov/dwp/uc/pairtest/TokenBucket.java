@@ -0,0 +1,73 @@
+package uk.gov.dwp.uc.pairtest;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket. Its whole state, the tokens held in thousandths and the last refill time in
+ * milliseconds, is packed into one {@code long} and updated by CAS, so taking a token is a read and a compare-and-set.
+ */
+final class TokenBucket {
+
+    private static final long MILLI_TOKENS = 1_000L;
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    static final int MAX_CAPACITY = (int) (TOKEN_MASK / MILLI_TOKENS);
+
+    private final AtomicLong state;
+    private final long startNanos;
+    private final long maxMilliTokens;
+
+    TokenBucket(int capacity, long startNanos) {
+        if(capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity should be between 1 and " + MAX_CAPACITY);
+        }
+        this.startNanos = startNanos;
+        this.maxMilliTokens = capacity * MILLI_TOKENS;
+        this.state = new AtomicLong(maxMilliTokens);
+    }
+
+    /*
+    * Refills at ratePerSecond up to capacity, then takes one token if there is one
+    * */
+    boolean tryAcquire(double ratePerSecond, long nowNanos) {
+        long nowMillis = elapsedMillis(nowNanos);
+        while(true) {
+            long current = state.get();
+            long milliTokens = current & TOKEN_MASK;
+            long lastMillis = current >>> TOKEN_BITS;
+            long elapsed = Math.max(0, nowMillis - lastMillis);
+            long refilled = Math.min(maxMilliTokens, milliTokens + (long) (elapsed * ratePerSecond));
+            if(refilled < MILLI_TOKENS) {
+                return false;
+            }
+            long next = (Math.max(lastMillis, nowMillis) << TOKEN_BITS) | (refilled - MILLI_TOKENS);
+            if(state.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /*
+    * Gives back a token taken for a purchase that was then refused elsewhere, never beyond capacity
+    * */
+    void refund() {
+        while(true) {
+            long current = state.get();
+            long milliTokens = Math.min(maxMilliTokens, (current & TOKEN_MASK) + MILLI_TOKENS);
+            if(state.compareAndSet(current, (current & ~TOKEN_MASK) | milliTokens)) {
+                return;
+            }
+        }
+    }
+
+    /*
+    * Time since start at which a token was last taken
+    * */
+    long lastAcquiredMillis() {
+        return state.get() >>> TOKEN_BITS;
+    }
+
+    long elapsedMillis(long nowNanos) {
+        return (nowNanos - startNanos) / 1_000_000L;
+    }
+}
@@ -0,0 +1,326 @@
+package uk.gov.dwp.uc.pairtest;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.PurchaseOverloadException;
+import uk.gov.dwp.uc.pairtest.resilience.CircuitState;
+import uk.gov.dwp.uc.pairtest.resilience.CircuitStateListener;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Virtual waiting room in front of a {@link TicketService} for release-day spikes. Customers {@link #join} the queue of
+ * their priority class and poll {@link #status} for their position and estimated wait. They are admitted first from
+ * the highest priority class, first come first served within a class, at a rate that follows the health of the
+ * purchases let through: it is cut by a quarter whenever they fail or their smoothed latency is above target, drops
+ * to the minimum while a downstream circuit is open, and otherwise grows by a twentieth of the maximum.
+ * An admitted account holds a pass for one purchase until it expires. While nobody is waiting, purchases walk
+ * straight in within the same rate, and are turned away with a {@link PurchaseOverloadException} once a queue forms.
+ * Each class is a bounded ring of account ids whose slots are claimed by compare-and-set on its tail, so joining never
+ * takes a lock and a waiting customer costs eight bytes. Admission is driven by the calls themselves, with one caller
+ * at a time moving customers from the front of the rings to passes.
+ */
+public class WaitingRoomTicketService implements TicketService, CircuitStateListener {
+
+    public record Limits(double maxAdmissionsPerSecond,
+                         double minAdmissionsPerSecond,
+                         int admissionBurst,
+                         int priorityClasses,
+                         int queueCapacity,
+                         Duration passDuration,
+                         Duration targetLatency,
+                         Duration adjustInterval) {
+
+        public Limits {
+            if(minAdmissionsPerSecond <= 0 || maxAdmissionsPerSecond < minAdmissionsPerSecond || admissionBurst < 1) {
+                throw new IllegalArgumentException("Rates and burst should be greater than zero");
+            }
+            if(admissionBurst > TokenBucket.MAX_CAPACITY) {
+                throw new IllegalArgumentException("Burst should be at most " + TokenBucket.MAX_CAPACITY);
+            }
+            if(priorityClasses < 1 || queueCapacity < 1) {
+                throw new IllegalArgumentException("Priority classes and queue capacity should be greater than zero");
+            }
+        }
+    }
+
+    /*
+    * A place in the queue of one priority class, 0 being the highest
+    * */
+    public record Ticket(long accountId, int priority, long number) {
+    }
+
+    /*
+    * Position counts from 1 and includes everyone waiting in higher priority classes
+    * */
+    public record Status(boolean admitted, long position, Duration estimatedWait) {
+    }
+
+    private static final double DECREASE_FACTOR = 0.75;
+    private static final double INCREASE_FRACTION = 0.05;
+    private static final double LATENCY_SMOOTHING = 0.2;
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final TicketService ticketService;
+    private final Limits limits;
+    private final LongSupplier nanoClock;
+    private final TokenBucket admissions;
+    private final Queue[] queues;
+    private final ConcurrentHashMap<Long, Long> passes = new ConcurrentHashMap<>();
+    private final long passNanos;
+
+    /*
+    * Held by the one caller admitting customers; guards nextAdjustNanos and the heads of the queues
+    * */
+    private final AtomicBoolean admitting = new AtomicBoolean();
+    private long nextAdjustNanos;
+
+    private volatile double admissionsPerSecond;
+    private volatile double smoothedLatencyNanos;
+    private volatile boolean downstreamOpen;
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder turnedAway = new LongAdder();
+
+    /**
+     * Bounded multi-producer ring with a single consumer, the caller holding {@code admitting}.
+     * A slot holds zero until the customer who claimed it has written their account id.
+     */
+    private static final class Queue {
+        private static final long EMPTY = 0;
+        private static final long FULL = -1;
+
+        private final AtomicLongArray slots;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head;
+
+        Queue(int capacity) {
+            int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+            this.slots = new AtomicLongArray(size);
+            this.mask = size - 1;
+        }
+
+        /*
+        * The customer's number in this queue, or FULL
+        * */
+        long offer(long accountId) {
+            while(true) {
+                long number = tail.get();
+                if(number - head >= slots.length()) {
+                    return FULL;
+                }
+                if(tail.compareAndSet(number, number + 1)) {
+                    slots.setRelease((int) number & mask, accountId);
+                    return number;
+                }
+            }
+        }
+
+        /*
+        * The account at the front, or EMPTY when there is none or it is still being written
+        * */
+        long peek() {
+            return head == tail.get() ? EMPTY : slots.getAcquire((int) head & mask);
+        }
+
+        void remove() {
+            slots.set((int) head & mask, EMPTY);
+            head = head + 1;
+        }
+
+        long waiting() {
+            return Math.max(0, tail.get() - head);
+        }
+    }
+
+    public WaitingRoomTicketService(TicketService ticketService, Limits limits) {
+        this(ticketService, limits, System::nanoTime);
+    }
+
+    public WaitingRoomTicketService(TicketService ticketService, Limits limits, LongSupplier nanoClock) {
+        this.ticketService = ticketService;
+        this.limits = limits;
+        this.nanoClock = nanoClock;
+        long start = nanoClock.getAsLong();
+        this.admissions = new TokenBucket(limits.admissionBurst(), start);
+        this.queues = new Queue[limits.priorityClasses()];
+        for(int priority = 0; priority < queues.length; priority++) {
+            queues[priority] = new Queue(limits.queueCapacity());
+        }
+        this.passNanos = limits.passDuration().toNanos();
+        this.nextAdjustNanos = start + limits.adjustInterval().toNanos();
+        this.admissionsPerSecond = limits.maxAdmissionsPerSecond();
+    }
+
+    /*
+    * Joins the queue of the lowest priority class
+    * */
+    public Ticket join(long accountId) {
+        return join(accountId, queues.length - 1);
+    }
+
+    /*
+    * Joining again takes a new place at the back; the earlier one is still served
+    * */
+    public Ticket join(long accountId, int priority) {
+        if(accountId < TicketServiceImpl.ONE_ITEM) {
+            throw new InvalidPurchaseException("Account Id should be greater than zero");
+        }
+        if(priority < 0 || priority >= queues.length) {
+            throw new IllegalArgumentException("Priority should be between 0 and " + (queues.length - 1));
+        }
+        long number = queues[priority].offer(accountId);
+        if(number == Queue.FULL) {
+            turnedAway.increment();
+            throw new PurchaseOverloadException("The waiting room is full, please try again later");
+        }
+        admit(nanoClock.getAsLong());
+        return new Ticket(accountId, priority, number);
+    }
+
+    public Status status(Ticket ticket) {
+        admit(nanoClock.getAsLong());
+        long ahead = ticket.number() - queues[ticket.priority()].head;
+        if(ahead < 0) {
+            return new Status(true, 0, Duration.ZERO);
+        }
+        for(int priority = 0; priority < ticket.priority(); priority++) {
+            ahead += queues[priority].waiting();
+        }
+        long position = ahead + 1;
+        return new Status(false, position, Duration.ofNanos((long) (position / admissionsPerSecond * NANOS_PER_SECOND)));
+    }
+
+    @Override
+    public void purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
+        long now = nanoClock.getAsLong();
+        admit(now);
+        boolean passHolder = holdsPass(accountId, now);
+        if(!passHolder && !walkIn(now)) {
+            turnedAway.increment();
+            throw new PurchaseOverloadException("Please join the waiting room to buy tickets");
+        }
+
+        try {
+            ticketService.purchaseTickets(accountId, ticketTypeRequests);
+            if(passHolder) {
+                passes.remove(accountId);
+            }
+        } catch (RuntimeException e) {
+            if(e instanceof PurchaseOverloadException || !(e instanceof InvalidPurchaseException)) {
+                failures.increment();
+            }
+            throw e;
+        } finally {
+            observeLatency(nanoClock.getAsLong() - now);
+        }
+    }
+
+    /*
+    * An open circuit means the downstream service is failing whatever the room admits, so admission drops to its
+    * minimum until the circuit closes again
+    * */
+    @Override
+    public void onStateChange(CircuitState from, CircuitState to) {
+        downstreamOpen = to == CircuitState.OPEN;
+        if(downstreamOpen) {
+            admissionsPerSecond = limits.minAdmissionsPerSecond();
+        }
+    }
+
+    public double getAdmissionsPerSecond() {
+        return admissionsPerSecond;
+    }
+
+    public long getWaitingCount() {
+        long waiting = 0;
+        for(Queue queue : queues) {
+            waiting += queue.waiting();
+        }
+        return waiting;
+    }
+
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    public long getTurnedAwayCount() {
+        return turnedAway.sum();
+    }
+
+    private boolean holdsPass(Long accountId, long now) {
+        Long expiresAt = accountId == null ? null : passes.get(accountId);
+        return expiresAt != null && expiresAt - now > 0;
+    }
+
+    private boolean walkIn(long now) {
+        return getWaitingCount() == 0 && admissions.tryAcquire(admissionsPerSecond, now);
+    }
+
+    /*
+    * A caller finding another already admitting leaves it to them
+    * */
+    private void admit(long now) {
+        if(admitting.get() || !admitting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if(now - nextAdjustNanos >= 0) {
+                nextAdjustNanos = now + limits.adjustInterval().toNanos();
+                adjustRate();
+                passes.values().removeIf(expiresAt -> expiresAt - now <= 0);
+            }
+            admitWaiting(now);
+        } finally {
+            admitting.set(false);
+        }
+    }
+
+    /*
+    * A lower class is only reached once every higher one is empty
+    * */
+    private void admitWaiting(long now) {
+        double rate = admissionsPerSecond;
+        for(Queue queue : queues) {
+            for(long accountId = queue.peek(); accountId != Queue.EMPTY; accountId = queue.peek()) {
+                if(!admissions.tryAcquire(rate, now)) {
+                    return;
+                }
+                passes.put(accountId, now + passNanos);
+                queue.remove();
+                admitted.increment();
+            }
+            if(queue.waiting() > 0) {
+                return;
+            }
+        }
+    }
+
+    /*
+    * Lossy under contention by design, a dropped sample barely moves an exponential average
+    * */
+    private void observeLatency(long latencyNanos) {
+        double smoothed = smoothedLatencyNanos;
+        smoothedLatencyNanos = smoothed == 0 ? latencyNanos : smoothed + LATENCY_SMOOTHING * (latencyNanos - smoothed);
+    }
+
+    private void adjustRate() {
+        double rate = admissionsPerSecond;
+        long failed = failures.sumThenReset();
+        if(downstreamOpen) {
+            rate = limits.minAdmissionsPerSecond();
+        } else if(failed > 0 || smoothedLatencyNanos > limits.targetLatency().toNanos()) {
+            rate *= DECREASE_FACTOR;
+        } else {
+            rate += limits.maxAdmissionsPerSecond() * INCREASE_FRACTION;
+        }
+        admissionsPerSecond = Math.max(limits.minAdmissionsPerSecond(), Math.min(limits.maxAdmissionsPerSecond(), rate));
+    }
+}
@@ -0,0 +1,37 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import thirdparty.seatbooking.SeatReservationService;
+
+/**
+ * A {@link SeatReservationService} that can make several reservations in one call.
+ * Providers without a batch endpoint fall back to one {@link #reserveSeat} per reservation.
+ * Failures are reported per reservation, as for {@link BatchTicketPaymentService}.
+ */
+public interface BatchSeatReservationService extends SeatReservationService {
+
+    /*
+    * accountIds[i] is allocated totalSeatsToAllocate[i] seats. Returns null when every reservation was made,
+    * otherwise why each one that was not failed, at the same index. Throwing means none was made
+    * */
+    default RuntimeException[] reserveSeats(long[] accountIds, int[] totalSeatsToAllocate) {
+        RuntimeException[] failures = null;
+        for(int i = 0; i < accountIds.length; i++) {
+            try {
+                reserveSeat(accountIds[i], totalSeatsToAllocate[i]);
+            } catch (RuntimeException e) {
+                if(failures == null) {
+                    failures = new RuntimeException[accountIds.length];
+                }
+                failures[i] = e;
+            }
+        }
+        return failures;
+    }
+
+    static BatchSeatReservationService of(SeatReservationService seatReservationService) {
+        if(seatReservationService instanceof BatchSeatReservationService batchSeatReservationService) {
+            return batchSeatReservationService;
+        }
+        return seatReservationService::reserveSeat;
+    }
+}
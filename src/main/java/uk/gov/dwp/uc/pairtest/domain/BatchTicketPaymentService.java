@@ -0,0 +1,38 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+
+/**
+ * A {@link TicketPaymentService} that can take several payments in one call.
+ * Providers without a batch endpoint fall back to one {@link #makePayment} per payment.
+ * Each payment succeeds or fails on its own, and the failures are reported per payment so the ones that were
+ * taken are never mistaken for ones that were not.
+ */
+public interface BatchTicketPaymentService extends TicketPaymentService {
+
+    /*
+    * accountIds[i] pays totalAmountsToPay[i]. Returns null when every payment was taken, otherwise why each one that
+    * was not failed, at the same index, with null for those that were. Throwing means none was taken
+    * */
+    default RuntimeException[] makePayments(long[] accountIds, int[] totalAmountsToPay) {
+        RuntimeException[] failures = null;
+        for(int i = 0; i < accountIds.length; i++) {
+            try {
+                makePayment(accountIds[i], totalAmountsToPay[i]);
+            } catch (RuntimeException e) {
+                if(failures == null) {
+                    failures = new RuntimeException[accountIds.length];
+                }
+                failures[i] = e;
+            }
+        }
+        return failures;
+    }
+
+    static BatchTicketPaymentService of(TicketPaymentService ticketPaymentService) {
+        if(ticketPaymentService instanceof BatchTicketPaymentService batchTicketPaymentService) {
+            return batchTicketPaymentService;
+        }
+        return ticketPaymentService::makePayment;
+    }
+}
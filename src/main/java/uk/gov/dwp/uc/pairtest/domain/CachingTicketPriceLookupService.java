@@ -0,0 +1,173 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caches the prices of a network backed {@link TicketPriceLookupService} in a {@link PriceTable}.
+ * The whole table is loaded at once and replaced atomically, either when its time to live runs out,
+ * after {@link #invalidate()}, or when a price change event supplies a new table.
+ * Once a table has expired it is reloaded in the background while every caller keeps pricing from the stale
+ * table, which also stays in use if the reload fails. Each table is published with a version taken when its load
+ * started, so a slow load never replaces a price change that arrived after it began.
+ */
+public class CachingTicketPriceLookupService implements TicketPriceLookupService {
+
+    private record Published(PriceTable table, long version) {
+    }
+
+    private final TicketPriceLookupService source;
+    private final long timeToLiveNanos;
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private final AtomicBoolean reloading = new AtomicBoolean();
+    private final AtomicLong versions = new AtomicLong();
+
+    private final AtomicReference<Published> published = new AtomicReference<>(new Published(null, 0));
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private volatile RuntimeException lastFailure;
+
+    public CachingTicketPriceLookupService(TicketPriceLookupService source, Duration timeToLive) {
+        this.source = source;
+        this.timeToLiveNanos = timeToLive.toNanos();
+    }
+
+    @Override
+    public int priceFor(TicketTypeRequest.Type type) {
+        return priceTable().priceFor(type);
+    }
+
+    /*
+    * The table to price a whole order with. Only the very first load, with no table to fall back on, is made
+    * on the calling thread and can fail the call
+    * */
+    public PriceTable priceTable() {
+        PriceTable table = published.get().table();
+        if(table == null) {
+            misses.increment();
+            return load();
+        }
+        if(System.nanoTime() - table.loadedAtNanos() > timeToLiveNanos && reloading.compareAndSet(false, true)) {
+            misses.increment();
+            Thread.ofVirtual().name("price-table-reload").start(this::reload);
+            return table;
+        }
+        hits.increment();
+        return table;
+    }
+
+    /*
+    * The table currently held, or null; never loads and is not counted as a hit or a miss
+    * */
+    public PriceTable loadedTable() {
+        return published.get().table();
+    }
+
+    private PriceTable load() {
+        loadLock.lock();
+        try {
+            PriceTable table = published.get().table();
+            if(table == null) {
+                long version = versions.incrementAndGet();
+                table = loadFromSource();
+                publish(table, version);
+            }
+            return table;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private void reload() {
+        try {
+            long version = versions.incrementAndGet();
+            publish(loadFromSource(), version);
+        } catch (RuntimeException e) {
+            failures.increment();
+            lastFailure = e;
+        } finally {
+            reloading.set(false);
+        }
+    }
+
+    private PriceTable loadFromSource() {
+        long start = System.nanoTime();
+        PriceTable table = PriceTable.from(source);
+        loads.increment();
+        loadNanos.add(System.nanoTime() - start);
+        return table;
+    }
+
+    /*
+    * Replaces the current table unless a newer one was published meanwhile
+    * */
+    private void publish(PriceTable table, long version) {
+        Published next = new Published(table, version);
+        Published current;
+        do {
+            current = published.get();
+            if(current.version() > version) {
+                discarded.increment();
+                return;
+            }
+        } while(!published.compareAndSet(current, next));
+    }
+
+    /*
+    * The next lookup loads a fresh table from the source
+    * */
+    public void invalidate() {
+        publish(null, versions.incrementAndGet());
+    }
+
+    /*
+    * Price change event, swaps in the new prices for every type at once
+    * */
+    public void onPriceChange(Map<TicketTypeRequest.Type, Integer> pricesByType) {
+        publish(PriceTable.of(pricesByType), versions.incrementAndGet());
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    public long getTotalLoadNanos() {
+        return loadNanos.sum();
+    }
+
+    /*
+    * Background reloads that failed, leaving the stale table in use
+    * */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    public RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    /*
+    * Loads thrown away because a newer table was published while they ran
+    * */
+    public long getDiscardedLoadCount() {
+        return discarded.sum();
+    }
+}
@@ -0,0 +1,77 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+
+/**
+ * Immutable snapshot of the purchase limits, read once so a purchase never sees a mix of old and new limits.
+ * Keys used only by custom rules are carried alongside the three built-in limits.
+ */
+public record CinemaTicketsConfig(int maxPurchaseTickets, int maxChildrenWithAdult, int maxChildrenWithAdultWithInfant,
+                                  Map<String, Integer> customValues) {
+
+    public CinemaTicketsConfig {
+        customValues = Map.copyOf(customValues);
+    }
+
+    public CinemaTicketsConfig(int maxPurchaseTickets, int maxChildrenWithAdult, int maxChildrenWithAdultWithInfant) {
+        this(maxPurchaseTickets, maxChildrenWithAdult, maxChildrenWithAdultWithInfant, Map.of());
+    }
+
+    public static CinemaTicketsConfig from(CinemaTicketsConfigService cinemaTicketsConfigService) {
+        return from(cinemaTicketsConfigService, List.of());
+    }
+
+    /*
+    * Reads the custom keys as well as the built-in limits
+    * */
+    public static CinemaTicketsConfig from(CinemaTicketsConfigService cinemaTicketsConfigService,
+                                           Collection<String> customKeys) {
+        Map<String, Integer> customValues = new HashMap<>();
+        for(String key : customKeys) {
+            customValues.put(key, cinemaTicketsConfigService.getIntConfig(key));
+        }
+        return new CinemaTicketsConfig(
+                cinemaTicketsConfigService.getIntConfig(KEY_MAX_PURCHASE_TICKETS),
+                cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT),
+                cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT),
+                customValues);
+    }
+
+    public int getIntConfig(String key) {
+        return switch (key) {
+            case KEY_MAX_PURCHASE_TICKETS -> maxPurchaseTickets;
+            case KEY_MAX_CHILDREN_WITH_ADULT -> maxChildrenWithAdult;
+            case KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT -> maxChildrenWithAdultWithInfant;
+            default -> {
+                Integer value = customValues.get(key);
+                if(value == null) {
+                    throw new IllegalArgumentException("Unknown config key " + key);
+                }
+                yield value;
+            }
+        };
+    }
+
+    public boolean hasKey(String key) {
+        return switch (key) {
+            case KEY_MAX_PURCHASE_TICKETS, KEY_MAX_CHILDREN_WITH_ADULT, KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT -> true;
+            default -> customValues.containsKey(key);
+        };
+    }
+
+    /*
+    * The same snapshot with one more custom key
+    * */
+    public CinemaTicketsConfig with(String key, int value) {
+        Map<String, Integer> values = new HashMap<>(customValues);
+        values.put(key, value);
+        return new CinemaTicketsConfig(maxPurchaseTickets, maxChildrenWithAdult, maxChildrenWithAdultWithInfant, values);
+    }
+}
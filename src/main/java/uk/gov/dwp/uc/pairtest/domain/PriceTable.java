@@ -0,0 +1,55 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable price of every ticket type, indexed by {@link TicketTypeRequest.Type#ordinal()}.
+ * An order priced against one table can never mix prices from before and after a price change.
+ */
+public final class PriceTable implements TicketPriceLookupService {
+
+    private static final TicketTypeRequest.Type[] TYPES = TicketTypeRequest.Type.values();
+
+    private final int[] prices;
+    private final long loadedAtNanos;
+
+    private PriceTable(int[] prices, long loadedAtNanos) {
+        this.prices = prices;
+        this.loadedAtNanos = loadedAtNanos;
+    }
+
+    public static PriceTable from(TicketPriceLookupService ticketPriceLookupService) {
+        int[] prices = new int[TYPES.length];
+        for(TicketTypeRequest.Type type : TYPES) {
+            prices[type.ordinal()] = ticketPriceLookupService.priceFor(type);
+        }
+        return new PriceTable(prices, System.nanoTime());
+    }
+
+    public static PriceTable of(Map<TicketTypeRequest.Type, Integer> pricesByType) {
+        int[] prices = new int[TYPES.length];
+        for(TicketTypeRequest.Type type : TYPES) {
+            Integer price = pricesByType.get(type);
+            if(price == null) {
+                throw new IllegalArgumentException("No price for " + type);
+            }
+            prices[type.ordinal()] = price;
+        }
+        return new PriceTable(prices, System.nanoTime());
+    }
+
+    @Override
+    public int priceFor(TicketTypeRequest.Type type) {
+        return prices[type.ordinal()];
+    }
+
+    long loadedAtNanos() {
+        return loadedAtNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "PriceTable" + Arrays.toString(prices);
+    }
+}
@@ -0,0 +1,54 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+/**
+ * Outcome of a fail-fast purchase: accepted, or the first rule found broken.
+ * Rules added through configuration all report {@link #CONFIGURED_RULE}.
+ */
+public enum PurchaseCode {
+    ACCEPTED(null, "Purchase accepted"),
+    ACCOUNT_ID(PurchaseRule.ACCOUNT_ID, "Account Id should be greater than zero"),
+    REQUESTS_EXIST(PurchaseRule.REQUESTS_EXIST, "Requests array is null or empty"),
+    MAX_TICKETS(PurchaseRule.MAX_TICKETS, "Too many tickets in purchase"),
+    ADULT_PRESENT(PurchaseRule.ADULT_PRESENT, "Infants or Child only purchase not allowed"),
+    ENOUGH_ADULTS_FOR_INFANTS(PurchaseRule.ENOUGH_ADULTS_FOR_INFANTS, "Not enough adults for infants"),
+    ENOUGH_ADULTS_FOR_CHILDREN(PurchaseRule.ENOUGH_ADULTS_FOR_CHILDREN, "Not enough adults for children"),
+    ACCOUNT_WINDOW_CAP(PurchaseRule.ACCOUNT_WINDOW_CAP, "Too many tickets bought by account in purchase window"),
+    CONFIGURED_RULE(null, "Purchase does not meet a configured rule");
+
+    private static final PurchaseCode[] BY_RULE = new PurchaseCode[PurchaseRule.values().length];
+
+    static {
+        for(PurchaseCode code : values()) {
+            if(code.rule != null) {
+                BY_RULE[code.rule.ordinal()] = code;
+            }
+        }
+    }
+
+    private final PurchaseRule rule;
+    private final String message;
+
+    PurchaseCode(PurchaseRule rule, String message) {
+        this.rule = rule;
+        this.message = message;
+    }
+
+    public static PurchaseCode of(PurchaseRule rule) {
+        return rule == null ? CONFIGURED_RULE : BY_RULE[rule.ordinal()];
+    }
+
+    public boolean isAccepted() {
+        return this == ACCEPTED;
+    }
+
+    /*
+    * The broken rule, or null when accepted or for configured rules
+    * */
+    public PurchaseRule getRule() {
+        return rule;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
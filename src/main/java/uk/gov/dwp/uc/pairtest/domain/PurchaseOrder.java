@@ -0,0 +1,7 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+/**
+ * One account's order within a batch purchase.
+ */
+public record PurchaseOrder(Long accountId, TicketTypeRequest... ticketTypeRequests) {
+}
@@ -0,0 +1,34 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+/**
+ * Outcome of one order within a batch purchase.
+ * Rejected orders carry the same error message an {@code InvalidPurchaseException} would have,
+ * orders that passed the rules but could not be paid for or reserved carry the downstream failure's message.
+ */
+public record PurchaseResult(Long accountId, Outcome outcome, int totalAmountToPay, int totalSeatsToAllocate,
+                             String error) {
+
+    /**
+     * After a reservation failure the account has already paid.
+     */
+    public enum Outcome {
+        ACCEPTED, REJECTED, PAYMENT_FAILED, RESERVATION_FAILED
+    }
+
+    public static PurchaseResult accepted(Long accountId, int totalAmountToPay, int totalSeatsToAllocate) {
+        return new PurchaseResult(accountId, Outcome.ACCEPTED, totalAmountToPay, totalSeatsToAllocate, null);
+    }
+
+    public static PurchaseResult rejected(Long accountId, String error) {
+        return new PurchaseResult(accountId, Outcome.REJECTED, 0, 0, error);
+    }
+
+    public PurchaseResult failed(Outcome failure, RuntimeException cause) {
+        return new PurchaseResult(accountId, failure, totalAmountToPay, totalSeatsToAllocate,
+                String.valueOf(cause.getMessage()));
+    }
+
+    public boolean isAccepted() {
+        return outcome == Outcome.ACCEPTED;
+    }
+}
@@ -0,0 +1,14 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+/**
+ * The purchase validation rules, in the order they are evaluated.
+ */
+public enum PurchaseRule {
+    ACCOUNT_ID,
+    REQUESTS_EXIST,
+    MAX_TICKETS,
+    ADULT_PRESENT,
+    ENOUGH_ADULTS_FOR_INFANTS,
+    ENOUGH_ADULTS_FOR_CHILDREN,
+    ACCOUNT_WINDOW_CAP
+}
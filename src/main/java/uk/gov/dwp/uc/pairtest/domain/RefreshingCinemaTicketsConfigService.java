@@ -0,0 +1,108 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the limits of a slow, remote {@link CinemaTicketsConfigService} from an in-memory snapshot.
+ * Reads are a single volatile load. A background thread re-reads the source on a fixed interval and swaps in
+ * a new snapshot when it changed, keeping the last known good one whenever the source fails.
+ * A key other than the built-in limits, such as one a custom rule uses, is read from the source the first time it
+ * is asked for and is part of every snapshot from then on.
+ */
+public class RefreshingCinemaTicketsConfigService implements CinemaTicketsConfigService, AutoCloseable {
+
+    private final CinemaTicketsConfigService source;
+    private final ScheduledExecutorService refresher;
+
+    private volatile CinemaTicketsConfig snapshot;
+
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long lastSuccessfulRefreshMillis;
+    private volatile Exception lastFailure;
+
+    /*
+    * Loads the first snapshot synchronously, so a source that is down at start up fails construction
+    * */
+    public RefreshingCinemaTicketsConfigService(CinemaTicketsConfigService source, Duration refreshInterval) {
+        this.source = source;
+        this.snapshot = CinemaTicketsConfig.from(source);
+        this.lastSuccessfulRefreshMillis = System.currentTimeMillis();
+
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cinema-tickets-config-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = refreshInterval.toMillis();
+        refresher.scheduleWithFixedDelay(this::refresh, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int getIntConfig(String key) {
+        CinemaTicketsConfig current = snapshot;
+        return current.hasKey(key) ? current.getIntConfig(key) : track(key);
+    }
+
+    private synchronized int track(String key) {
+        if(!snapshot.hasKey(key)) {
+            snapshot = snapshot.with(key, source.getIntConfig(key));
+        }
+        return snapshot.getIntConfig(key);
+    }
+
+    public CinemaTicketsConfig snapshot() {
+        return snapshot;
+    }
+
+    /*
+    * Re-reads the source now, returns false when it failed and the last known good snapshot was kept
+    * */
+    public synchronized boolean refresh() {
+        refreshes.incrementAndGet();
+        CinemaTicketsConfig latest;
+        try {
+            latest = CinemaTicketsConfig.from(source, snapshot.customValues().keySet());
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            lastFailure = e;
+            return false;
+        }
+        if(!latest.equals(snapshot)) {
+            snapshot = latest;
+            changes.incrementAndGet();
+        }
+        lastSuccessfulRefreshMillis = System.currentTimeMillis();
+        return true;
+    }
+
+    public long getRefreshCount() {
+        return refreshes.get();
+    }
+
+    public long getChangeCount() {
+        return changes.get();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    public long getLastSuccessfulRefreshMillis() {
+        return lastSuccessfulRefreshMillis;
+    }
+
+    public Exception getLastFailure() {
+        return lastFailure;
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+}
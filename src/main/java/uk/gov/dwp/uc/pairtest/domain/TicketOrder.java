@@ -0,0 +1,147 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+/**
+ * Immutable Object
+ *
+ * Compact form of a whole order: the number of tickets of each type, with no per-line objects or arrays.
+ * A type with a non-zero count counts as one request. Orders converted with {@link #from} keep the original
+ * number of requests and which types were requested, so they validate exactly like the requests they came from.
+ */
+public final class TicketOrder {
+
+    public static final TicketOrder EMPTY = new TicketOrder(0, 0, 0, 0, 0);
+
+    private static final int ADULT_BIT = 1 << TicketTypeRequest.Type.ADULT.ordinal();
+    private static final int CHILD_BIT = 1 << TicketTypeRequest.Type.CHILD.ordinal();
+    private static final int INFANT_BIT = 1 << TicketTypeRequest.Type.INFANT.ordinal();
+
+    private static final int CACHED_COUNTS = 8;
+    private static final TicketOrder[] CACHE = new TicketOrder[CACHED_COUNTS * CACHED_COUNTS * CACHED_COUNTS];
+
+    static {
+        for(int adults = 0; adults < CACHED_COUNTS; adults++) {
+            for(int children = 0; children < CACHED_COUNTS; children++) {
+                for(int infants = 0; infants < CACHED_COUNTS; infants++) {
+                    CACHE[cacheIndex(adults, children, infants)] = create(adults, children, infants);
+                }
+            }
+        }
+    }
+
+    private final int adults;
+    private final int children;
+    private final int infants;
+    private final int noOfRequests;
+    private final int requestedTypes;
+
+    private TicketOrder(int adults, int children, int infants, int noOfRequests, int requestedTypes) {
+        this.adults = adults;
+        this.children = children;
+        this.infants = infants;
+        this.noOfRequests = noOfRequests;
+        this.requestedTypes = requestedTypes;
+    }
+
+    /*
+    * Orders of fewer than 8 tickets of each type are shared flyweights
+    * */
+    public static TicketOrder of(int adults, int children, int infants) {
+        if(adults >= 0 && adults < CACHED_COUNTS
+                && children >= 0 && children < CACHED_COUNTS
+                && infants >= 0 && infants < CACHED_COUNTS) {
+            return CACHE[cacheIndex(adults, children, infants)];
+        }
+        return create(adults, children, infants);
+    }
+
+    /*
+    * Always a new instance, which the JIT can scalar-replace when it does not escape
+    * */
+    public static TicketOrder from(TicketTypeRequest... ticketTypeRequests) {
+        if(ticketTypeRequests == null) {
+            return EMPTY;
+        }
+        int adults = 0, children = 0, infants = 0, requestedTypes = 0;
+        for(TicketTypeRequest request : ticketTypeRequests) {
+            switch (request.getTicketType()) {
+                case ADULT -> { adults += request.getNoOfTickets(); requestedTypes |= ADULT_BIT; }
+                case CHILD -> { children += request.getNoOfTickets(); requestedTypes |= CHILD_BIT; }
+                case INFANT -> { infants += request.getNoOfTickets(); requestedTypes |= INFANT_BIT; }
+            }
+        }
+        return new TicketOrder(adults, children, infants, ticketTypeRequests.length, requestedTypes);
+    }
+
+    private static TicketOrder create(int adults, int children, int infants) {
+        int requestedTypes = (adults != 0 ? ADULT_BIT : 0)
+                | (children != 0 ? CHILD_BIT : 0)
+                | (infants != 0 ? INFANT_BIT : 0);
+        return new TicketOrder(adults, children, infants, Integer.bitCount(requestedTypes), requestedTypes);
+    }
+
+    private static int cacheIndex(int adults, int children, int infants) {
+        return (adults * CACHED_COUNTS + children) * CACHED_COUNTS + infants;
+    }
+
+    public int getAdults() {
+        return adults;
+    }
+
+    public int getChildren() {
+        return children;
+    }
+
+    public int getInfants() {
+        return infants;
+    }
+
+    public int getNoOfRequests() {
+        return noOfRequests;
+    }
+
+    public int getTotalTickets() {
+        return adults + children + infants;
+    }
+
+    public boolean isAdultRequested() {
+        return (requestedTypes & ADULT_BIT) != 0;
+    }
+
+    public boolean isChildRequested() {
+        return (requestedTypes & CHILD_BIT) != 0;
+    }
+
+    public boolean isInfantRequested() {
+        return (requestedTypes & INFANT_BIT) != 0;
+    }
+
+    /*
+    * True when the order is one request per type with tickets and nothing else, as built by of()
+    * */
+    public boolean isOneRequestPerType() {
+        int typesWithTickets = (adults != 0 ? ADULT_BIT : 0)
+                | (children != 0 ? CHILD_BIT : 0)
+                | (infants != 0 ? INFANT_BIT : 0);
+        return requestedTypes == typesWithTickets && noOfRequests == Integer.bitCount(typesWithTickets);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TicketOrder other
+                && adults == other.adults
+                && children == other.children
+                && infants == other.infants
+                && noOfRequests == other.noOfRequests
+                && requestedTypes == other.requestedTypes;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((((adults * 31) + children) * 31 + infants) * 31 + noOfRequests) * 31 + requestedTypes;
+    }
+
+    @Override
+    public String toString() {
+        return "TicketOrder[adults=" + adults + ", children=" + children + ", infants=" + infants + "]";
+    }
+}
@@ -6,6 +6,17 @@ package uk.gov.dwp.uc.pairtest.domain;
 
 public class TicketTypeRequest {
 
+    private static final int CACHED_NO_OF_TICKETS = 26;
+    private static final TicketTypeRequest[][] CACHE = new TicketTypeRequest[Type.values().length][CACHED_NO_OF_TICKETS];
+
+    static {
+        for(Type type : Type.values()) {
+            for(int noOfTickets = 0; noOfTickets < CACHED_NO_OF_TICKETS; noOfTickets++) {
+                CACHE[type.ordinal()][noOfTickets] = new TicketTypeRequest(type, noOfTickets);
+            }
+        }
+    }
+
     private final int noOfTickets;
     private final Type type;
 
@@ -14,6 +25,16 @@ public class TicketTypeRequest {
         this.noOfTickets = noOfTickets;
     }
 
+    /*
+    * Shared instance for up to 25 tickets of a type
+    * */
+    public static TicketTypeRequest of(Type type, int noOfTickets) {
+        if(type != null && noOfTickets >= 0 && noOfTickets < CACHED_NO_OF_TICKETS) {
+            return CACHE[type.ordinal()][noOfTickets];
+        }
+        return new TicketTypeRequest(type, noOfTickets);
+    }
+
     public int getNoOfTickets() {
         return noOfTickets;
     }
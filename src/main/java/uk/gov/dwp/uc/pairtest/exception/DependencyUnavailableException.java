@@ -0,0 +1,15 @@
+package uk.gov.dwp.uc.pairtest.exception;
+
+/**
+ * Thrown instead of calling a third-party service that is failing, saturated or too slow to answer.
+ */
+public class DependencyUnavailableException extends RuntimeException {
+
+    public DependencyUnavailableException(String message) {
+        super(message);
+    }
+
+    public DependencyUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -5,4 +5,11 @@ public class InvalidPurchaseException extends RuntimeException {
     public InvalidPurchaseException(String message) {
         super(message);
     }
+
+    /*
+    * For shared, preallocated rejections: no stack trace and no suppressed exceptions
+    * */
+    protected InvalidPurchaseException(String message, boolean writableStackTrace) {
+        super(message, null, writableStackTrace, writableStackTrace);
+    }
 }
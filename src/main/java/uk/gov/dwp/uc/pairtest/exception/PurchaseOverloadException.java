@@ -0,0 +1,11 @@
+package uk.gov.dwp.uc.pairtest.exception;
+
+/**
+ * Thrown when a purchase is shed because the service is saturated, rather than because the order is invalid.
+ */
+public class PurchaseOverloadException extends InvalidPurchaseException {
+
+    public PurchaseOverloadException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,33 @@
+package uk.gov.dwp.uc.pairtest.exception;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseCode;
+
+/**
+ * Fail-fast rejection carrying the code of the first broken rule.
+ * One instance per code is created up front, without a stack trace, so throwing it costs no allocation.
+ */
+public class PurchaseRejectedException extends InvalidPurchaseException {
+
+    private static final PurchaseRejectedException[] BY_CODE = new PurchaseRejectedException[PurchaseCode.values().length];
+
+    static {
+        for(PurchaseCode code : PurchaseCode.values()) {
+            BY_CODE[code.ordinal()] = new PurchaseRejectedException(code);
+        }
+    }
+
+    private final PurchaseCode code;
+
+    private PurchaseRejectedException(PurchaseCode code) {
+        super(code.getMessage(), false);
+        this.code = code;
+    }
+
+    public static PurchaseRejectedException of(PurchaseCode code) {
+        return BY_CODE[code.ordinal()];
+    }
+
+    public PurchaseCode getCode() {
+        return code;
+    }
+}
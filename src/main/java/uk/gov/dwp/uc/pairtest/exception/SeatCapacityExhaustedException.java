@@ -0,0 +1,8 @@
+package uk.gov.dwp.uc.pairtest.exception;
+
+public class SeatCapacityExhaustedException extends RuntimeException {
+
+    public SeatCapacityExhaustedException(String message) {
+        super(message);
+    }
+}
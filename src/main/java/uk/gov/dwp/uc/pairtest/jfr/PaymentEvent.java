@@ -0,0 +1,47 @@
+package uk.gov.dwp.uc.pairtest.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One call to the payment provider, which may carry a batch of payments.
+ */
+@Name(PaymentEvent.NAME)
+@Label("Ticket Payment")
+@Description("A makePayment or makePayments call to the payment provider")
+@Category({"Cinema Tickets", "Dependency"})
+@StackTrace(false)
+@Threshold("10 ms")
+public final class PaymentEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "uk.gov.dwp.uc.pairtest.Payment";
+
+    @Label("Account Id")
+    @Description("The paying account, 0 for a batch of payments")
+    public long accountId;
+
+    @Label("Payments")
+    public int payments;
+
+    @Label("Amount")
+    public long amount;
+
+    @Label("Adults")
+    @Description("Adult tickets paid for, across the whole batch")
+    public int adults;
+
+    @Label("Children")
+    @Description("Child tickets paid for, across the whole batch")
+    public int children;
+
+    @Label("Infants")
+    @Description("Infant tickets on the orders paid for, across the whole batch")
+    public int infants;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,61 @@
+package uk.gov.dwp.uc.pairtest.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
+
+/**
+ * One purchase from validation to seat reservation, or to the point it was rejected or failed.
+ */
+@Name(PurchaseEvent.NAME)
+@Label("Ticket Purchase")
+@Description("A purchaseTickets call, from validation until the seats are reserved or the purchase stops")
+@Category({"Cinema Tickets", "Purchase"})
+@StackTrace(false)
+@Threshold("10 ms")
+public final class PurchaseEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "uk.gov.dwp.uc.pairtest.Purchase";
+
+    public static final String ACCEPTED = "ACCEPTED";
+    public static final String REJECTED = "REJECTED";
+    public static final String FAILED = "FAILED";
+
+    @Label("Account Id")
+    public long accountId;
+
+    @Label("Adults")
+    public int adults;
+
+    @Label("Children")
+    public int children;
+
+    @Label("Infants")
+    public int infants;
+
+    @Label("Outcome")
+    @Description("ACCEPTED, REJECTED by a purchase rule, or FAILED in payment or reservation")
+    public String outcome;
+
+    @Label("Total Price")
+    public int totalPrice;
+
+    /*
+    * Fills in and commits the event only when a recording wants it, so a disabled event costs a flag check
+    * */
+    public void record(Long accountId, TicketOrder order, String outcome, int totalPrice) {
+        if(shouldCommit()) {
+            this.accountId = accountId == null ? 0 : accountId;
+            this.adults = order.getAdults();
+            this.children = order.getChildren();
+            this.infants = order.getInfants();
+            this.outcome = outcome;
+            this.totalPrice = totalPrice;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package uk.gov.dwp.uc.pairtest.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import uk.gov.dwp.uc.pairtest.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads a flight recording offline and summarises the latency of each purchase stage, with GC pauses alongside
+ * so spikes can be told apart from collector stalls.
+ * Usage: {@code java -cp cinema-tickets.jar uk.gov.dwp.uc.pairtest.jfr.PurchaseRecordingAnalyzer purchases.jfr}
+ */
+public final class PurchaseRecordingAnalyzer {
+
+    private static final String GC_PAUSE = "jdk.GCPhasePause";
+
+    private static final Map<String, String> STAGES = stages();
+
+    private static final long NANOS_PER_MICRO = 1_000;
+
+    /**
+     * Latency per stage, in stage order, and the number of purchases per outcome.
+     */
+    public record Summary(Map<String, LatencyHistogram.Snapshot> stages, Map<String, Long> purchaseOutcomes) {
+    }
+
+    private PurchaseRecordingAnalyzer() {
+    }
+
+    private static Map<String, String> stages() {
+        Map<String, String> stages = new LinkedHashMap<>();
+        stages.put(PurchaseEvent.NAME, "purchase");
+        stages.put(ValidationEvent.NAME, "validation");
+        stages.put(PaymentEvent.NAME, "payment");
+        stages.put(ReservationEvent.NAME, "reservation");
+        stages.put(GC_PAUSE, "gc pause");
+        return stages;
+    }
+
+    public static Summary summarise(Path recording) throws IOException {
+        Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+        STAGES.values().forEach(stage -> histograms.put(stage, new LatencyHistogram()));
+        Map<String, Long> outcomes = new TreeMap<>();
+
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while(file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                String name = event.getEventType().getName();
+                String stage = STAGES.get(name);
+                if(stage == null) {
+                    continue;
+                }
+                histograms.get(stage).record(event.getDuration().toNanos());
+                if(name.equals(PurchaseEvent.NAME)) {
+                    outcomes.merge(event.getString("outcome"), 1L, Long::sum);
+                }
+            }
+        }
+
+        Map<String, LatencyHistogram.Snapshot> snapshots = new LinkedHashMap<>();
+        histograms.forEach((stage, histogram) -> snapshots.put(stage, histogram.snapshot()));
+        return new Summary(snapshots, outcomes);
+    }
+
+    public static void print(Summary summary, PrintStream out) {
+        out.printf("%-12s %10s %10s %10s %10s %10s %10s%n", "stage (us)", "count", "p50", "p90", "p99", "p99.9", "max");
+        summary.stages().forEach((stage, latency) -> out.printf("%-12s %10d %10d %10d %10d %10d %10d%n",
+                stage, latency.getCount(),
+                latency.valueAtPercentile(50) / NANOS_PER_MICRO,
+                latency.valueAtPercentile(90) / NANOS_PER_MICRO,
+                latency.valueAtPercentile(99) / NANOS_PER_MICRO,
+                latency.valueAtPercentile(99.9) / NANOS_PER_MICRO,
+                latency.getMaxValue() / NANOS_PER_MICRO));
+        summary.purchaseOutcomes().forEach((outcome, count) -> out.printf("%-12s %10d%n", outcome, count));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length != 1) {
+            System.err.println("Usage: PurchaseRecordingAnalyzer <recording.jfr>");
+            System.exit(1);
+        }
+        print(summarise(Path.of(args[0])), System.out);
+    }
+}
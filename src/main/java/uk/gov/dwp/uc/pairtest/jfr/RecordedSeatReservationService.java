@@ -0,0 +1,59 @@
+package uk.gov.dwp.uc.pairtest.jfr;
+
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.domain.BatchSeatReservationService;
+
+/**
+ * Emits a {@link ReservationEvent} for every call to the wrapped seat reservation provider, batch calls included.
+ */
+public final class RecordedSeatReservationService implements BatchSeatReservationService {
+
+    private final BatchSeatReservationService seatReservationService;
+
+    public RecordedSeatReservationService(SeatReservationService seatReservationService) {
+        this.seatReservationService = BatchSeatReservationService.of(seatReservationService);
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+        ReservationEvent event = new ReservationEvent();
+        event.begin();
+        boolean failed = true;
+        try {
+            seatReservationService.reserveSeat(accountId, totalSeatsToAllocate);
+            failed = false;
+        } finally {
+            record(event, accountId, 1, totalSeatsToAllocate, failed);
+        }
+    }
+
+    @Override
+    public RuntimeException[] reserveSeats(long[] accountIds, int[] totalSeatsToAllocate) {
+        ReservationEvent event = new ReservationEvent();
+        event.begin();
+        boolean failed = true;
+        try {
+            RuntimeException[] failures = seatReservationService.reserveSeats(accountIds, totalSeatsToAllocate);
+            failed = failures != null;
+            return failures;
+        } finally {
+            if(event.shouldCommit()) {
+                long seats = 0;
+                for(int seatsToAllocate : totalSeatsToAllocate) {
+                    seats += seatsToAllocate;
+                }
+                record(event, accountIds.length == 1 ? accountIds[0] : 0, accountIds.length, seats, failed);
+            }
+        }
+    }
+
+    private static void record(ReservationEvent event, long accountId, int reservations, long seats, boolean failed) {
+        if(event.shouldCommit()) {
+            event.accountId = accountId;
+            event.reservations = reservations;
+            event.seats = seats;
+            event.failed = failed;
+            event.commit();
+        }
+    }
+}
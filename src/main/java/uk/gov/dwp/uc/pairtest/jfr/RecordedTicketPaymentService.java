@@ -0,0 +1,88 @@
+package uk.gov.dwp.uc.pairtest.jfr;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import uk.gov.dwp.uc.pairtest.domain.BatchTicketPaymentService;
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
+
+/**
+ * Emits a {@link PaymentEvent} for every call to the wrapped payment provider, batch calls included.
+ * The provider only sees accounts and amounts, so the tickets paid for are recorded only when the caller passes
+ * the orders along.
+ */
+public final class RecordedTicketPaymentService implements BatchTicketPaymentService {
+
+    private final BatchTicketPaymentService ticketPaymentService;
+
+    public RecordedTicketPaymentService(TicketPaymentService ticketPaymentService) {
+        this.ticketPaymentService = BatchTicketPaymentService.of(ticketPaymentService);
+    }
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay) {
+        makePayment(accountId, totalAmountToPay, TicketOrder.EMPTY);
+    }
+
+    /*
+    * Same call, with the order being paid for so the event can show its tickets
+    * */
+    public void makePayment(long accountId, int totalAmountToPay, TicketOrder order) {
+        PaymentEvent event = new PaymentEvent();
+        event.begin();
+        boolean failed = true;
+        try {
+            ticketPaymentService.makePayment(accountId, totalAmountToPay);
+            failed = false;
+        } finally {
+            if(event.shouldCommit()) {
+                setTickets(event, order);
+                record(event, accountId, 1, totalAmountToPay, failed);
+            }
+        }
+    }
+
+    @Override
+    public RuntimeException[] makePayments(long[] accountIds, int[] totalAmountsToPay) {
+        return makePayments(accountIds, totalAmountsToPay, null);
+    }
+
+    /*
+    * Same call, with the orders being paid for, matching the accounts by position, or null when unknown
+    * */
+    public RuntimeException[] makePayments(long[] accountIds, int[] totalAmountsToPay, TicketOrder[] orders) {
+        PaymentEvent event = new PaymentEvent();
+        event.begin();
+        boolean failed = true;
+        try {
+            RuntimeException[] failures = ticketPaymentService.makePayments(accountIds, totalAmountsToPay);
+            failed = failures != null;
+            return failures;
+        } finally {
+            if(event.shouldCommit()) {
+                long amount = 0;
+                for(int totalAmountToPay : totalAmountsToPay) {
+                    amount += totalAmountToPay;
+                }
+                if(orders != null) {
+                    for(TicketOrder order : orders) {
+                        setTickets(event, order);
+                    }
+                }
+                record(event, accountIds.length == 1 ? accountIds[0] : 0, accountIds.length, amount, failed);
+            }
+        }
+    }
+
+    private static void setTickets(PaymentEvent event, TicketOrder order) {
+        event.adults += order.getAdults();
+        event.children += order.getChildren();
+        event.infants += order.getInfants();
+    }
+
+    private static void record(PaymentEvent event, long accountId, int payments, long amount, boolean failed) {
+        event.accountId = accountId;
+        event.payments = payments;
+        event.amount = amount;
+        event.failed = failed;
+        event.commit();
+    }
+}
@@ -0,0 +1,35 @@
+package uk.gov.dwp.uc.pairtest.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One call to the seat reservation provider, which may carry a batch of reservations.
+ */
+@Name(ReservationEvent.NAME)
+@Label("Seat Reservation")
+@Description("A reserveSeat or reserveSeats call to the seat reservation provider")
+@Category({"Cinema Tickets", "Dependency"})
+@StackTrace(false)
+@Threshold("10 ms")
+public final class ReservationEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "uk.gov.dwp.uc.pairtest.Reservation";
+
+    @Label("Account Id")
+    @Description("The account seated, 0 for a batch of reservations")
+    public long accountId;
+
+    @Label("Reservations")
+    public int reservations;
+
+    @Label("Seats")
+    public long seats;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,42 @@
+package uk.gov.dwp.uc.pairtest.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
+
+/**
+ * Checking one order against the purchase rules.
+ */
+@Name(ValidationEvent.NAME)
+@Label("Purchase Validation")
+@Description("Evaluating the purchase rules for one order")
+@Category({"Cinema Tickets", "Purchase"})
+@StackTrace(false)
+@Threshold("10 ms")
+public final class ValidationEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "uk.gov.dwp.uc.pairtest.Validation";
+
+    @Label("Account Id")
+    public long accountId;
+
+    @Label("Tickets")
+    public int tickets;
+
+    @Label("Outcome")
+    @Description("ACCEPTED or REJECTED, or for fail-fast purchases the code of the first broken rule")
+    public String outcome;
+
+    public void record(Long accountId, TicketOrder order, String outcome) {
+        if(shouldCommit()) {
+            this.accountId = accountId == null ? 0 : accountId;
+            this.tickets = order.getTotalTickets();
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+/**
+ * Layout of a journal record, 64 little-endian bytes:
+ * <pre>
+ *  0  long accountId
+ *  8  long epoch millis when written
+ * 16  int  total price
+ * 20  int  adults
+ * 24  int  children
+ * 28  int  infants
+ * 32  byte status
+ * 33  reserved, zero
+ * 60  int  CRC32C of bytes 0 to 59
+ * </pre>
+ * A record whose checksum does not match, including the zero-filled tail of a segment, marks the end of the journal.
+ */
+final class JournalFormat {
+
+    static final int RECORD_SIZE = 64;
+    static final int CHECKSUM_OFFSET = 60;
+    static final int STATUS_OFFSET = 32;
+    static final String SEGMENT_PREFIX = "purchases-";
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    private JournalFormat() {
+    }
+
+    static Path segmentPath(Path directory, long index) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    static ByteBuffer scratch() {
+        return ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static void encode(ByteBuffer scratch, CRC32C crc, long accountId, long timestamp, int totalPrice,
+                       int adults, int children, int infants, PurchaseStatus status) {
+        scratch.putLong(0, accountId)
+                .putLong(8, timestamp)
+                .putInt(16, totalPrice)
+                .putInt(20, adults)
+                .putInt(24, children)
+                .putInt(28, infants)
+                .put(STATUS_OFFSET, status.code())
+                .putInt(CHECKSUM_OFFSET, checksum(scratch, crc));
+    }
+
+    /*
+    * Checks a record copied into scratch
+    * */
+    static boolean isValid(ByteBuffer scratch, CRC32C crc) {
+        return PurchaseStatus.fromCode(scratch.get(STATUS_OFFSET)) != null
+                && scratch.getInt(CHECKSUM_OFFSET) == checksum(scratch, crc);
+    }
+
+    private static int checksum(ByteBuffer scratch, CRC32C crc) {
+        crc.reset();
+        crc.update(scratch.array(), 0, CHECKSUM_OFFSET);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,238 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * {@link PurchaseJournal} written to fixed-size memory-mapped segment files in one directory.
+ * Appends copy a {@link JournalFormat} record into the mapping under a short lock. Durability is group committed:
+ * the first thread to wait becomes the leader and forces every record written so far while later threads queue
+ * behind it, so one fsync covers all the purchases that finished while the previous one was running.
+ * Reopening a directory carries on after the last intact record.
+ */
+public class MappedPurchaseJournal implements PurchaseJournal, AutoCloseable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private final Path directory;
+    private final int segmentSize;
+
+    private final Object appendLock = new Object();
+    private final ByteBuffer scratch = JournalFormat.scratch();
+    private final CRC32C crc = new CRC32C();
+    private long position;
+    private boolean closed;
+
+    /*
+    * Swapped before the first write into a new segment and read after writtenPosition,
+    * so a leader that sees a position in a segment also sees that segment
+    * */
+    private volatile Segment segment;
+    private volatile long writtenPosition;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition flushed = flushLock.newCondition();
+    private boolean flushing;
+    private volatile long durablePosition;
+    private long failedFlushes;
+    private long failedUpTo;
+    private RuntimeException flushFailure;
+
+    private final LongAdder appends = new LongAdder();
+    private final LongAdder forces = new LongAdder();
+
+    private record Segment(long base, FileChannel channel, MappedByteBuffer buffer) {
+    }
+
+    public MappedPurchaseJournal(Path directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public MappedPurchaseJournal(Path directory, int segmentSize) {
+        if(segmentSize < JournalFormat.RECORD_SIZE || segmentSize % JournalFormat.RECORD_SIZE != 0) {
+            throw new IllegalArgumentException("Segment size should be a positive multiple of " + JournalFormat.RECORD_SIZE);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(directory);
+            long last = PurchaseJournalReader.segmentIndexes(directory).stream().mapToLong(Long::longValue).max().orElse(0);
+            segment = map(last);
+            int end = PurchaseJournalReader.validLength(segment.buffer());
+            clearTail(segment.buffer(), end);
+            position = segment.base() + end;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writtenPosition = position;
+        durablePosition = position;
+    }
+
+    @Override
+    public long append(long accountId, TicketOrder order, int totalPrice, PurchaseStatus status) {
+        long timestamp = System.currentTimeMillis();
+        synchronized (appendLock) {
+            if(closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            if(position - segment.base() == segmentSize) {
+                roll();
+            }
+            JournalFormat.encode(scratch, crc, accountId, timestamp, totalPrice,
+                    order.getAdults(), order.getChildren(), order.getInfants(), status);
+            segment.buffer().put((int) (position - segment.base()), scratch.array());
+            position += JournalFormat.RECORD_SIZE;
+            writtenPosition = position;
+            appends.increment();
+            return position;
+        }
+    }
+
+    @Override
+    public void awaitDurable(long position) {
+        if(durablePosition >= position) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            while(durablePosition < position) {
+                if(flushing) {
+                    /*
+                    * A flush that failed while this thread waited fails it too if it covered its position;
+                    * a later caller leads a fresh attempt instead
+                    * */
+                    long failuresBefore = failedFlushes;
+                    flushed.awaitUninterruptibly();
+                    if(failedFlushes != failuresBefore && position <= failedUpTo) {
+                        throw new IllegalStateException("Journal flush failed", flushFailure);
+                    }
+                } else {
+                    lead();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /*
+    * Forces everything written so far without holding the flush lock, so appends and new waiters carry on meanwhile.
+    * The durable position only moves once the force has succeeded
+    * */
+    private void lead() {
+        flushing = true;
+        flushLock.unlock();
+        long target = writtenPosition;
+        RuntimeException failure = null;
+        boolean forced = false;
+        try {
+            Segment current = segment;
+            long from = Math.max(durablePosition, current.base());
+            if(target > from) {
+                current.buffer().force((int) (from - current.base()), (int) (target - from));
+                forces.increment();
+            }
+            forced = true;
+        } catch (RuntimeException e) {
+            failure = e;
+        } finally {
+            flushLock.lock();
+            flushing = false;
+            if(forced) {
+                durablePosition = Math.max(durablePosition, target);
+            } else {
+                failedFlushes++;
+                failedUpTo = target;
+                flushFailure = failure;
+            }
+            flushed.signalAll();
+        }
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    /*
+    * Called under the append lock with the current segment full: waits out any leader, forces the whole
+    * segment so the durable position never points into a closed one, then maps the next
+    * */
+    private void roll() {
+        Segment full = segment;
+        flushLock.lock();
+        try {
+            while(flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            full.buffer().force();
+            forces.increment();
+            durablePosition = position;
+            flushed.signalAll();
+        } finally {
+            flushLock.unlock();
+        }
+        try {
+            full.channel().close();
+            segment = map(position / segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Segment map(long index) throws IOException {
+        FileChannel channel = FileChannel.open(JournalFormat.segmentPath(directory, index), CREATE, READ, WRITE);
+        return new Segment(index * segmentSize, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+    }
+
+    /*
+    * Pages can reach the disk out of order, so intact-looking records may sit after a torn one
+    * */
+    private static void clearTail(MappedByteBuffer buffer, int end) {
+        for(int i = end; i < buffer.capacity(); i += Long.BYTES) {
+            buffer.putLong(i, 0L);
+        }
+        buffer.force();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getAppendCount() {
+        return appends.sum();
+    }
+
+    public long getForceCount() {
+        return forces.sum();
+    }
+
+    @Override
+    public void close() {
+        synchronized (appendLock) {
+            if(closed) {
+                return;
+            }
+            awaitDurable(position);
+            closed = true;
+            try {
+                segment.channel().close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
+
+/**
+ * Local, append-only record of the side effects of each purchase.
+ * Appending only makes a record visible; {@link #awaitDurable(long)} blocks until everything up to a position
+ * returned by {@link #append} is on disk.
+ */
+public interface PurchaseJournal {
+
+    PurchaseJournal NONE = new PurchaseJournal() {
+        @Override
+        public long append(long accountId, TicketOrder order, int totalPrice, PurchaseStatus status) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long position) {
+        }
+    };
+
+    long append(long accountId, TicketOrder order, int totalPrice, PurchaseStatus status);
+
+    void awaitDurable(long position);
+}
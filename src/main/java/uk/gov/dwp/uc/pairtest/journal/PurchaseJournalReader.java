@@ -0,0 +1,91 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Sequential replay of a {@link MappedPurchaseJournal} directory, oldest segment first.
+ * Each segment is mapped read-only and walked record by record; nothing is allocated per record.
+ */
+public final class PurchaseJournalReader {
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        void onRecord(long accountId, long timestamp, int adults, int children, int infants,
+                      int totalPrice, PurchaseStatus status);
+    }
+
+    private PurchaseJournalReader() {
+    }
+
+    /*
+    * Returns the number of records handed to the handler
+    * */
+    public static long replay(Path directory, RecordHandler handler) {
+        long records = 0;
+        ByteBuffer scratch = JournalFormat.scratch();
+        CRC32C crc = new CRC32C();
+        try {
+            for(long index : segmentIndexes(directory)) {
+                try (FileChannel channel = FileChannel.open(JournalFormat.segmentPath(directory, index), READ)) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    for(int offset = 0; offset + JournalFormat.RECORD_SIZE <= buffer.capacity();
+                        offset += JournalFormat.RECORD_SIZE) {
+                        buffer.get(offset, scratch.array());
+                        if(!JournalFormat.isValid(scratch, crc)) {
+                            break;
+                        }
+                        handler.onRecord(scratch.getLong(0), scratch.getLong(8), scratch.getInt(20), scratch.getInt(24),
+                                scratch.getInt(28), scratch.getInt(16),
+                                PurchaseStatus.fromCode(scratch.get(JournalFormat.STATUS_OFFSET)));
+                        records++;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return records;
+    }
+
+    static List<Long> segmentIndexes(Path directory) throws IOException {
+        if(!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(JournalFormat::isSegment)
+                    .map(file -> file.getFileName().toString())
+                    .map(name -> Long.parseLong(name.substring(JournalFormat.SEGMENT_PREFIX.length(),
+                            name.length() - JournalFormat.SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /*
+    * Length of the run of intact records at the start of a segment
+    * */
+    static int validLength(ByteBuffer buffer) {
+        ByteBuffer scratch = JournalFormat.scratch();
+        CRC32C crc = new CRC32C();
+        int offset = 0;
+        while(offset + JournalFormat.RECORD_SIZE <= buffer.capacity()) {
+            buffer.get(offset, scratch.array());
+            if(!JournalFormat.isValid(scratch, crc)) {
+                break;
+            }
+            offset += JournalFormat.RECORD_SIZE;
+        }
+        return offset;
+    }
+}
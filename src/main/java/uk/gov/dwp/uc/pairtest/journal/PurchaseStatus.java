@@ -0,0 +1,20 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+/**
+ * What had happened to a purchase when its journal record was written.
+ * A {@link #PAID} record without a later {@link #COMPLETED} or {@link #RESERVATION_FAILED} record for the same
+ * account and amount is a payment whose seats were never confirmed.
+ */
+public enum PurchaseStatus {
+    PAID, COMPLETED, PAYMENT_FAILED, RESERVATION_FAILED;
+
+    private static final PurchaseStatus[] VALUES = values();
+
+    byte code() {
+        return (byte) (ordinal() + 1);
+    }
+
+    static PurchaseStatus fromCode(int code) {
+        return code < 1 || code > VALUES.length ? null : VALUES[code - 1];
+    }
+}
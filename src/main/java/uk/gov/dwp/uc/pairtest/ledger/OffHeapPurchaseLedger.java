@@ -0,0 +1,432 @@
+package uk.gov.dwp.uc.pairtest.ledger;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * {@link PurchaseLedger} kept outside the Java heap in an open-addressing hash table of 16-byte slots, the account id
+ * followed by one packed long:
+ * <pre>
+ * bits 63-30  epoch second the account's window started
+ * bits 29-20  adults, 19-10 children, 9-0 infants bought in that window
+ * </pre>
+ * Slots are updated by compare-and-set on the packed long, so recording for an account already in the table never
+ * takes a lock and millions of accounts cost the garbage collector nothing. A window starts with the first
+ * purchase after the previous one has run out, and a purchase is refused when the tickets already bought in the
+ * window plus its own would exceed the cap.
+ * An account's first purchase claims a slot under a lock, taking the first slot on its probe path that is empty or
+ * whose account's window has run out, so the table only needs room for the accounts buying within one window.
+ * Once every slot holds an open window, new accounts are let through uncapped and counted in {@link #overflows()}.
+ */
+public class OffHeapPurchaseLedger implements PurchaseLedger {
+
+    public static final int DEFAULT_CAPACITY = 1 << 22;
+    public static final int MAX_CAPACITY = 1 << 26;
+    public static final int MAX_TICKETS_PER_WINDOW = (1 << 10) - 1;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final int SLOT_SIZE = 2 * Long.BYTES;
+    private static final long EMPTY = 0;
+    private static final long RECLAIMING = -1;
+    private static final int NOT_FOUND = -1;
+
+    private static final int COUNT_BITS = 10;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final int ADULTS_SHIFT = 2 * COUNT_BITS;
+    private static final int CHILDREN_SHIFT = COUNT_BITS;
+    private static final int WINDOW_SHIFT = 3 * COUNT_BITS;
+
+    private static final int SNAPSHOT_MAGIC = 0x4C444752;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER_SIZE = 16;
+    private static final int SNAPSHOT_CHUNK = 4096 * SLOT_SIZE;
+
+    private final ByteBuffer table;
+    private final int capacity;
+    private final int mask;
+    private final int maxTicketsPerWindow;
+    private final long windowSeconds;
+    private final LongSupplier clockMillis;
+
+    private final ReentrantLock claimLock = new ReentrantLock();
+    private final LongAdder accounts = new LongAdder();
+    private final LongAdder reclaims = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    public OffHeapPurchaseLedger(int maxTicketsPerWindow, Duration window) {
+        this(DEFAULT_CAPACITY, maxTicketsPerWindow, window, System::currentTimeMillis);
+    }
+
+    /*
+    * The capacity is rounded up to a power of two and is the most accounts the table can hold
+    * */
+    public OffHeapPurchaseLedger(int capacity, int maxTicketsPerWindow, Duration window, LongSupplier clockMillis) {
+        if(capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity should be between 1 and " + MAX_CAPACITY);
+        }
+        if(maxTicketsPerWindow < 0 || maxTicketsPerWindow > MAX_TICKETS_PER_WINDOW) {
+            throw new IllegalArgumentException("Tickets per window should be between 0 and " + MAX_TICKETS_PER_WINDOW);
+        }
+        if(window.toSeconds() < 1) {
+            throw new IllegalArgumentException("Window should be at least one second");
+        }
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.maxTicketsPerWindow = maxTicketsPerWindow;
+        this.windowSeconds = window.toSeconds();
+        this.clockMillis = clockMillis;
+        this.table = ByteBuffer.allocateDirect(this.capacity * SLOT_SIZE + Long.BYTES)
+                .alignedSlice(Long.BYTES)
+                .order(ByteOrder.nativeOrder());
+    }
+
+    @Override
+    public boolean allows(long accountId, TicketOrder order) {
+        if(!isCapped(accountId, order)) {
+            return true;
+        }
+        int slot = find(accountId);
+        long value = slot == NOT_FOUND ? EMPTY : valueOf(slot, accountId);
+        return fits(inWindow(value, nowSeconds()) ? value : EMPTY, order);
+    }
+
+    @Override
+    public boolean tryRecord(long accountId, TicketOrder order) {
+        if(!isCapped(accountId, order)) {
+            return true;
+        }
+        int slot = claim(accountId);
+        if(slot == NOT_FOUND) {
+            overflows.increment();
+            return true;
+        }
+        long now = nowSeconds();
+        while(true) {
+            long current = valueOf(slot, accountId);
+            if(current == RECLAIMING) {
+                slot = claim(accountId);
+                if(slot == NOT_FOUND) {
+                    overflows.increment();
+                    return true;
+                }
+                continue;
+            }
+            long counted = inWindow(current, now) ? current : pack(now, 0, 0, 0);
+            if(!fits(counted, order)) {
+                return false;
+            }
+            long recorded = counted + pack(0, order.getAdults(), order.getChildren(), order.getInfants());
+            if(LONGS.compareAndSet(table, slot + Long.BYTES, current, recorded)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void release(long accountId, TicketOrder order) {
+        if(!isCapped(accountId, order)) {
+            return;
+        }
+        int slot = find(accountId);
+        if(slot == NOT_FOUND) {
+            return;
+        }
+        long now = nowSeconds();
+        while(true) {
+            long current = valueOf(slot, accountId);
+            if(!inWindow(current, now)) {
+                return;
+            }
+            long released = pack(windowStart(current),
+                    Math.max(0, adults(current) - order.getAdults()),
+                    Math.max(0, children(current) - order.getChildren()),
+                    Math.max(0, infants(current) - order.getInfants()));
+            if(LONGS.compareAndSet(table, slot + Long.BYTES, current, released)) {
+                return;
+            }
+        }
+    }
+
+    /*
+    * Tickets the account has bought in its current window
+    * */
+    public int ticketsInWindow(long accountId) {
+        int slot = accountId < 1 ? NOT_FOUND : find(accountId);
+        if(slot == NOT_FOUND) {
+            return 0;
+        }
+        long value = valueOf(slot, accountId);
+        return inWindow(value, nowSeconds()) ? total(value) : 0;
+    }
+
+    /*
+    * Slots holding an account, current or with a window that has run out but not yet been reclaimed
+    * */
+    public long accounts() {
+        return accounts.sum();
+    }
+
+    /*
+    * Slots handed from an account whose window had run out to a new one
+    * */
+    public long reclaims() {
+        return reclaims.sum();
+    }
+
+    /*
+    * Purchases let through uncapped because the table had no slot left for their account
+    * */
+    public long overflows() {
+        return overflows.sum();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /*
+    * Writes every account whose window is still open to the file, replacing it only once the whole snapshot is written.
+    * Purchases may carry on meanwhile; each account is copied as it stood at one instant
+    * */
+    public long snapshot(Path file) {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        long now = nowSeconds();
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(temporary, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            ByteBuffer chunk = ByteBuffer.allocate(SNAPSHOT_CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+            channel.position(SNAPSHOT_HEADER_SIZE);
+            for(int slot = 0; slot < capacity * SLOT_SIZE; slot += SLOT_SIZE) {
+                long accountId = (long) LONGS.getVolatile(table, slot);
+                long value = valueOf(slot, accountId);
+                if(accountId == EMPTY || !inWindow(value, now)) {
+                    continue;
+                }
+                if(!chunk.hasRemaining()) {
+                    writeFully(channel, chunk.flip());
+                    chunk.clear();
+                }
+                chunk.putLong(accountId).putLong(value);
+                written++;
+            }
+            writeFully(channel, chunk.flip());
+            channel.position(0);
+            writeFully(channel, ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putLong(written).flip());
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Files.move(temporary, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return written;
+    }
+
+    /*
+    * Loads the accounts of a snapshot whose windows are still open, returning how many; a missing file restores none
+    * */
+    public long restore(Path file) {
+        long now = nowSeconds();
+        long restored = 0;
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            ByteBuffer header = readFully(channel, ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+            if(header.getInt() != SNAPSHOT_MAGIC || header.getInt() != SNAPSHOT_VERSION) {
+                throw new IllegalArgumentException("Not a purchase ledger snapshot: " + file);
+            }
+            long entries = header.getLong();
+            ByteBuffer chunk = ByteBuffer.allocate(SNAPSHOT_CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+            for(long read = 0; read < entries; ) {
+                int count = (int) Math.min(entries - read, SNAPSHOT_CHUNK / SLOT_SIZE);
+                readFully(channel, chunk.clear().limit(count * SLOT_SIZE));
+                for(int i = 0; i < count; i++) {
+                    long accountId = chunk.getLong();
+                    long value = chunk.getLong();
+                    if(accountId > EMPTY && inWindow(value, now) && put(accountId, value)) {
+                        restored++;
+                    }
+                }
+                read += count;
+            }
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return restored;
+    }
+
+    private boolean put(long accountId, long value) {
+        int slot = claim(accountId);
+        if(slot == NOT_FOUND) {
+            overflows.increment();
+            return false;
+        }
+        LONGS.setVolatile(table, slot + Long.BYTES, value);
+        return true;
+    }
+
+    /*
+    * Linear probing from the account's hash: the slot holding the account, or NOT_FOUND at the first empty slot
+    * */
+    private int find(long accountId) {
+        for(int probe = 0, index = hash(accountId) & mask; probe < capacity; probe++, index = (index + 1) & mask) {
+            long key = (long) LONGS.getVolatile(table, index * SLOT_SIZE);
+            if(key == accountId) {
+                return index * SLOT_SIZE;
+            }
+            if(key == EMPTY) {
+                return NOT_FOUND;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /*
+    * As find, but when the account has no slot it is given the first one on its probe path that is empty or whose
+    * window has run out. Claims are serialised, so an account can never end up in two slots. A claimed slot starts
+    * with an empty window opened now. A reclaimed slot is fenced with RECLAIMING while its key changes, and as window
+    * starts only move forward it never again holds a value seen before, so a thread still updating the previous
+    * account fails its compare-and-set instead of writing into the new one
+    * */
+    private int claim(long accountId) {
+        int found = find(accountId);
+        if(found != NOT_FOUND) {
+            return found;
+        }
+        claimLock.lock();
+        try {
+            found = find(accountId);
+            if(found != NOT_FOUND) {
+                return found;
+            }
+            long now = nowSeconds();
+            for(int probe = 0, index = hash(accountId) & mask; probe < capacity; probe++, index = (index + 1) & mask) {
+                int slot = index * SLOT_SIZE;
+                if((long) LONGS.getVolatile(table, slot) == EMPTY) {
+                    LONGS.setVolatile(table, slot + Long.BYTES, pack(now, 0, 0, 0));
+                    LONGS.setVolatile(table, slot, accountId);
+                    accounts.increment();
+                    return slot;
+                }
+                long value = (long) LONGS.getVolatile(table, slot + Long.BYTES);
+                if(!inWindow(value, now) && LONGS.compareAndSet(table, slot + Long.BYTES, value, RECLAIMING)) {
+                    LONGS.setVolatile(table, slot, accountId);
+                    LONGS.setVolatile(table, slot + Long.BYTES, pack(now, 0, 0, 0));
+                    reclaims.increment();
+                    return slot;
+                }
+            }
+            return NOT_FOUND;
+        } finally {
+            claimLock.unlock();
+        }
+    }
+
+    /*
+    * The packed value of the account's slot, or RECLAIMING once the slot is being or has been handed to another
+    * account. The key is read after the value, and a reclaim writes the new key before the new value
+    * */
+    private long valueOf(int slot, long accountId) {
+        long value = (long) LONGS.getVolatile(table, slot + Long.BYTES);
+        return (long) LONGS.getVolatile(table, slot) == accountId ? value : RECLAIMING;
+    }
+
+    /*
+    * Each count is checked on its own before they are summed as longs, so no order can overflow the total
+    * or the bits it is packed into
+    * */
+    private boolean fits(long counted, TicketOrder order) {
+        int adults = order.getAdults();
+        int children = order.getChildren();
+        int infants = order.getInfants();
+        return adults <= maxTicketsPerWindow && children <= maxTicketsPerWindow && infants <= maxTicketsPerWindow
+                && (long) total(counted) + adults + children + infants <= maxTicketsPerWindow;
+    }
+
+    /*
+    * EMPTY and RECLAIMING are never in a window
+    * */
+    private boolean inWindow(long value, long now) {
+        return value > EMPTY && now - windowStart(value) < windowSeconds;
+    }
+
+    /*
+    * Account ids below one and orders with negative counts are rejected by the other rules before reaching here
+    * */
+    private static boolean isCapped(long accountId, TicketOrder order) {
+        return accountId > EMPTY && (order.getAdults() | order.getChildren() | order.getInfants()) >= 0;
+    }
+
+    private long nowSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(clockMillis.getAsLong());
+    }
+
+    private static long pack(long windowStart, long adults, long children, long infants) {
+        return windowStart << WINDOW_SHIFT | adults << ADULTS_SHIFT | children << CHILDREN_SHIFT | infants;
+    }
+
+    private static long windowStart(long value) {
+        return value >>> WINDOW_SHIFT;
+    }
+
+    private static int adults(long value) {
+        return (int) (value >>> ADULTS_SHIFT & COUNT_MASK);
+    }
+
+    private static int children(long value) {
+        return (int) (value >>> CHILDREN_SHIFT & COUNT_MASK);
+    }
+
+    private static int infants(long value) {
+        return (int) (value & COUNT_MASK);
+    }
+
+    private static int total(long value) {
+        return adults(value) + children(value) + infants(value);
+    }
+
+    private static int hash(long accountId) {
+        long h = accountId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ h >>> 32);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer) < 0) {
+                throw new IOException("Purchase ledger snapshot ends early");
+            }
+        }
+        return buffer.flip();
+    }
+}
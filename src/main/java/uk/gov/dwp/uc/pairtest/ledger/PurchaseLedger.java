@@ -0,0 +1,42 @@
+package uk.gov.dwp.uc.pairtest.ledger;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
+
+/**
+ * Tickets bought by each account over a window of time, so many small orders cannot add up to more than one large
+ * order would be allowed. Checking and recording an order is one step, so two purchases by the same account
+ * cannot both slip under the cap.
+ */
+public interface PurchaseLedger {
+
+    PurchaseLedger NONE = new PurchaseLedger() {
+        @Override
+        public boolean allows(long accountId, TicketOrder order) {
+            return true;
+        }
+
+        @Override
+        public boolean tryRecord(long accountId, TicketOrder order) {
+            return true;
+        }
+
+        @Override
+        public void release(long accountId, TicketOrder order) {
+        }
+    };
+
+    /*
+    * True when the account could buy the order now, recording nothing
+    * */
+    boolean allows(long accountId, TicketOrder order);
+
+    /*
+    * Records the order against the account if it stays within the cap, and says whether it did
+    * */
+    boolean tryRecord(long accountId, TicketOrder order);
+
+    /*
+    * Takes back an order recorded by tryRecord whose purchase then failed
+    * */
+    void release(long accountId, TicketOrder order);
+}
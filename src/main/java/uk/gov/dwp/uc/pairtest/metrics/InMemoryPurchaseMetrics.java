@@ -0,0 +1,65 @@
+package uk.gov.dwp.uc.pairtest.metrics;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseRule;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps every measurement in memory so tests and benchmarks can take a {@link #snapshot()}.
+ */
+public class InMemoryPurchaseMetrics implements PurchaseMetrics {
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final PurchaseRule[] RULES = PurchaseRule.values();
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[STAGES.length];
+    private final LongAdder[] rejections = new LongAdder[RULES.length];
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public InMemoryPurchaseMetrics() {
+        for(int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        for(int i = 0; i < rejections.length; i++) {
+            rejections[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void recordLatency(Stage stage, long nanos) {
+        latencies[stage.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void recordRejection(PurchaseRule rule) {
+        rejections[rule.ordinal()].increment();
+    }
+
+    @Override
+    public void recordOutcome(boolean accepted) {
+        (accepted ? this.accepted : this.rejected).increment();
+    }
+
+    public Snapshot snapshot() {
+        Map<Stage, LatencyHistogram.Snapshot> latencySnapshots = new EnumMap<>(Stage.class);
+        for(Stage stage : STAGES) {
+            latencySnapshots.put(stage, latencies[stage.ordinal()].snapshot());
+        }
+        Map<PurchaseRule, Long> rejectionCounts = new EnumMap<>(PurchaseRule.class);
+        for(PurchaseRule rule : RULES) {
+            rejectionCounts.put(rule, rejections[rule.ordinal()].sum());
+        }
+        return new Snapshot(accepted.sum(), rejected.sum(),
+                Collections.unmodifiableMap(latencySnapshots), Collections.unmodifiableMap(rejectionCounts));
+    }
+
+    public record Snapshot(long accepted,
+                           long rejected,
+                           Map<Stage, LatencyHistogram.Snapshot> latencies,
+                           Map<PurchaseRule, Long> rejections) {
+    }
+}
@@ -0,0 +1,99 @@
+package uk.gov.dwp.uc.pairtest.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram of nanosecond latencies.
+ * Values below 32 get a bucket each, larger values share buckets 1/16th of their power of two wide,
+ * so any recorded value is reported to within about 6%. Recording is one atomic increment.
+ */
+public final class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 32;
+    private static final int SUB_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int FIRST_LOG_MAGNITUDE = 5;
+    private static final int BUCKETS = LINEAR_BUCKETS + (Long.SIZE - 1 - FIRST_LOG_MAGNITUDE) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketOf(Math.max(nanos, 0)));
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for(int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy);
+    }
+
+    static int bucketOf(long value) {
+        if(value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return LINEAR_BUCKETS + (magnitude - FIRST_LOG_MAGNITUDE) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValueIn(int bucket) {
+        if(bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int offset = bucket - LINEAR_BUCKETS;
+        int magnitude = offset / SUB_BUCKETS + FIRST_LOG_MAGNITUDE;
+        long top = offset % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << (magnitude - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Point in time copy of the bucket counts.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long totalCount;
+
+        private Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            for(long count : counts) {
+                total += count;
+            }
+            this.totalCount = total;
+        }
+
+        public long getCount() {
+            return totalCount;
+        }
+
+        /*
+        * Upper bound of the bucket holding the given percentile, 0 when nothing was recorded
+        * */
+        public long valueAtPercentile(double percentile) {
+            if(totalCount == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+            long seen = 0;
+            for(int bucket = 0; bucket < counts.length; bucket++) {
+                seen += counts[bucket];
+                if(seen >= rank) {
+                    return highestValueIn(bucket);
+                }
+            }
+            return highestValueIn(counts.length - 1);
+        }
+
+        public long getMaxValue() {
+            for(int bucket = counts.length - 1; bucket >= 0; bucket--) {
+                if(counts[bucket] > 0) {
+                    return highestValueIn(bucket);
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package uk.gov.dwp.uc.pairtest.metrics;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseRule;
+
+/**
+ * Sink for the measurements taken inside the purchase pipeline.
+ * Every method defaults to doing nothing, and services skip taking timestamps altogether when given {@link #NONE}.
+ */
+public interface PurchaseMetrics {
+
+    PurchaseMetrics NONE = new PurchaseMetrics() {};
+
+    enum Stage {
+        VALIDATION, PRICING, PAYMENT, RESERVATION
+    }
+
+    default void recordLatency(Stage stage, long nanos) {
+    }
+
+    default void recordRejection(PurchaseRule rule) {
+    }
+
+    default void recordOutcome(boolean accepted) {
+    }
+}
@@ -0,0 +1,48 @@
+package uk.gov.dwp.uc.pairtest.replay;
+
+import uk.gov.dwp.uc.pairtest.exception.DependencyUnavailableException;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Latency and failures injected into a stand-in third-party service: each call takes the base latency plus a
+ * uniformly random share of the jitter, and fails with a {@link DependencyUnavailableException} at the error rate.
+ * Short waits are spun so they stay accurate, longer ones park the calling thread, which frees a virtual thread's carrier.
+ */
+public record SimulatedDependency(Duration latency, Duration jitter, double errorRate) {
+
+    public static final SimulatedDependency INSTANT = new SimulatedDependency(Duration.ZERO, Duration.ZERO, 0);
+
+    private static final long SPIN_LIMIT_NANOS = 50_000L;
+
+    public SimulatedDependency {
+        if(latency.isNegative() || jitter.isNegative() || errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("Latency and jitter should not be negative, error rate should be between 0 and 1");
+        }
+    }
+
+    void call(String name) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long jitterNanos = jitter.toNanos();
+        pause(latency.toNanos() + (jitterNanos == 0 ? 0 : random.nextLong(jitterNanos + 1)));
+        if(errorRate > 0 && random.nextDouble() < errorRate) {
+            throw new DependencyUnavailableException("Simulated " + name + " failure");
+        }
+    }
+
+    private static void pause(long latencyNanos) {
+        if(latencyNanos <= 0) {
+            return;
+        }
+        if(latencyNanos > SPIN_LIMIT_NANOS) {
+            LockSupport.parkNanos(latencyNanos);
+            return;
+        }
+        long deadline = System.nanoTime() + latencyNanos;
+        while(System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package uk.gov.dwp.uc.pairtest.replay;
+
+import thirdparty.seatbooking.SeatReservationService;
+
+/**
+ * Seat booking stand-in for local replays, reserving nothing but behaving as slowly and unreliably as configured.
+ */
+public class SimulatedSeatReservationService implements SeatReservationService {
+
+    private final SimulatedDependency simulation;
+
+    public SimulatedSeatReservationService(SimulatedDependency simulation) {
+        this.simulation = simulation;
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+        simulation.call("reservation");
+    }
+}
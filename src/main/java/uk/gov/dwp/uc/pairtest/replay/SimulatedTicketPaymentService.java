@@ -0,0 +1,20 @@
+package uk.gov.dwp.uc.pairtest.replay;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+
+/**
+ * Payment stand-in for local replays, taking no payment but behaving as slowly and unreliably as configured.
+ */
+public class SimulatedTicketPaymentService implements TicketPaymentService {
+
+    private final SimulatedDependency simulation;
+
+    public SimulatedTicketPaymentService(SimulatedDependency simulation) {
+        this.simulation = simulation;
+    }
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay) {
+        simulation.call("payment");
+    }
+}
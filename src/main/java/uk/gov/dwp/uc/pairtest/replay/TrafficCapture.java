@@ -0,0 +1,213 @@
+package uk.gov.dwp.uc.pairtest.replay;
+
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Records the shape of the traffic reaching a {@link TicketService}: when each purchase arrived, for which account
+ * and with which request lines, in the compact {@link TrafficFormat}, so it can be replayed later with
+ * {@link TrafficReplayer}. Arrivals are stamped without a lock and handed to a background writer through a bounded
+ * lock-free ring, so purchases never wait for each other or for the disk; when the ring is full the record is dropped
+ * and counted instead. Arrivals that reach the ring out of order are written as simultaneous.
+ * Capturing never fails a purchase: if the file cannot be written, capturing stops and purchases carry on.
+ */
+public class TrafficCapture implements TicketService, AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int DEFAULT_RING_CAPACITY = 1 << 16;
+    private static final long WRITER_IDLE_NANOS = 1_000_000L;
+
+    private record Arrival(long nanos, Long accountId, TicketTypeRequest[] ticketTypeRequests) {
+    }
+
+    private final TicketService ticketService;
+    private final LongSupplier nanoClock;
+
+    private final AtomicReferenceArray<Arrival> ring;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    private final DataOutputStream out;
+    private final Thread writer;
+    private volatile long flushedUpTo;
+    private volatile boolean closing;
+    private volatile boolean stopped;
+    private IOException closeFailure;
+
+    public TrafficCapture(TicketService ticketService, Path file) {
+        this(ticketService, file, System::nanoTime, System.currentTimeMillis());
+    }
+
+    public TrafficCapture(TicketService ticketService, Path file, LongSupplier nanoClock, long startEpochMillis) {
+        this(ticketService, file, nanoClock, startEpochMillis, DEFAULT_RING_CAPACITY);
+    }
+
+    /*
+    * The ring capacity is rounded up to a power of two
+    * */
+    public TrafficCapture(TicketService ticketService, Path file, LongSupplier nanoClock, long startEpochMillis,
+                          int ringCapacity) {
+        if(ringCapacity < 1 || ringCapacity > 1 << 30) {
+            throw new IllegalArgumentException("Ring capacity should be between 1 and " + (1 << 30));
+        }
+        this.ticketService = ticketService;
+        this.nanoClock = nanoClock;
+        int capacity = Integer.highestOneBit(ringCapacity * 2 - 1);
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        try {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+            TrafficFormat.writeHeader(out, startEpochMillis);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long startNanos = nanoClock.getAsLong();
+        this.writer = Thread.ofPlatform()
+                .name("traffic-capture-writer")
+                .daemon(true)
+                .start(() -> write(startNanos));
+    }
+
+    @Override
+    public void purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
+        capture(accountId, ticketTypeRequests);
+        ticketService.purchaseTickets(accountId, ticketTypeRequests);
+    }
+
+    /*
+    * Purchases handed to the writer, whether or not it has written them yet
+    * */
+    public long getCapturedCount() {
+        return tail.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /*
+    * Waits until everything captured so far is on its way to the file
+    * */
+    public void flush() {
+        long target = tail.get();
+        while(flushedUpTo < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(WRITER_IDLE_NANOS);
+        }
+    }
+
+    /*
+    * Writes out everything captured before closing; a purchase arriving while it closes may be left out
+    * */
+    @Override
+    public void close() {
+        closing = true;
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while(true) {
+            try {
+                writer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if(closeFailure != null) {
+            throw new UncheckedIOException(closeFailure);
+        }
+    }
+
+    /*
+    * Claims a ring slot only while there is room, then publishes the record into it
+    * */
+    private void capture(Long accountId, TicketTypeRequest[] ticketTypeRequests) {
+        if(stopped || closing) {
+            return;
+        }
+        Arrival arrival = new Arrival(nanoClock.getAsLong(), accountId,
+                ticketTypeRequests == null ? null : ticketTypeRequests.clone());
+        long slot;
+        do {
+            slot = tail.get();
+            if(slot - head.get() > mask) {
+                dropped.increment();
+                return;
+            }
+        } while(!tail.compareAndSet(slot, slot + 1));
+        ring.lazySet((int) (slot & mask), arrival);
+    }
+
+    /*
+    * The only reader of the ring and the only user of the stream. Flushes whenever it catches up, and on closing
+    * drains whatever was captured before closing the file
+    * */
+    private void write(long startNanos) {
+        long previousArrivalNanos = startNanos;
+        long next = 0;
+        while(true) {
+            int index = (int) (next & mask);
+            Arrival arrival = ring.get(index);
+            if(arrival != null) {
+                ring.lazySet(index, null);
+                head.lazySet(++next);
+                if(!stopped) {
+                    try {
+                        TrafficFormat.writePurchase(out, Math.max(0, arrival.nanos() - previousArrivalNanos),
+                                arrival.accountId(), arrival.ticketTypeRequests());
+                        previousArrivalNanos = Math.max(previousArrivalNanos, arrival.nanos());
+                    } catch (IOException e) {
+                        stopped = true;
+                    }
+                }
+                continue;
+            }
+            if(next < tail.get()) {
+                Thread.onSpinWait();
+                continue;
+            }
+            flushOut(next);
+            if(closing && next == tail.get()) {
+                break;
+            }
+            LockSupport.parkNanos(WRITER_IDLE_NANOS);
+        }
+        stopped = true;
+        try {
+            out.close();
+        } catch (IOException e) {
+            closeFailure = e;
+        }
+    }
+
+    private void flushOut(long written) {
+        if(flushedUpTo == written) {
+            return;
+        }
+        if(!stopped) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                stopped = true;
+            }
+        }
+        flushedUpTo = written;
+    }
+}
@@ -0,0 +1,121 @@
+package uk.gov.dwp.uc.pairtest.replay;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Layout of a traffic capture: a big-endian header of magic, version and the epoch millis the capture started,
+ * then one variable-length record per purchase:
+ * <pre>
+ * varint  nanos since the previous purchase arrived, or since the capture started for the first
+ * varint  zigzag account id, Long.MIN_VALUE standing for a null account
+ * varint  number of request lines plus one, zero for a null array
+ * per line: byte type ordinal, NULL_TYPE for a null type or NULL_REQUEST for a null line, then varint zigzag tickets
+ * </pre>
+ * A typical purchase takes ten to fifteen bytes. A record cut short at the end of the file, as left by a crash, is ignored.
+ */
+final class TrafficFormat {
+
+    static final int MAGIC = 0x54524643;
+    static final int VERSION = 1;
+
+    private static final long NULL_ACCOUNT = Long.MIN_VALUE;
+    private static final int NULL_TYPE = 0x7F;
+    private static final int NULL_REQUEST = 0xFF;
+    private static final TicketTypeRequest.Type[] TYPES = TicketTypeRequest.Type.values();
+
+    private TrafficFormat() {
+    }
+
+    static void writeHeader(DataOutput out, long startEpochMillis) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(startEpochMillis);
+    }
+
+    /*
+    * Checks the magic and version and returns the epoch millis the capture started
+    * */
+    static long readHeader(DataInput in) throws IOException {
+        if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a traffic capture");
+        }
+        return in.readLong();
+    }
+
+    static void writePurchase(DataOutput out, long sincePreviousNanos, Long accountId,
+                              TicketTypeRequest[] ticketTypeRequests) throws IOException {
+        writeVarLong(out, sincePreviousNanos);
+        writeVarLong(out, zigzag(accountId == null ? NULL_ACCOUNT : accountId));
+        if(ticketTypeRequests == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        writeVarLong(out, ticketTypeRequests.length + 1L);
+        for(TicketTypeRequest request : ticketTypeRequests) {
+            if(request == null) {
+                out.writeByte(NULL_REQUEST);
+                continue;
+            }
+            out.writeByte(request.getTicketType() == null ? NULL_TYPE : request.getTicketType().ordinal());
+            writeVarLong(out, zigzag(request.getNoOfTickets()));
+        }
+    }
+
+    static long readSincePrevious(DataInput in) throws IOException {
+        return readVarLong(in);
+    }
+
+    static Long readAccountId(DataInput in) throws IOException {
+        long accountId = unzigzag(readVarLong(in));
+        return accountId == NULL_ACCOUNT ? null : accountId;
+    }
+
+    static TicketTypeRequest[] readRequests(DataInput in) throws IOException {
+        long lines = readVarLong(in);
+        if(lines == 0) {
+            return null;
+        }
+        TicketTypeRequest[] requests = new TicketTypeRequest[(int) (lines - 1)];
+        for(int i = 0; i < requests.length; i++) {
+            int type = in.readUnsignedByte();
+            if(type == NULL_REQUEST) {
+                continue;
+            }
+            int noOfTickets = (int) unzigzag(readVarLong(in));
+            requests[i] = TicketTypeRequest.of(type == NULL_TYPE ? null : TYPES[type], noOfTickets);
+        }
+        return requests;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for(int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in traffic capture");
+    }
+}
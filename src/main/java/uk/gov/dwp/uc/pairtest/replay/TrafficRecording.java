@@ -0,0 +1,71 @@
+package uk.gov.dwp.uc.pairtest.replay;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The purchases of a {@link TrafficCapture} read back into memory, each with its arrival time relative to the start
+ * of the capture.
+ */
+public final class TrafficRecording {
+
+    /*
+    * Arrival is nanos since the capture started
+    * */
+    public record Purchase(long arrivalNanos, Long accountId, TicketTypeRequest[] ticketTypeRequests) {
+    }
+
+    private final long startEpochMillis;
+    private final List<Purchase> purchases;
+
+    private TrafficRecording(long startEpochMillis, List<Purchase> purchases) {
+        this.startEpochMillis = startEpochMillis;
+        this.purchases = purchases;
+    }
+
+    public static TrafficRecording read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            long startEpochMillis = TrafficFormat.readHeader(in);
+            List<Purchase> purchases = new ArrayList<>();
+            long arrivalNanos = 0;
+            while(true) {
+                long sincePrevious;
+                try {
+                    sincePrevious = TrafficFormat.readSincePrevious(in);
+                } catch (EOFException end) {
+                    break;
+                }
+                try {
+                    arrivalNanos += sincePrevious;
+                    purchases.add(new Purchase(arrivalNanos, TrafficFormat.readAccountId(in), TrafficFormat.readRequests(in)));
+                } catch (EOFException truncated) {
+                    break;
+                }
+            }
+            return new TrafficRecording(startEpochMillis, List.copyOf(purchases));
+        }
+    }
+
+    public long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    public List<Purchase> getPurchases() {
+        return purchases;
+    }
+
+    /*
+    * Time from the start of the capture to the last arrival
+    * */
+    public long getDurationNanos() {
+        return purchases.isEmpty() ? 0 : purchases.get(purchases.size() - 1).arrivalNanos();
+    }
+}
@@ -0,0 +1,151 @@
+package uk.gov.dwp.uc.pairtest.replay;
+
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService;
+import uk.gov.dwp.uc.pairtest.domain.PriceTable;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
+
+/**
+ * Replays a {@link TrafficRecording} against a {@link TicketService} open loop: each purchase is sent at its captured
+ * arrival time, divided by the speed-up, on its own virtual thread, whether or not earlier ones have finished.
+ * A slow service therefore builds a queue, as it would in production, instead of slowing the load down.
+ * Response time is measured from when each purchase was due to be sent, not from when it was, which corrects for
+ * coordinated omission without the synthetic samples HdrHistogram back-fills when only an expected interval is known;
+ * service time, from the actual send, is reported alongside so the two can be compared.
+ * Usage: {@code java -cp cinema-tickets.jar uk.gov.dwp.uc.pairtest.replay.TrafficReplayer capture.bin
+ * [speed] [paymentLatencyMicros] [reservationLatencyMicros] [errorRate]}
+ */
+public final class TrafficReplayer {
+
+    private static final long SPIN_LIMIT_NANOS = 100_000L;
+    private static final long NANOS_PER_MICRO = 1_000;
+
+    /**
+     * Outcome counts, both latencies, and how late the scheduler itself sent the latest purchase.
+     */
+    public record Report(long purchases, long accepted, long rejected, long failed, long elapsedNanos,
+                         LatencyHistogram.Snapshot responseTime, LatencyHistogram.Snapshot serviceTime,
+                         long maxSendLagNanos) {
+
+        public double throughputPerSecond() {
+            return elapsedNanos == 0 ? 0 : purchases * 1e9 / elapsedNanos;
+        }
+    }
+
+    private TrafficReplayer() {
+    }
+
+    public static Report replay(TrafficRecording recording, TicketService ticketService, double speed) {
+        if(speed <= 0) {
+            throw new IllegalArgumentException("Speed should be greater than zero");
+        }
+        LatencyHistogram responseTime = new LatencyHistogram();
+        LatencyHistogram serviceTime = new LatencyHistogram();
+        LongAdder accepted = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        LongAdder failed = new LongAdder();
+        long maxSendLag = 0;
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for(TrafficRecording.Purchase purchase : recording.getPurchases()) {
+                long due = start + (long) (purchase.arrivalNanos() / speed);
+                waitUntil(due);
+                maxSendLag = Math.max(maxSendLag, System.nanoTime() - due);
+                executor.execute(() -> {
+                    long sent = System.nanoTime();
+                    try {
+                        ticketService.purchaseTickets(purchase.accountId(), purchase.ticketTypeRequests());
+                        accepted.increment();
+                    } catch (InvalidPurchaseException e) {
+                        rejected.increment();
+                    } catch (RuntimeException e) {
+                        failed.increment();
+                    } finally {
+                        long finished = System.nanoTime();
+                        responseTime.record(finished - due);
+                        serviceTime.record(finished - sent);
+                    }
+                });
+            }
+        }
+        return new Report(recording.getPurchases().size(), accepted.sum(), rejected.sum(), failed.sum(),
+                System.nanoTime() - start, responseTime.snapshot(), serviceTime.snapshot(), maxSendLag);
+    }
+
+    /*
+    * Parks until shortly before the deadline and spins the rest, so purchases are sent to within microseconds
+    * */
+    private static void waitUntil(long deadline) {
+        for(long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+            if(remaining > SPIN_LIMIT_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_LIMIT_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    public static void print(Report report, PrintStream out) {
+        out.printf("%,d purchases (%,d accepted, %,d rejected, %,d failed) in %,d ms: %,.0f purchases/s, send lag max %,d us%n",
+                report.purchases(), report.accepted(), report.rejected(), report.failed(),
+                report.elapsedNanos() / 1_000_000, report.throughputPerSecond(), report.maxSendLagNanos() / NANOS_PER_MICRO);
+        out.printf("%-14s %10s %10s %10s %10s %10s%n", "latency (us)", "p50", "p90", "p99", "p99.9", "max");
+        printLatency(out, "response", report.responseTime());
+        printLatency(out, "service", report.serviceTime());
+    }
+
+    private static void printLatency(PrintStream out, String name, LatencyHistogram.Snapshot latency) {
+        out.printf("%-14s %10d %10d %10d %10d %10d%n", name,
+                latency.valueAtPercentile(50) / NANOS_PER_MICRO,
+                latency.valueAtPercentile(90) / NANOS_PER_MICRO,
+                latency.valueAtPercentile(99) / NANOS_PER_MICRO,
+                latency.valueAtPercentile(99.9) / NANOS_PER_MICRO,
+                latency.getMaxValue() / NANOS_PER_MICRO);
+    }
+
+    /*
+    * Replays against a TicketServiceImpl with the default limits and prices and stand-in third-party services
+    * */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1 || args.length > 5) {
+            System.err.println("Usage: TrafficReplayer <capture> [speed] [paymentLatencyMicros] [reservationLatencyMicros] [errorRate]");
+            System.exit(1);
+        }
+        double speed = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+        Duration paymentLatency = Duration.ofNanos(args.length > 2 ? Long.parseLong(args[2]) * NANOS_PER_MICRO : 0);
+        Duration reservationLatency = Duration.ofNanos(args.length > 3 ? Long.parseLong(args[3]) * NANOS_PER_MICRO : 0);
+        double errorRate = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+
+        CinemaTicketsConfigService config = Map.of(
+                KEY_MAX_PURCHASE_TICKETS, 25,
+                KEY_MAX_CHILDREN_WITH_ADULT, 7,
+                KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT, 3)::get;
+        TicketService ticketService = new TicketServiceImpl(
+                new SimulatedTicketPaymentService(new SimulatedDependency(paymentLatency, Duration.ZERO, errorRate)),
+                new SimulatedSeatReservationService(new SimulatedDependency(reservationLatency, Duration.ZERO, errorRate)),
+                PriceTable.of(Map.of(ADULT, 25, CHILD, 15, INFANT, 0)),
+                config);
+
+        print(replay(TrafficRecording.read(Path.of(args[0])), ticketService, speed), System.out);
+    }
+}
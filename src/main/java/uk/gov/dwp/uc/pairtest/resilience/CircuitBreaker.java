@@ -0,0 +1,115 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+/**
+ * Count based sliding-window circuit breaker.
+ * Checking for permission is a volatile read while the circuit is closed; recording outcomes and changing
+ * state happen under the breaker's monitor, so state listeners should be quick.
+ */
+final class CircuitBreaker {
+
+    private final ResilienceConfig config;
+    private final long openNanos;
+    private final CircuitStateListener listener;
+
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+
+    private volatile CircuitState state = CircuitState.CLOSED;
+    private long openUntilNanos;
+    private int trialCallsIssued;
+    private int trialCallsSucceeded;
+
+    CircuitBreaker(ResilienceConfig config, CircuitStateListener listener) {
+        this.config = config;
+        this.openNanos = config.openDuration().toNanos();
+        this.listener = listener;
+        this.failed = new boolean[config.slidingWindowSize()];
+        this.slow = new boolean[config.slidingWindowSize()];
+    }
+
+    CircuitState getState() {
+        return state;
+    }
+
+    boolean tryAcquirePermission(long now) {
+        if(state == CircuitState.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            if(state == CircuitState.OPEN && now - openUntilNanos >= 0) {
+                transitionTo(CircuitState.HALF_OPEN, now);
+            }
+            if(state == CircuitState.HALF_OPEN && trialCallsIssued < config.halfOpenCalls()) {
+                trialCallsIssued++;
+                return true;
+            }
+            return state == CircuitState.CLOSED;
+        }
+    }
+
+    /*
+    * Hands back a permission that was granted but never used for a call
+    * */
+    synchronized void releasePermission() {
+        if(state == CircuitState.HALF_OPEN && trialCallsIssued > 0) {
+            trialCallsIssued--;
+        }
+    }
+
+    synchronized void onResult(boolean callFailed, boolean callSlow, long now) {
+        switch (state) {
+            case HALF_OPEN -> {
+                if(callFailed || callSlow) {
+                    transitionTo(CircuitState.OPEN, now);
+                } else if(++trialCallsSucceeded == config.halfOpenCalls()) {
+                    transitionTo(CircuitState.CLOSED, now);
+                }
+            }
+            case CLOSED -> {
+                record(callFailed, callSlow);
+                if(recorded >= config.minimumCalls()
+                        && ((double) failures / recorded >= config.failureRateThreshold()
+                        || (double) slowCalls / recorded >= config.slowCallRateThreshold())) {
+                    transitionTo(CircuitState.OPEN, now);
+                }
+            }
+            case OPEN -> {
+                // outcome of a call let through before the circuit opened
+            }
+        }
+    }
+
+    private void record(boolean callFailed, boolean callSlow) {
+        if(recorded == failed.length) {
+            failures -= failed[next] ? 1 : 0;
+            slowCalls -= slow[next] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        failed[next] = callFailed;
+        slow[next] = callSlow;
+        failures += callFailed ? 1 : 0;
+        slowCalls += callSlow ? 1 : 0;
+        next = (next + 1) % failed.length;
+    }
+
+    private void transitionTo(CircuitState to, long now) {
+        CircuitState from = state;
+        if(to == CircuitState.OPEN) {
+            openUntilNanos = now + openNanos;
+        }
+        if(to == CircuitState.HALF_OPEN) {
+            trialCallsIssued = 0;
+            trialCallsSucceeded = 0;
+        }
+        if(to == CircuitState.CLOSED) {
+            next = recorded = failures = slowCalls = 0;
+        }
+        state = to;
+        listener.onStateChange(from, to);
+    }
+}
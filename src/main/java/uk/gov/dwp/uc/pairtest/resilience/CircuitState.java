@@ -0,0 +1,5 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+public enum CircuitState {
+    CLOSED, OPEN, HALF_OPEN
+}
@@ -0,0 +1,8 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+public interface CircuitStateListener {
+
+    CircuitStateListener NONE = (from, to) -> {};
+
+    void onStateChange(CircuitState from, CircuitState to);
+}
@@ -0,0 +1,44 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import java.time.Duration;
+
+/**
+ * Settings of a {@link ResilienceGuard}.
+ *
+ * @param slidingWindowSize     number of most recent calls the failure and slow-call rates are computed over
+ * @param minimumCalls          calls needed in the window before the circuit can open
+ * @param failureRateThreshold  fraction of failed calls, 0 to 1, that opens the circuit
+ * @param slowCallRateThreshold fraction of slow calls, 0 to 1, that opens the circuit
+ * @param slowCallDuration      calls taking longer than this count as slow
+ * @param openDuration          how long an open circuit rejects calls before letting trial calls through
+ * @param halfOpenCalls         trial calls that must all succeed for the circuit to close again
+ * @param maxConcurrentCalls    bulkhead size
+ * @param maxWaitForPermit      how long a call may wait for a bulkhead permit, zero to not wait at all
+ * @param callTimeout           how long a call may take before it is abandoned
+ */
+public record ResilienceConfig(int slidingWindowSize,
+                               int minimumCalls,
+                               double failureRateThreshold,
+                               double slowCallRateThreshold,
+                               Duration slowCallDuration,
+                               Duration openDuration,
+                               int halfOpenCalls,
+                               int maxConcurrentCalls,
+                               Duration maxWaitForPermit,
+                               Duration callTimeout) {
+
+    public ResilienceConfig {
+        if(slidingWindowSize < 1 || minimumCalls < 1 || halfOpenCalls < 1 || maxConcurrentCalls < 1) {
+            throw new IllegalArgumentException("Window size, minimum calls, trial calls and concurrency should be greater than zero");
+        }
+        if(failureRateThreshold <= 0 || failureRateThreshold > 1 || slowCallRateThreshold <= 0 || slowCallRateThreshold > 1) {
+            throw new IllegalArgumentException("Failure and slow call rate thresholds should be greater than zero and at most one");
+        }
+        if(!slowCallDuration.isPositive() || !openDuration.isPositive() || !callTimeout.isPositive()) {
+            throw new IllegalArgumentException("Slow call duration, open duration and call timeout should be greater than zero");
+        }
+        if(maxWaitForPermit.isNegative()) {
+            throw new IllegalArgumentException("Max wait for a permit should not be negative");
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import uk.gov.dwp.uc.pairtest.exception.DependencyUnavailableException;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.SeatCapacityExhaustedException;
+import uk.gov.dwp.uc.pairtest.exception.SeatHoldExpiredException;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Protects the calling threads from one sick dependency. A call is refused straight away while the circuit is open
+ * or when the bulkhead stays full for longer than the permitted wait, and is abandoned once it runs past its
+ * timeout, the caller getting a {@link DependencyUnavailableException} in each case.
+ * Calls run on virtual threads so that an abandoned call holds no platform thread, but it keeps its bulkhead permit
+ * until it actually finishes, so calls that will not stop cannot pile up past the bulkhead.
+ * Only exceptions that say the dependency is unwell count towards opening the circuit; business outcomes such as
+ * sold-out seats are passed on to the caller as they are.
+ * A call whose effect may still land after it was abandoned, such as a payment, is made with
+ * {@link #callToCompletion} instead, which waits for it however long it takes.
+ */
+public class ResilienceGuard implements AutoCloseable {
+
+    public static final Predicate<Throwable> NOT_A_BUSINESS_OUTCOME = e -> !(e instanceof InvalidPurchaseException
+            || e instanceof SeatCapacityExhaustedException || e instanceof SeatHoldExpiredException);
+
+    private final String name;
+    private final ResilienceConfig config;
+    private final CircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+    private final Predicate<Throwable> isFailure;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LongAdder rejectedByCircuit = new LongAdder();
+    private final LongAdder rejectedByBulkhead = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public ResilienceGuard(String name, ResilienceConfig config, CircuitStateListener listener) {
+        this(name, config, listener, NOT_A_BUSINESS_OUTCOME);
+    }
+
+    /*
+    * isFailure picks the exceptions thrown by calls that count against the dependency
+    * */
+    public ResilienceGuard(String name, ResilienceConfig config, CircuitStateListener listener,
+                           Predicate<Throwable> isFailure) {
+        this.name = name;
+        this.isFailure = isFailure;
+        this.config = config;
+        this.circuitBreaker = new CircuitBreaker(config, listener);
+        this.bulkhead = new Semaphore(config.maxConcurrentCalls());
+    }
+
+    public void call(Runnable call) throws DependencyUnavailableException {
+        long start = System.nanoTime();
+        admit(start);
+
+        boolean callFailed = true;
+        Permitted permitted = new Permitted(call);
+        try {
+            Future<?> result;
+            try {
+                result = executor.submit(permitted);
+            } catch (RuntimeException e) {
+                permitted.abandon();
+                throw e;
+            }
+            try {
+                result.get(config.callTimeout().toNanos(), TimeUnit.NANOSECONDS);
+                callFailed = false;
+            } catch (TimeoutException e) {
+                result.cancel(true);
+                permitted.abandon();
+                timeouts.increment();
+                throw new DependencyUnavailableException(name + " timed out", e);
+            } catch (ExecutionException e) {
+                callFailed = isFailure.test(e.getCause());
+                if(callFailed) {
+                    failures.increment();
+                }
+                if(e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new DependencyUnavailableException(name + " failed", e.getCause());
+            } catch (InterruptedException e) {
+                result.cancel(true);
+                permitted.abandon();
+                Thread.currentThread().interrupt();
+                throw new DependencyUnavailableException(name + " call interrupted", e);
+            }
+        } finally {
+            long end = System.nanoTime();
+            circuitBreaker.onResult(callFailed, end - start > config.slowCallDuration().toNanos(), end);
+        }
+    }
+
+    /*
+    * Circuit breaker and bulkhead only: the call runs on the calling thread until it returns, and one running past
+    * the call timeout merely counts as slow. For calls that cannot be abandoned safely because they are neither
+    * idempotent nor queryable, so the caller could never tell whether an abandoned one went through
+    * */
+    public void callToCompletion(Runnable call) throws DependencyUnavailableException {
+        long start = System.nanoTime();
+        admit(start);
+
+        boolean callFailed = true;
+        try {
+            call.run();
+            callFailed = false;
+        } catch (RuntimeException e) {
+            callFailed = isFailure.test(e);
+            if(callFailed) {
+                failures.increment();
+            }
+            throw e;
+        } finally {
+            bulkhead.release();
+            long end = System.nanoTime();
+            circuitBreaker.onResult(callFailed, end - start > config.slowCallDuration().toNanos(), end);
+        }
+    }
+
+    private void admit(long start) throws DependencyUnavailableException {
+        if(!circuitBreaker.tryAcquirePermission(start)) {
+            rejectedByCircuit.increment();
+            throw new DependencyUnavailableException(name + " circuit is open");
+        }
+        if(!acquireBulkhead()) {
+            circuitBreaker.releasePermission();
+            rejectedByBulkhead.increment();
+            throw new DependencyUnavailableException(name + " has too many calls in flight");
+        }
+    }
+
+    /**
+     * A call holding a bulkhead permit, given back by whichever of the call finishing or the caller abandoning it
+     * before it started happens first.
+     */
+    private final class Permitted implements Runnable {
+
+        private final Runnable call;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Permitted(Runnable call) {
+            this.call = call;
+        }
+
+        @Override
+        public void run() {
+            if(!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                call.run();
+            } finally {
+                bulkhead.release();
+            }
+        }
+
+        /*
+        * Gives the permit back only if the call never started; a running call keeps it until it returns
+        * */
+        void abandon() {
+            if(claimed.compareAndSet(false, true)) {
+                bulkhead.release();
+            }
+        }
+    }
+
+    private boolean acquireBulkhead() {
+        try {
+            return bulkhead.tryAcquire(config.maxWaitForPermit().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public CircuitState getState() {
+        return circuitBreaker.getState();
+    }
+
+    public long getRejectedByCircuitCount() {
+        return rejectedByCircuit.sum();
+    }
+
+    public long getRejectedByBulkheadCount() {
+        return rejectedByBulkhead.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
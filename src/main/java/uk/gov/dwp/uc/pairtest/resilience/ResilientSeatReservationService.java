@@ -0,0 +1,26 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import thirdparty.seatbooking.SeatReservationService;
+
+/**
+ * {@link SeatReservationService} guarded by a circuit breaker, bulkhead and call timeout.
+ */
+public class ResilientSeatReservationService implements SeatReservationService {
+
+    private final SeatReservationService seatReservationService;
+    private final ResilienceGuard guard;
+
+    public ResilientSeatReservationService(SeatReservationService seatReservationService, ResilienceGuard guard) {
+        this.seatReservationService = seatReservationService;
+        this.guard = guard;
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+        guard.call(() -> seatReservationService.reserveSeat(accountId, totalSeatsToAllocate));
+    }
+
+    public ResilienceGuard getGuard() {
+        return guard;
+    }
+}
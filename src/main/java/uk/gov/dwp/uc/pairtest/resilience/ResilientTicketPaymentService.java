@@ -0,0 +1,29 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+
+/**
+ * {@link TicketPaymentService} guarded by a circuit breaker and bulkhead.
+ * Payments are never timed out: the gateway can neither be asked whether a payment went through nor be safely
+ * asked to take it again, so a payment abandoned by the caller could still charge the customer for a purchase
+ * reported as failed.
+ */
+public class ResilientTicketPaymentService implements TicketPaymentService {
+
+    private final TicketPaymentService ticketPaymentService;
+    private final ResilienceGuard guard;
+
+    public ResilientTicketPaymentService(TicketPaymentService ticketPaymentService, ResilienceGuard guard) {
+        this.ticketPaymentService = ticketPaymentService;
+        this.guard = guard;
+    }
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay) {
+        guard.callToCompletion(() -> ticketPaymentService.makePayment(accountId, totalAmountToPay));
+    }
+
+    public ResilienceGuard getGuard() {
+        return guard;
+    }
+}
@@ -0,0 +1,314 @@
+package uk.gov.dwp.uc.pairtest.rules;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseRule;
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Rules flattened into one table of linear conditions, each meaning {@code c0*adults + c1*children + c2*infants
+ * + c3*requests + c4*ADULT + c5*CHILD + c6*INFANT + c7 >= 0}, so evaluating an order is one loop of multiply-adds
+ * over an int array with no objects, lambdas or calls per rule.
+ * Rules are evaluated cheapest first, by number of terms; broken rules are reported as bits numbered in the order
+ * they were defined, so errors keep their listed order.
+ */
+public final class CompiledRules {
+
+    static final int MAX_RULES = Long.SIZE;
+
+    private static final int ADULTS = 0, CHILDREN = 1, INFANTS = 2, REQUESTS = 3, ADULT = 4, CHILD = 5, INFANT = 6,
+            CONSTANT = 7, STRIDE = 8;
+    private static final Pattern TOKEN = Pattern.compile("\\s*(\\$\\{[A-Za-z0-9_]+}|[A-Za-z_]+|\\d+|>=|<=|[<>+\\-*])");
+    private static final Pattern CONFIG_REFERENCE = Pattern.compile("\\$\\{([A-Za-z0-9_]+)}");
+
+    private final int[] coefficients;
+    private final int[] whenStart;
+    private final int[] requireStart;
+    private final int[] requireEnd;
+    private final int[] ruleBit;
+    private final String[] names;
+    private final String[] messages;
+    private final PurchaseRule[] purchaseRules;
+
+    private CompiledRules(int[] coefficients, int[] whenStart, int[] requireStart, int[] requireEnd, int[] ruleBit,
+                          String[] names, String[] messages, PurchaseRule[] purchaseRules) {
+        this.coefficients = coefficients;
+        this.whenStart = whenStart;
+        this.requireStart = requireStart;
+        this.requireEnd = requireEnd;
+        this.ruleBit = ruleBit;
+        this.names = names;
+        this.messages = messages;
+        this.purchaseRules = purchaseRules;
+    }
+
+    /*
+    * Bit i is set when the i-th defined rule is broken
+    * */
+    public long violations(TicketOrder order) {
+        long violations = 0;
+        for(int rule = 0; rule < ruleBit.length; rule++) {
+            if(isBroken(rule, order)) {
+                violations |= 1L << ruleBit[rule];
+            }
+        }
+        return violations;
+    }
+
+    public boolean accepts(TicketOrder order) {
+        return firstBroken(order) < 0;
+    }
+
+    /*
+    * Bit of the cheapest broken rule, or -1 when none is; stops as soon as one is found
+    * */
+    public int firstBroken(TicketOrder order) {
+        for(int rule = 0; rule < ruleBit.length; rule++) {
+            if(isBroken(rule, order)) {
+                return ruleBit[rule];
+            }
+        }
+        return -1;
+    }
+
+    private boolean isBroken(int rule, TicketOrder order) {
+        for(int condition = whenStart[rule]; condition < requireStart[rule]; condition++) {
+            if(!holds(condition, order)) {
+                return false;
+            }
+        }
+        for(int condition = requireStart[rule]; condition < requireEnd[rule]; condition++) {
+            if(!holds(condition, order)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean holds(int condition, TicketOrder order) {
+        int at = condition * STRIDE;
+        long sum = (long) coefficients[at + ADULTS] * order.getAdults()
+                + (long) coefficients[at + CHILDREN] * order.getChildren()
+                + (long) coefficients[at + INFANTS] * order.getInfants()
+                + (long) coefficients[at + REQUESTS] * order.getNoOfRequests()
+                + (order.isAdultRequested() ? coefficients[at + ADULT] : 0)
+                + (order.isChildRequested() ? coefficients[at + CHILD] : 0)
+                + (order.isInfantRequested() ? coefficients[at + INFANT] : 0)
+                + coefficients[at + CONSTANT];
+        return sum >= 0;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int ruleBit) {
+        return names[ruleBit];
+    }
+
+    public String message(int ruleBit) {
+        return messages[ruleBit];
+    }
+
+    /*
+    * The built-in rule of the same name, or null for rules added through configuration
+    * */
+    public PurchaseRule purchaseRule(int ruleBit) {
+        return purchaseRules[ruleBit];
+    }
+
+    static CompiledRules compile(List<RuleDefinition> definitions, ToIntFunction<String> config) {
+        int noOfRules = definitions.size();
+        List<int[]> conditionsByRule = new ArrayList<>(noOfRules);
+        int[] noOfWhen = new int[noOfRules];
+        String[] names = new String[noOfRules];
+        String[] messages = new String[noOfRules];
+        PurchaseRule[] purchaseRules = new PurchaseRule[noOfRules];
+
+        for(int i = 0; i < noOfRules; i++) {
+            RuleDefinition definition = definitions.get(i);
+            List<String> conditions = new ArrayList<>(definition.when());
+            conditions.addAll(definition.require());
+            int[] flat = new int[conditions.size() * STRIDE];
+            for(int c = 0; c < conditions.size(); c++) {
+                System.arraycopy(parseCondition(conditions.get(c), config, definition.name()), 0, flat, c * STRIDE, STRIDE);
+            }
+            conditionsByRule.add(flat);
+            noOfWhen[i] = definition.when().size();
+            names[i] = definition.name();
+            messages[i] = resolve(definition.message(), config);
+            purchaseRules[i] = Arrays.stream(PurchaseRule.values())
+                    .filter(rule -> rule.name().equals(definition.name()))
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        int[] order = IntStream.range(0, noOfRules).boxed()
+                .sorted(Comparator.comparingInt(i -> cost(conditionsByRule.get(i))))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int[] coefficients = new int[conditionsByRule.stream().mapToInt(flat -> flat.length).sum()];
+        int[] whenStart = new int[noOfRules];
+        int[] requireStart = new int[noOfRules];
+        int[] requireEnd = new int[noOfRules];
+        int next = 0;
+        for(int rule = 0; rule < noOfRules; rule++) {
+            int[] flat = conditionsByRule.get(order[rule]);
+            System.arraycopy(flat, 0, coefficients, next * STRIDE, flat.length);
+            whenStart[rule] = next;
+            requireStart[rule] = next + noOfWhen[order[rule]];
+            next += flat.length / STRIDE;
+            requireEnd[rule] = next;
+        }
+        return new CompiledRules(coefficients, whenStart, requireStart, requireEnd, order, names, messages, purchaseRules);
+    }
+
+    private static int cost(int[] flat) {
+        int terms = 0;
+        for(int i = 0; i < flat.length; i++) {
+            if(i % STRIDE != CONSTANT && flat[i] != 0) {
+                terms++;
+            }
+        }
+        return terms;
+    }
+
+    private static String resolve(String text, ToIntFunction<String> config) {
+        Matcher reference = CONFIG_REFERENCE.matcher(text);
+        return reference.replaceAll(match -> String.valueOf(config.applyAsInt(match.group(1))));
+    }
+
+    /*
+    * Normalises a comparison to lhs - rhs >= 0, or a lone flag to flag - 1 >= 0
+    * */
+    private static int[] parseCondition(String condition, ToIntFunction<String> config, String rule) {
+        List<String> tokens = tokenize(condition, rule);
+        int[] position = {0};
+        int[] lhs = parseSum(tokens, position, config, condition, rule);
+        if(position[0] == tokens.size()) {
+            if(!isLoneFlag(lhs)) {
+                throw invalid(rule, condition, "expected a comparison");
+            }
+            lhs[CONSTANT] -= 1;
+            return lhs;
+        }
+        String comparison = tokens.get(position[0]++);
+        int[] rhs = parseSum(tokens, position, config, condition, rule);
+        if(position[0] != tokens.size()) {
+            throw invalid(rule, condition, "unexpected " + tokens.get(position[0]));
+        }
+        int[] normalised = new int[STRIDE];
+        int sign = switch (comparison) {
+            case ">=", ">" -> 1;
+            case "<=", "<" -> -1;
+            default -> throw invalid(rule, condition, "expected >=, >, <= or < but found " + comparison);
+        };
+        for(int i = 0; i < STRIDE; i++) {
+            normalised[i] = sign * (lhs[i] - rhs[i]);
+        }
+        if(comparison.length() == 1) {
+            normalised[CONSTANT] -= 1;
+        }
+        return normalised;
+    }
+
+    private static boolean isLoneFlag(int[] sum) {
+        int flags = 0;
+        for(int i = 0; i < STRIDE; i++) {
+            if(sum[i] != 0 && (i < ADULT || i > INFANT || sum[i] != 1)) {
+                return false;
+            }
+            flags += sum[i];
+        }
+        return flags == 1;
+    }
+
+    private static int[] parseSum(List<String> tokens, int[] position, ToIntFunction<String> config,
+                                  String condition, String rule) {
+        int[] sum = new int[STRIDE];
+        int sign = 1;
+        while(true) {
+            if(position[0] < tokens.size() && tokens.get(position[0]).equals("-")) {
+                sign = -sign;
+                position[0]++;
+            }
+            int factor = sign;
+            int variable = CONSTANT;
+            boolean more = true;
+            while(more) {
+                if(position[0] == tokens.size()) {
+                    throw invalid(rule, condition, "expected a term");
+                }
+                String token = tokens.get(position[0]++);
+                if(Character.isDigit(token.charAt(0))) {
+                    factor *= Integer.parseInt(token);
+                } else if(token.startsWith("${")) {
+                    factor *= config.applyAsInt(token.substring(2, token.length() - 1));
+                } else {
+                    if(variable != CONSTANT) {
+                        throw invalid(rule, condition, "terms are linear, found a second variable " + token);
+                    }
+                    variable = variable(token, condition, rule);
+                }
+                more = position[0] < tokens.size() && tokens.get(position[0]).equals("*");
+                if(more) {
+                    position[0]++;
+                }
+            }
+            if(variable == -1) {
+                sum[ADULTS] += factor;
+                sum[CHILDREN] += factor;
+                sum[INFANTS] += factor;
+            } else {
+                sum[variable] += factor;
+            }
+            if(position[0] == tokens.size()
+                    || !(tokens.get(position[0]).equals("+") || tokens.get(position[0]).equals("-"))) {
+                return sum;
+            }
+            sign = tokens.get(position[0]++).equals("-") ? -1 : 1;
+        }
+    }
+
+    /*
+    * tickets stands for adults + children + infants and is returned as -1
+    * */
+    private static int variable(String token, String condition, String rule) {
+        return switch (token) {
+            case "adults" -> ADULTS;
+            case "children" -> CHILDREN;
+            case "infants" -> INFANTS;
+            case "requests" -> REQUESTS;
+            case "tickets" -> -1;
+            case "ADULT" -> ADULT;
+            case "CHILD" -> CHILD;
+            case "INFANT" -> INFANT;
+            default -> throw invalid(rule, condition, "unknown variable " + token);
+        };
+    }
+
+    private static List<String> tokenize(String condition, String rule) {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(condition);
+        int at = 0;
+        while(at < condition.length() && matcher.find(at) && matcher.start() == at) {
+            tokens.add(matcher.group(1));
+            at = matcher.end();
+        }
+        if(!condition.substring(at).isBlank()) {
+            throw invalid(rule, condition, "unexpected " + condition.substring(at).trim());
+        }
+        return tokens;
+    }
+
+    private static IllegalArgumentException invalid(String rule, String condition, String reason) {
+        return new IllegalArgumentException("Invalid condition '" + condition + "' in rule " + rule + ": " + reason);
+    }
+}
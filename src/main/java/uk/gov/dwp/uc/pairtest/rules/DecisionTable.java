@@ -0,0 +1,115 @@
+package uk.gov.dwp.uc.pairtest.rules;
+
+import uk.gov.dwp.uc.pairtest.domain.PriceTable;
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
+
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
+
+/**
+ * Every verdict of a {@link CompiledRules}, and optionally every total price, worked out ahead of time for each
+ * (adults, children, infants) order of up to {@code maxTicketsPerType} tickets of each type, so checking and
+ * pricing an order is one index computation and an array read.
+ * Entries describe orders of one request per type with tickets, as built by {@link TicketOrder#of}; orders with
+ * other request lines or larger counts are not in the table and {@link #indexOf} returns -1.
+ */
+public final class DecisionTable {
+
+    public static final int MAX_TICKETS_PER_TYPE = 31;
+
+    private static final int NOT_IN_TABLE = -1;
+
+    private final PriceTable prices;
+    private final int counts;
+    private final long[] violations;
+    private final byte[] firstBroken;
+    private final int[] totalPrices;
+
+    private DecisionTable(PriceTable prices, int counts, long[] violations, byte[] firstBroken, int[] totalPrices) {
+        this.prices = prices;
+        this.counts = counts;
+        this.violations = violations;
+        this.firstBroken = firstBroken;
+        this.totalPrices = totalPrices;
+    }
+
+    /*
+    * Without prices the table holds verdicts only, for price lookups whose answers can change unseen
+    * */
+    public static DecisionTable build(CompiledRules rules, int maxTicketsPerType, PriceTable prices) {
+        int counts = Math.max(0, Math.min(maxTicketsPerType, MAX_TICKETS_PER_TYPE)) + 1;
+        int entries = counts * counts * counts;
+        long[] violations = new long[entries];
+        byte[] firstBroken = new byte[entries];
+        int[] totalPrices = prices == null ? null : new int[entries];
+
+        for(int adults = 0; adults < counts; adults++) {
+            for(int children = 0; children < counts; children++) {
+                for(int infants = 0; infants < counts; infants++) {
+                    TicketOrder order = TicketOrder.of(adults, children, infants);
+                    int index = index(counts, adults, children, infants);
+                    violations[index] = rules.violations(order);
+                    firstBroken[index] = (byte) rules.firstBroken(order);
+                    if(totalPrices != null) {
+                        totalPrices[index] = adults * prices.priceFor(ADULT)
+                                + children * prices.priceFor(CHILD)
+                                + infants * prices.priceFor(INFANT);
+                    }
+                }
+            }
+        }
+        return new DecisionTable(prices, counts, violations, firstBroken, totalPrices);
+    }
+
+    private static int index(int counts, int adults, int children, int infants) {
+        return (adults * counts + children) * counts + infants;
+    }
+
+    /*
+    * Entry of the order, or -1 when the order is not in the table
+    * */
+    public int indexOf(TicketOrder order) {
+        int adults = order.getAdults();
+        int children = order.getChildren();
+        int infants = order.getInfants();
+        if((adults | children | infants) < 0 || adults >= counts || children >= counts || infants >= counts
+                || !order.isOneRequestPerType()) {
+            return NOT_IN_TABLE;
+        }
+        return index(counts, adults, children, infants);
+    }
+
+    /*
+    * Same as CompiledRules.violations for the order at this index
+    * */
+    public long violations(int index) {
+        return violations[index];
+    }
+
+    /*
+    * Same as CompiledRules.firstBroken for the order at this index
+    * */
+    public int firstBroken(int index) {
+        return firstBroken[index];
+    }
+
+    public boolean isPriced() {
+        return totalPrices != null;
+    }
+
+    public int totalPrice(int index) {
+        return totalPrices[index];
+    }
+
+    /*
+    * The table the prices were taken from, or null when the table is not priced
+    * */
+    public PriceTable prices() {
+        return prices;
+    }
+
+    public int size() {
+        return violations.length;
+    }
+}
@@ -0,0 +1,112 @@
+package uk.gov.dwp.uc.pairtest.rules;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * An ordered set of {@link RuleDefinition}s, parsed from text with one rule per line:
+ * <pre>
+ * NAME: [when CONDITION [and CONDITION]...] require CONDITION [and CONDITION]... else MESSAGE
+ * </pre>
+ * Blank lines and lines starting with {@code #} are ignored. Errors are reported in the order rules are listed.
+ * The account id and the presence of any requests are checked before these rules run.
+ */
+public final class PurchaseRules {
+
+    public static final PurchaseRules DEFAULT = parse("""
+            MAX_TICKETS: require requests <= ${MAX_PURCHASE_TICKETS} else Too many tickets in purchase
+            ADULT_PRESENT: require ADULT else Infants or Child only purchase not allowed
+            ENOUGH_ADULTS_FOR_INFANTS: when ADULT and INFANT require adults >= infants else Not enough adults for infants
+            ENOUGH_ADULTS_FOR_CHILDREN: when ADULT and CHILD and children > 0 and infants > 0 \
+            require adults * ${MAX_CHILDREN_WITH_ADULT_WITH_INFANT} >= children \
+            else Not enough adults for children (1 adult per ${MAX_CHILDREN_WITH_ADULT_WITH_INFANT} children when infants are present)
+            ENOUGH_ADULTS_FOR_CHILDREN: when ADULT and CHILD and children > 0 and infants <= 0 \
+            require adults * ${MAX_CHILDREN_WITH_ADULT} >= children \
+            else Not enough adults for children (1 adult per ${MAX_CHILDREN_WITH_ADULT} children)
+            """);
+
+    private static final String COMMENT = "#";
+    private static final String NAME_SEPARATOR = ":";
+    private static final String WHEN = "when ";
+    private static final String REQUIRE = "require ";
+    private static final String ELSE = " else ";
+    private static final String AND = " and ";
+
+    private final List<RuleDefinition> definitions;
+
+    private PurchaseRules(List<RuleDefinition> definitions) {
+        if(definitions.size() > CompiledRules.MAX_RULES) {
+            throw new IllegalArgumentException("At most " + CompiledRules.MAX_RULES + " rules are supported");
+        }
+        this.definitions = List.copyOf(definitions);
+        /*
+        * Compiled once with every config value as 1 so syntax errors surface when the rules are loaded
+        * */
+        compile(key -> 1);
+    }
+
+    public static PurchaseRules of(List<RuleDefinition> definitions) {
+        return new PurchaseRules(definitions);
+    }
+
+    public static PurchaseRules parse(String text) {
+        List<RuleDefinition> definitions = new ArrayList<>();
+        for(String line : text.lines().map(String::trim).toList()) {
+            if(!line.isEmpty() && !line.startsWith(COMMENT)) {
+                definitions.add(parseLine(line));
+            }
+        }
+        return new PurchaseRules(definitions);
+    }
+
+    public static PurchaseRules load(Path path) {
+        try {
+            return parse(Files.readString(path, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+    * These rules followed by the extra ones
+    * */
+    public PurchaseRules with(RuleDefinition... extra) {
+        List<RuleDefinition> combined = new ArrayList<>(definitions);
+        combined.addAll(Arrays.asList(extra));
+        return new PurchaseRules(combined);
+    }
+
+    public List<RuleDefinition> definitions() {
+        return definitions;
+    }
+
+    public CompiledRules compile(ToIntFunction<String> config) {
+        return CompiledRules.compile(definitions, config);
+    }
+
+    private static RuleDefinition parseLine(String line) {
+        int nameEnd = line.indexOf(NAME_SEPARATOR);
+        int messageStart = line.lastIndexOf(ELSE);
+        if(nameEnd < 0 || messageStart < nameEnd) {
+            throw new IllegalArgumentException("Invalid rule, expected NAME: ... require ... else MESSAGE: " + line);
+        }
+        String conditions = line.substring(nameEnd + 1, messageStart).trim();
+        int requireStart = conditions.indexOf(REQUIRE);
+        if(requireStart < 0 || (requireStart > 0 && !conditions.startsWith(WHEN))) {
+            throw new IllegalArgumentException("Invalid rule, expected [when ...] require ...: " + line);
+        }
+        List<String> when = requireStart == 0
+                ? List.of()
+                : List.of(conditions.substring(WHEN.length(), requireStart).trim().split(AND));
+        List<String> require = List.of(conditions.substring(requireStart + REQUIRE.length()).trim().split(AND));
+        return new RuleDefinition(line.substring(0, nameEnd).trim(), when, require,
+                line.substring(messageStart + ELSE.length()).trim());
+    }
+}
@@ -0,0 +1,28 @@
+package uk.gov.dwp.uc.pairtest.rules;
+
+import java.util.List;
+
+/**
+ * One purchase rule, written against the aggregated counts of an order.
+ * The rule applies when every {@code when} condition holds, and is broken when any {@code require} condition
+ * then does not. Conditions compare sums of terms such as {@code adults * ${MAX_CHILDREN_WITH_ADULT}} using
+ * {@code >=}, {@code >}, {@code <=} or {@code <}, over the variables {@code adults}, {@code children},
+ * {@code infants}, {@code tickets} and {@code requests}, and the flags {@code ADULT}, {@code CHILD} and {@code INFANT},
+ * which are 1 when that type was requested; a flag on its own means the type was requested.
+ * {@code ${KEY}} is read from the cinema tickets config, in conditions and in the message alike.
+ *
+ * @param name    reported to metrics, matched against {@link uk.gov.dwp.uc.pairtest.domain.PurchaseRule} by name
+ * @param when    conditions under which the rule applies, none meaning always
+ * @param require conditions an order must meet when the rule applies
+ * @param message the error given when the rule is broken
+ */
+public record RuleDefinition(String name, List<String> when, List<String> require, String message) {
+
+    public RuleDefinition {
+        if(name == null || name.isBlank() || require == null || require.isEmpty() || message == null) {
+            throw new IllegalArgumentException("A rule needs a name, at least one requirement and a message");
+        }
+        when = when == null ? List.of() : List.copyOf(when);
+        require = List.copyOf(require);
+    }
+}
@@ -0,0 +1,27 @@
+package uk.gov.dwp.uc.pairtest.sales;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
+
+/**
+ * Told about every purchase once it has been paid for and its seats reserved.
+ * Called on the purchasing thread, so implementations must be quick and must not block.
+ */
+public interface PurchaseListener {
+
+    PurchaseListener NONE = (accountId, order, totalPrice) -> {};
+
+    void onPurchase(long accountId, TicketOrder order, int totalPrice);
+
+    /*
+    * The purchase has already happened, so a failing listener must not make it look as if it had not
+    * */
+    static void notifySafely(PurchaseListener listener, long accountId, TicketOrder order, int totalPrice) {
+        if(listener == NONE) {
+            return;
+        }
+        try {
+            listener.onPurchase(accountId, order, totalPrice);
+        } catch (RuntimeException ignored) {
+        }
+    }
+}
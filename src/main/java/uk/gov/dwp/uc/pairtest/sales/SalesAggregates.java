@@ -0,0 +1,170 @@
+package uk.gov.dwp.uc.pairtest.sales;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketOrder;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseJournalReader;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseStatus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Live sales totals built from purchase events: tickets sold per type, revenue overall and per screening, and
+ * per-minute rollups over a rolling window. Every counter is a {@link LongAdder}, so recording never takes a lock
+ * and concurrent purchases update separate cells; the only allocation is one bucket per minute.
+ * The same figures can be rebuilt after a restart by replaying the completed purchases of a purchase journal.
+ */
+public class SalesAggregates implements PurchaseListener, PurchaseJournalReader.RecordHandler {
+
+    public static final String DEFAULT_SCREENING = "default";
+    public static final int DEFAULT_MINUTES_RETAINED = 60;
+
+    private static final TicketTypeRequest.Type[] TYPES = TicketTypeRequest.Type.values();
+    private static final long MILLIS_PER_MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    private final LongFunction<String> screeningOf;
+    private final LongSupplier clockMillis;
+    private final int minutesRetained;
+
+    private final LongAdder[] ticketsSold = counters();
+    private final LongAdder revenue = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> revenueByScreening = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<Minute> minutes;
+
+    /**
+     * Counters of one minute, replaced rather than reset when its slot comes round again.
+     */
+    private static final class Minute {
+        final long epochMinute;
+        final LongAdder[] ticketsSold = counters();
+        final LongAdder revenue = new LongAdder();
+        final LongAdder purchases = new LongAdder();
+
+        Minute(long epochMinute) {
+            this.epochMinute = epochMinute;
+        }
+    }
+
+    public SalesAggregates() {
+        this(accountId -> DEFAULT_SCREENING, DEFAULT_MINUTES_RETAINED, System::currentTimeMillis);
+    }
+
+    /*
+    * screeningOf maps an account to the screening it is buying for, as the purchase itself does not say
+    * */
+    public SalesAggregates(LongFunction<String> screeningOf, int minutesRetained, LongSupplier clockMillis) {
+        if(minutesRetained < 1) {
+            throw new IllegalArgumentException("At least one minute should be retained");
+        }
+        this.screeningOf = screeningOf;
+        this.minutesRetained = minutesRetained;
+        this.clockMillis = clockMillis;
+        this.minutes = new AtomicReferenceArray<>(minutesRetained);
+    }
+
+    @Override
+    public void onPurchase(long accountId, TicketOrder order, int totalPrice) {
+        record(accountId, order.getAdults(), order.getChildren(), order.getInfants(), totalPrice, clockMillis.getAsLong());
+    }
+
+    /*
+    * Journal replay: only completed purchases count as sales
+    * */
+    @Override
+    public void onRecord(long accountId, long timestamp, int adults, int children, int infants, int totalPrice,
+                         PurchaseStatus status) {
+        if(status == PurchaseStatus.COMPLETED) {
+            record(accountId, adults, children, infants, totalPrice, timestamp);
+        }
+    }
+
+    private void record(long accountId, int adults, int children, int infants, int totalPrice, long timestamp) {
+        add(ticketsSold, adults, children, infants);
+        revenue.add(totalPrice);
+        screeningRevenue(screeningOf.apply(accountId)).add(totalPrice);
+
+        Minute minute = minute(timestamp / MILLIS_PER_MINUTE);
+        if(minute != null) {
+            add(minute.ticketsSold, adults, children, infants);
+            minute.revenue.add(totalPrice);
+            minute.purchases.increment();
+        }
+    }
+
+    /*
+    * computeIfAbsent locks the bin even when the screening is already there, so it is only used for a new one
+    * */
+    private LongAdder screeningRevenue(String screening) {
+        LongAdder total = revenueByScreening.get(screening);
+        return total != null ? total : revenueByScreening.computeIfAbsent(screening, key -> new LongAdder());
+    }
+
+    /*
+    * The bucket for a minute, or null when that minute has already dropped out of the window
+    * */
+    private Minute minute(long epochMinute) {
+        int slot = (int) Math.floorMod(epochMinute, (long) minutesRetained);
+        while(true) {
+            Minute current = minutes.get(slot);
+            if(current != null && current.epochMinute == epochMinute) {
+                return current;
+            }
+            if(current != null && current.epochMinute > epochMinute) {
+                return null;
+            }
+            Minute fresh = new Minute(epochMinute);
+            if(minutes.compareAndSet(slot, current, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    public SalesSnapshot snapshot() {
+        Map<String, Long> byScreening = new TreeMap<>();
+        revenueByScreening.forEach((screening, total) -> byScreening.put(screening, total.sum()));
+
+        long oldest = clockMillis.getAsLong() / MILLIS_PER_MINUTE - minutesRetained + 1;
+        List<SalesSnapshot.MinuteRollup> rollups = new ArrayList<>(minutesRetained);
+        for(int slot = 0; slot < minutesRetained; slot++) {
+            Minute minute = minutes.get(slot);
+            if(minute != null && minute.epochMinute >= oldest) {
+                rollups.add(new SalesSnapshot.MinuteRollup(minute.epochMinute, sums(minute.ticketsSold),
+                        minute.revenue.sum(), minute.purchases.sum()));
+            }
+        }
+        rollups.sort(Comparator.comparingLong(SalesSnapshot.MinuteRollup::epochMinute));
+        return new SalesSnapshot(sums(ticketsSold), revenue.sum(), byScreening, rollups);
+    }
+
+    private static void add(LongAdder[] counters, int adults, int children, int infants) {
+        counters[TicketTypeRequest.Type.ADULT.ordinal()].add(adults);
+        counters[TicketTypeRequest.Type.CHILD.ordinal()].add(children);
+        counters[TicketTypeRequest.Type.INFANT.ordinal()].add(infants);
+    }
+
+    private static LongAdder[] counters() {
+        LongAdder[] counters = new LongAdder[TYPES.length];
+        for(int i = 0; i < TYPES.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    private static Map<TicketTypeRequest.Type, Long> sums(LongAdder[] counters) {
+        Map<TicketTypeRequest.Type, Long> sums = new EnumMap<>(TicketTypeRequest.Type.class);
+        for(TicketTypeRequest.Type type : TYPES) {
+            sums.put(type, counters[type.ordinal()].sum());
+        }
+        return sums;
+    }
+}
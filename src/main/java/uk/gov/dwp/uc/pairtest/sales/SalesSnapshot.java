@@ -0,0 +1,24 @@
+package uk.gov.dwp.uc.pairtest.sales;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sales figures read from {@link SalesAggregates} at one moment.
+ *
+ * @param ticketsSold        all tickets sold, by type
+ * @param revenue            total paid, across all purchases
+ * @param revenueByScreening total paid, by screening
+ * @param minutes            per-minute rollups still retained, oldest first
+ */
+public record SalesSnapshot(Map<TicketTypeRequest.Type, Long> ticketsSold,
+                            long revenue,
+                            Map<String, Long> revenueByScreening,
+                            List<MinuteRollup> minutes) {
+
+    public record MinuteRollup(long epochMinute, Map<TicketTypeRequest.Type, Long> ticketsSold, long revenue,
+                               long purchases) {
+    }
+}
@@ -0,0 +1,53 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.exception.SeatCapacityExhaustedException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process stand-in for the real seat system, keeping a {@link SeatInventory} per screening.
+ * {@link #reserveSeat} books into the default screening, as the third-party interface has no notion of one.
+ */
+public class InMemorySeatReservationService implements SeatReservationService {
+
+    private final Map<String, SeatInventory> screenings = new ConcurrentHashMap<>();
+    private final String defaultScreeningId;
+
+    public InMemorySeatReservationService(String defaultScreeningId, int noOfRows, int seatsPerRow) {
+        this.defaultScreeningId = defaultScreeningId;
+        addScreening(defaultScreeningId, noOfRows, seatsPerRow);
+    }
+
+    public void addScreening(String screeningId, int noOfRows, int seatsPerRow) {
+        if(screenings.putIfAbsent(screeningId, new SeatInventory(screeningId, noOfRows, seatsPerRow)) != null) {
+            throw new IllegalArgumentException("Screening " + screeningId + " already exists");
+        }
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate) throws SeatCapacityExhaustedException {
+        reserve(defaultScreeningId, accountId, totalSeatsToAllocate);
+    }
+
+    public SeatAllocation reserve(String screeningId, long accountId, int totalSeatsToAllocate) throws SeatCapacityExhaustedException {
+        return screening(screeningId).reserve(accountId, totalSeatsToAllocate);
+    }
+
+    public void release(SeatAllocation allocation) {
+        screening(allocation.screeningId()).release(allocation);
+    }
+
+    public int getFreeSeats(String screeningId) {
+        return screening(screeningId).getFreeSeats();
+    }
+
+    private SeatInventory screening(String screeningId) {
+        SeatInventory inventory = screenings.get(screeningId);
+        if(inventory == null) {
+            throw new IllegalArgumentException("Unknown screening " + screeningId);
+        }
+        return inventory;
+    }
+}
@@ -0,0 +1,125 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+import uk.gov.dwp.uc.pairtest.exception.SeatCapacityExhaustedException;
+import uk.gov.dwp.uc.pairtest.exception.SeatHoldExpiredException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds seats in a {@link SeatInventory} and gives them back if the hold is not confirmed in time.
+ * Holds are filed in a hashed timer wheel by the tick they expire on, and a sweeper thread visits one wheel slot
+ * per tick, releasing every expired hold in it. Expiry therefore costs nothing per live hold, and holds that
+ * were confirmed or released are simply dropped when their slot comes round. A hold being paid for is never
+ * expired, so a customer is not charged for seats that were given away during the payment.
+ */
+public class InventorySeatHoldService implements SeatHoldService, AutoCloseable {
+
+    private static final int WHEEL_SIZE = 512;
+
+    private final SeatInventory inventory;
+    private final long holdTicks;
+    private final long tickNanos;
+    private final long startNanos = System.nanoTime();
+    private final List<Queue<SeatHold>> wheel;
+    private final ScheduledExecutorService sweeper;
+
+    private long sweptTick = -1;
+    private final AtomicLong expired = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public InventorySeatHoldService(SeatInventory inventory, Duration holdTime, Duration tick) {
+        this.inventory = inventory;
+        this.tickNanos = tick.toNanos();
+        this.holdTicks = Math.max(1, (holdTime.toNanos() + tickNanos - 1) / tickNanos);
+        this.wheel = new ArrayList<>(WHEEL_SIZE);
+        for(int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ConcurrentLinkedQueue<>());
+        }
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-hold-sweeper-" + inventory.getScreeningId());
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleAtFixedRate(this::sweep, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public SeatHold hold(long accountId, int totalSeatsToAllocate) throws SeatCapacityExhaustedException {
+        SeatAllocation allocation = totalSeatsToAllocate > 0 ? inventory.reserve(accountId, totalSeatsToAllocate) : null;
+        long deadlineTick = currentTick() + holdTicks;
+        SeatHold hold = new SeatHold(accountId, totalSeatsToAllocate, allocation, deadlineTick);
+        wheel.get((int) (deadlineTick & (WHEEL_SIZE - 1))).add(hold);
+        return hold;
+    }
+
+    /*
+    * Fails if the hold expired before the payment could start, so nothing is charged for it
+    * */
+    @Override
+    public void startPayment(SeatHold hold) throws SeatHoldExpiredException {
+        if(!hold.markPaying()) {
+            throw new SeatHoldExpiredException("Seat hold for account " + hold.getAccountId() + " has expired");
+        }
+    }
+
+    @Override
+    public void confirm(SeatHold hold) throws SeatHoldExpiredException {
+        if(!hold.markConfirmed() && !hold.isConfirmed()) {
+            throw new SeatHoldExpiredException("Seat hold for account " + hold.getAccountId() + " has expired");
+        }
+    }
+
+    @Override
+    public void release(SeatHold hold) {
+        if(hold.markReleased() && hold.allocation() != null) {
+            inventory.release(hold.allocation());
+        }
+    }
+
+    public long getExpiredCount() {
+        return expired.get();
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startNanos) / tickNanos;
+    }
+
+    /*
+    * Catches up on every tick since the last sweep, in case the sweeper was delayed
+    * */
+    void sweep() {
+        long now = currentTick();
+        for(long tick = sweptTick + 1; tick <= now; tick++) {
+            Iterator<SeatHold> slot = wheel.get((int) (tick & (WHEEL_SIZE - 1))).iterator();
+            while(slot.hasNext()) {
+                SeatHold hold = slot.next();
+                if(!hold.isHeld() || hold.isPaying()) {
+                    slot.remove();
+                } else if(hold.deadlineTick() <= tick) {
+                    slot.remove();
+                    if(hold.markExpired()) {
+                        if(hold.allocation() != null) {
+                            inventory.release(hold.allocation());
+                        }
+                        expired.incrementAndGet();
+                    }
+                }
+            }
+        }
+        sweptTick = now;
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+}
@@ -0,0 +1,15 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+/**
+ * Seats allocated to one account, as a bitmap of the taken seats for each row of the screen.
+ */
+public record SeatAllocation(String screeningId, long accountId, int[] rows, long[] seatMasks) {
+
+    public int noOfSeats() {
+        int seats = 0;
+        for(long mask : seatMasks) {
+            seats += Long.bitCount(mask);
+        }
+        return seats;
+    }
+}
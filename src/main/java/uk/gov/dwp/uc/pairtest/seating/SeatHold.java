@@ -0,0 +1,77 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Seats tentatively set aside for an account until the hold is confirmed, released or expires.
+ * Exactly one of those can happen, whichever gets there first. A hold being paid for can no longer expire,
+ * so its seats stay set aside until the payment has either gone through or failed.
+ */
+public final class SeatHold {
+
+    private static final int HELD = 0;
+    private static final int CONFIRMED = 1;
+    private static final int RELEASED = 2;
+    private static final int PAYING = 3;
+
+    private final long accountId;
+    private final int totalSeatsToAllocate;
+    private final SeatAllocation allocation;
+    private final long deadlineTick;
+    private final AtomicInteger state = new AtomicInteger(HELD);
+
+    SeatHold(long accountId, int totalSeatsToAllocate, SeatAllocation allocation, long deadlineTick) {
+        this.accountId = accountId;
+        this.totalSeatsToAllocate = totalSeatsToAllocate;
+        this.allocation = allocation;
+        this.deadlineTick = deadlineTick;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public int getTotalSeatsToAllocate() {
+        return totalSeatsToAllocate;
+    }
+
+    public boolean isHeld() {
+        int current = state.get();
+        return current == HELD || current == PAYING;
+    }
+
+    public boolean isPaying() {
+        return state.get() == PAYING;
+    }
+
+    public boolean isConfirmed() {
+        return state.get() == CONFIRMED;
+    }
+
+    SeatAllocation allocation() {
+        return allocation;
+    }
+
+    long deadlineTick() {
+        return deadlineTick;
+    }
+
+    boolean markPaying() {
+        return state.compareAndSet(HELD, PAYING);
+    }
+
+    boolean markConfirmed() {
+        return state.compareAndSet(PAYING, CONFIRMED) || state.compareAndSet(HELD, CONFIRMED);
+    }
+
+    boolean markReleased() {
+        return state.compareAndSet(PAYING, RELEASED) || state.compareAndSet(HELD, RELEASED);
+    }
+
+    /*
+    * Only a hold nobody is paying for can expire
+    * */
+    boolean markExpired() {
+        return state.compareAndSet(HELD, RELEASED);
+    }
+}
@@ -0,0 +1,47 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+import thirdparty.seatbooking.SeatReservationService;
+
+/**
+ * Two-phase seat reservation: seats are held before payment is taken and confirmed after it.
+ * {@link #startPayment} is called just before taking the payment, after which the hold no longer expires.
+ */
+public interface SeatHoldService {
+
+    SeatHold hold(long accountId, int totalSeatsToAllocate);
+
+    void startPayment(SeatHold hold);
+
+    void confirm(SeatHold hold);
+
+    void release(SeatHold hold);
+
+    /*
+    * Adapter for a plain SeatReservationService, which has nothing to hold, so seats are only reserved on confirm
+    * */
+    static SeatHoldService reserveOnConfirm(SeatReservationService seatReservationService) {
+        return new SeatHoldService() {
+            @Override
+            public SeatHold hold(long accountId, int totalSeatsToAllocate) {
+                return new SeatHold(accountId, totalSeatsToAllocate, null, Long.MAX_VALUE);
+            }
+
+            @Override
+            public void startPayment(SeatHold hold) {
+                hold.markPaying();
+            }
+
+            @Override
+            public void confirm(SeatHold hold) {
+                if(hold.markConfirmed()) {
+                    seatReservationService.reserveSeat(hold.getAccountId(), hold.getTotalSeatsToAllocate());
+                }
+            }
+
+            @Override
+            public void release(SeatHold hold) {
+                hold.markReleased();
+            }
+        };
+    }
+}
@@ -0,0 +1,252 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+import uk.gov.dwp.uc.pairtest.exception.SeatCapacityExhaustedException;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Seat map of one screening: each row is a single {@code long} bitmap with a set bit for every taken seat.
+ * Rows are updated with CAS only. Capacity is claimed up front from a free seat counter, so a screening
+ * can never be overbooked. Next to the bitmaps a free-run index, a segment tree holding the longest run of free seats
+ * of each row and the maximum of every range of rows, leads straight to the first row that can hold a contiguous
+ * block in O(log rows) steps.
+ * When no single row can seat the whole party, the seats are spread over the rows with free seats.
+ */
+public final class SeatInventory {
+
+    public static final int MAX_SEATS_PER_ROW = Long.SIZE;
+
+    private final String screeningId;
+    private final int seatsPerRow;
+    private final long rowMask;
+    private final AtomicLongArray rows;
+    private final int leaves;
+    private final AtomicIntegerArray freeRunIndex;
+    private final AtomicInteger freeSeats;
+
+    public SeatInventory(String screeningId, int noOfRows, int seatsPerRow) {
+        if(noOfRows < 1 || seatsPerRow < 1 || seatsPerRow > MAX_SEATS_PER_ROW) {
+            throw new IllegalArgumentException("Rows should be greater than zero with 1 to " + MAX_SEATS_PER_ROW + " seats each");
+        }
+        this.screeningId = screeningId;
+        this.seatsPerRow = seatsPerRow;
+        this.rowMask = seatsPerRow == Long.SIZE ? -1L : (1L << seatsPerRow) - 1;
+        this.rows = new AtomicLongArray(noOfRows);
+        this.leaves = Integer.highestOneBit(Math.max(1, noOfRows * 2 - 1));
+        this.freeRunIndex = new AtomicIntegerArray(2 * leaves);
+        for(int row = 0; row < noOfRows; row++) {
+            freeRunIndex.set(leaves + row, seatsPerRow);
+        }
+        for(int node = leaves - 1; node > 0; node--) {
+            freeRunIndex.set(node, Math.max(freeRunIndex.get(2 * node), freeRunIndex.get(2 * node + 1)));
+        }
+        this.freeSeats = new AtomicInteger(noOfRows * seatsPerRow);
+    }
+
+    public SeatAllocation reserve(long accountId, int noOfSeats) {
+        if(noOfSeats < 0) {
+            throw new IllegalArgumentException("Seats to allocate should not be negative");
+        }
+        if(noOfSeats == 0) {
+            return new SeatAllocation(screeningId, accountId, new int[0], new long[0]);
+        }
+        claimCapacity(noOfSeats);
+
+        if(noOfSeats <= seatsPerRow) {
+            SeatAllocation block = reserveBlock(accountId, noOfSeats);
+            if(block != null) {
+                return block;
+            }
+        }
+        return reserveScattered(accountId, noOfSeats);
+    }
+
+    public void release(SeatAllocation allocation) {
+        if(!screeningId.equals(allocation.screeningId())) {
+            throw new IllegalArgumentException("Allocation is for screening " + allocation.screeningId());
+        }
+        /*
+        * Only seats still taken are given back, so releasing the same allocation twice cannot free capacity twice
+        * */
+        int released = 0;
+        for(int i = 0; i < allocation.rows().length; i++) {
+            int row = allocation.rows()[i];
+            long seats = allocation.seatMasks()[i] & rowMask;
+            long taken;
+            do {
+                taken = rows.get(row);
+            } while((taken & seats) != 0 && !rows.compareAndSet(row, taken, taken & ~seats));
+            if((taken & seats) != 0) {
+                released += Long.bitCount(taken & seats);
+                refreshLongestFreeRun(row);
+            }
+        }
+        freeSeats.addAndGet(released);
+    }
+
+    public int getFreeSeats() {
+        return freeSeats.get();
+    }
+
+    public String getScreeningId() {
+        return screeningId;
+    }
+
+    private void claimCapacity(int noOfSeats) {
+        int free;
+        do {
+            free = freeSeats.get();
+            if(free < noOfSeats) {
+                throw new SeatCapacityExhaustedException("Only " + free + " seats left for screening " + screeningId);
+            }
+        } while(!freeSeats.compareAndSet(free, free - noOfSeats));
+    }
+
+    /*
+    * Takes the first run of noOfSeats free seats in the first row the free-run index says can fit them,
+    * or returns null when no row can. A row that turns out not to fit is refreshed in the index before looking again
+    * */
+    private SeatAllocation reserveBlock(long accountId, int noOfSeats) {
+        for(int row = firstRowFitting(noOfSeats); row >= 0; row = firstRowFitting(noOfSeats)) {
+            long taken = rows.get(row);
+            long runStarts = runStarts(~taken & rowMask, noOfSeats);
+            if(runStarts == 0) {
+                refreshLongestFreeRun(row);
+                continue;
+            }
+            long seats = blockMask(noOfSeats) << Long.numberOfTrailingZeros(runStarts);
+            if(rows.compareAndSet(row, taken, taken | seats)) {
+                refreshLongestFreeRun(row);
+                return new SeatAllocation(screeningId, accountId, new int[]{row}, new long[]{seats});
+            }
+        }
+        return null;
+    }
+
+    /*
+    * Walks down the index towards the leftmost row whose longest free run is at least length, or returns -1.
+    * A node promising more than its children hold is stale from a concurrent update; it is recomputed and the walk
+    * starts again
+    * */
+    private int firstRowFitting(int length) {
+        while(freeRunIndex.get(1) >= length) {
+            int node = 1;
+            while(node < leaves) {
+                if(freeRunIndex.get(2 * node) >= length) {
+                    node = 2 * node;
+                } else if(freeRunIndex.get(2 * node + 1) >= length) {
+                    node = 2 * node + 1;
+                } else {
+                    break;
+                }
+            }
+            if(node >= leaves) {
+                return node - leaves;
+            }
+            updateAncestors(2 * node);
+        }
+        return -1;
+    }
+
+    /*
+    * Capacity has already been claimed, so free seats are guaranteed to turn up even if other threads
+    * take some of those seen on the first pass
+    * */
+    private SeatAllocation reserveScattered(long accountId, int noOfSeats) {
+        int[] allocatedRows = new int[rows.length()];
+        long[] seatMasks = new long[rows.length()];
+        int remaining = noOfSeats;
+        while(remaining > 0) {
+            for(int row = 0; row < rows.length() && remaining > 0; row++) {
+                long taken = rows.get(row);
+                long free = ~taken & rowMask;
+                if(free == 0) {
+                    continue;
+                }
+                long seats = lowestBits(free, remaining);
+                if(rows.compareAndSet(row, taken, taken | seats)) {
+                    seatMasks[row] |= seats;
+                    remaining -= Long.bitCount(seats);
+                    refreshLongestFreeRun(row);
+                }
+            }
+        }
+
+        int used = 0;
+        for(int row = 0; row < seatMasks.length; row++) {
+            if(seatMasks[row] != 0) {
+                allocatedRows[used] = row;
+                seatMasks[used++] = seatMasks[row];
+            }
+        }
+        return new SeatAllocation(screeningId, accountId, Arrays.copyOf(allocatedRows, used), Arrays.copyOf(seatMasks, used));
+    }
+
+    /*
+    * The index is only a hint, re-read until the row did not change underneath it
+    * */
+    private void refreshLongestFreeRun(int row) {
+        long taken;
+        do {
+            taken = rows.get(row);
+            freeRunIndex.set(leaves + row, longestRun(~taken & rowMask));
+        } while(rows.get(row) != taken);
+        updateAncestors(leaves + row);
+    }
+
+    /*
+    * Recomputes every node above a changed one from its children, again until they hold still, so whichever thread
+    * changes a child last also leaves the nodes above it right
+    * */
+    private void updateAncestors(int node) {
+        for(int parent = node >>> 1; parent > 0; parent >>>= 1) {
+            int left;
+            int right;
+            do {
+                left = freeRunIndex.get(2 * parent);
+                right = freeRunIndex.get(2 * parent + 1);
+                freeRunIndex.set(parent, Math.max(left, right));
+            } while(freeRunIndex.get(2 * parent) != left || freeRunIndex.get(2 * parent + 1) != right);
+        }
+    }
+
+    /*
+    * Bit i is set when seats i .. i + length - 1 are all free
+    * */
+    static long runStarts(long free, int length) {
+        long starts = free;
+        int covered = 1;
+        while(covered < length && starts != 0) {
+            int shift = Math.min(covered, length - covered);
+            starts &= starts >>> shift;
+            covered += shift;
+        }
+        return starts;
+    }
+
+    static int longestRun(long free) {
+        int length = 0;
+        while(free != 0) {
+            free &= free >>> 1;
+            length++;
+        }
+        return length;
+    }
+
+    private static long blockMask(int noOfSeats) {
+        return noOfSeats == Long.SIZE ? -1L : (1L << noOfSeats) - 1;
+    }
+
+    private static long lowestBits(long bits, int count) {
+        long selected = 0;
+        for(int i = 0; i < count && bits != 0; i++) {
+            long lowest = Long.lowestOneBit(bits);
+            selected |= lowest;
+            bits &= ~lowest;
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,100 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.AdmissionControlledTicketService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.PurchaseOverloadException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+
+public class AdmissionControlledTicketServiceTest {
+
+    AtomicInteger purchases = new AtomicInteger();
+    TicketService counting = (account, requests) -> purchases.incrementAndGet();
+
+    @Test
+    public void test_AccountBurst_IsShed_WithOverloadException() {
+
+        AdmissionControlledTicketService ticketService = new AdmissionControlledTicketService(counting,
+                new AdmissionControlledTicketService.Limits(1_000, 10, 1_000, 0.001, 3,
+                        Duration.ofSeconds(1), Duration.ofSeconds(1)));
+
+        for(int i = 0; i < 3; i++) {
+            ticketService.purchaseTickets(1L, new TicketTypeRequest(ADULT, 1));
+        }
+        InvalidPurchaseException e = assertThrows(PurchaseOverloadException.class,
+                () -> ticketService.purchaseTickets(1L, new TicketTypeRequest(ADULT, 1)));
+        ticketService.purchaseTickets(2L, new TicketTypeRequest(ADULT, 1));
+
+        assertEquals("Too many purchases for this account, please try again later", e.getMessage());
+        assertEquals(4, purchases.get());
+        assertEquals(1, ticketService.getShedCount());
+    }
+
+    @Test
+    public void test_GlobalBurst_IsShed() {
+
+        AdmissionControlledTicketService ticketService = new AdmissionControlledTicketService(counting,
+                new AdmissionControlledTicketService.Limits(0.001, 0.001, 5, 1_000, 1_000,
+                        Duration.ofSeconds(1), Duration.ofSeconds(1)));
+
+        for(long account = 1; account <= 5; account++) {
+            ticketService.purchaseTickets(account, new TicketTypeRequest(ADULT, 1));
+        }
+
+        assertThrows(PurchaseOverloadException.class,
+                () -> ticketService.purchaseTickets(6L, new TicketTypeRequest(ADULT, 1)));
+    }
+
+    @Test
+    public void test_GlobalRefusal_RefundsTheAccountToken() {
+
+        AdmissionControlledTicketService ticketService = new AdmissionControlledTicketService(counting,
+                new AdmissionControlledTicketService.Limits(0.001, 0.001, 1, 0.001, 1,
+                        Duration.ofSeconds(1), Duration.ofSeconds(1)));
+        ticketService.purchaseTickets(2L, new TicketTypeRequest(ADULT, 1));
+
+        for(int i = 0; i < 3; i++) {
+            InvalidPurchaseException e = assertThrows(PurchaseOverloadException.class,
+                    () -> ticketService.purchaseTickets(1L, new TicketTypeRequest(ADULT, 1)));
+            assertEquals("Too many purchases, please try again later", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_BurstAboveBucketCapacity_IsRefused() {
+
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionControlledTicketService.Limits(
+                1_000, 10, 16_778, 1_000, 1_000, Duration.ofSeconds(1), Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionControlledTicketService.Limits(
+                1_000, 10, 1_000, 1_000, 100_000, Duration.ofSeconds(1), Duration.ofSeconds(1)));
+    }
+
+    @Test
+    public void test_GlobalRate_IsCut_WhenDownstreamIsSlow() throws Exception {
+
+        TicketService slow = (account, requests) -> {
+            try {
+                Thread.sleep(3);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        AdmissionControlledTicketService ticketService = new AdmissionControlledTicketService(slow,
+                new AdmissionControlledTicketService.Limits(1_000, 10, 1_000, 1_000, 1_000,
+                        Duration.ofMillis(1), Duration.ofMillis(1)));
+
+        for(int i = 0; i < 20; i++) {
+            ticketService.purchaseTickets(1L, new TicketTypeRequest(ADULT, 1));
+        }
+
+        assertTrue(ticketService.getGlobalRatePerSecond() < 1_000);
+    }
+}
@@ -0,0 +1,134 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.AsyncTicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.sales.SalesAggregates;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+
+public class AsyncTicketServiceTest {
+
+    long accountId = 1;
+
+    TicketPaymentService ticketPaymentService;
+    SeatReservationService seatReservationService;
+    TicketPriceLookupService ticketPriceLookupService;
+    CinemaTicketsConfigService cinemaTicketsConfigService;
+
+    AsyncTicketServiceImpl ticketService;
+
+    @BeforeEach
+    public void setUp() {
+
+        ticketPaymentService = mock(TicketPaymentService.class);
+        seatReservationService = mock(SeatReservationService.class);
+        ticketPriceLookupService = mock(TicketPriceLookupService.class);
+        cinemaTicketsConfigService = mock(CinemaTicketsConfigService.class);
+
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_PURCHASE_TICKETS)).thenReturn(25);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT)).thenReturn(7);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT)).thenReturn(3);
+        when(ticketPriceLookupService.priceFor(ADULT)).thenReturn(25);
+        when(ticketPriceLookupService.priceFor(CHILD)).thenReturn(15);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if(ticketService != null) {
+            ticketService.close();
+        }
+    }
+
+    @Test
+    public void test_Purchase_PaysThenReserves() throws Exception {
+
+        ticketService = new AsyncTicketServiceImpl(ticketPaymentService, seatReservationService,
+                ticketPriceLookupService, cinemaTicketsConfigService, 4, 4);
+
+        ticketService.purchaseTickets(accountId, new TicketTypeRequest(ADULT, 1), new TicketTypeRequest(CHILD, 1))
+                .get(5, TimeUnit.SECONDS);
+
+        InOrder order = inOrder(ticketPaymentService, seatReservationService);
+        order.verify(ticketPaymentService).makePayment(accountId, 40);
+        order.verify(seatReservationService).reserveSeat(accountId, 2);
+    }
+
+    @Test
+    public void test_CompletedPurchase_IsCountedAsASale() throws Exception {
+
+        SalesAggregates sales = new SalesAggregates();
+        ticketService = new AsyncTicketServiceImpl(ticketPaymentService, seatReservationService,
+                ticketPriceLookupService, cinemaTicketsConfigService, 4, 4, sales);
+
+        ticketService.purchaseTickets(accountId, new TicketTypeRequest(ADULT, 1), new TicketTypeRequest(CHILD, 1))
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(40, sales.snapshot().revenue());
+        assertEquals(1, sales.snapshot().ticketsSold().get(CHILD));
+    }
+
+    @Test
+    public void test_InvalidPurchase_IsRejectedSynchronously() {
+
+        ticketService = new AsyncTicketServiceImpl(ticketPaymentService, seatReservationService,
+                ticketPriceLookupService, cinemaTicketsConfigService, 4, 4);
+
+        InvalidPurchaseException e = assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets(accountId, new TicketTypeRequest(CHILD, 1)));
+
+        assertEquals("Infants or Child only purchase not allowed", e.getMessage());
+        verify(ticketPaymentService, never()).makePayment(anyLong(), anyInt());
+        verify(seatReservationService, never()).reserveSeat(anyLong(), anyInt());
+    }
+
+    @Test
+    public void test_PaymentConcurrency_IsBounded() throws Exception {
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        TicketPaymentService slowPaymentService = (account, amount) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+        };
+        ticketService = new AsyncTicketServiceImpl(slowPaymentService, seatReservationService,
+                ticketPriceLookupService, cinemaTicketsConfigService, 2, 8);
+
+        List<CompletableFuture<Void>> purchases = IntStream.range(0, 50)
+                .mapToObj(i -> ticketService.purchaseTickets(accountId, new TicketTypeRequest(ADULT, 1)))
+                .toList();
+        CompletableFuture.allOf(purchases.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        assertTrue(maxInFlight.get() <= 2);
+    }
+}
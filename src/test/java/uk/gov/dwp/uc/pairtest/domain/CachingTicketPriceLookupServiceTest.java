@@ -0,0 +1,134 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
+
+public class CachingTicketPriceLookupServiceTest {
+
+    TicketPriceLookupService source;
+
+    @BeforeEach
+    public void setUp() {
+
+        source = mock(TicketPriceLookupService.class);
+
+        when(source.priceFor(ADULT)).thenReturn(25);
+        when(source.priceFor(CHILD)).thenReturn(15);
+        when(source.priceFor(INFANT)).thenReturn(0);
+    }
+
+    @Test
+    public void test_Prices_AreLoadedOnce_WithinTimeToLive() {
+
+        CachingTicketPriceLookupService prices = new CachingTicketPriceLookupService(source, Duration.ofHours(1));
+
+        assertEquals(25, prices.priceFor(ADULT));
+        assertEquals(15, prices.priceFor(CHILD));
+        assertEquals(25, prices.priceFor(ADULT));
+
+        verify(source, times(1)).priceFor(ADULT);
+        assertEquals(1, prices.getLoadCount());
+        assertEquals(1, prices.getMissCount());
+        assertEquals(2, prices.getHitCount());
+    }
+
+    @Test
+    public void test_Invalidate_ReloadsFromSource() {
+
+        CachingTicketPriceLookupService prices = new CachingTicketPriceLookupService(source, Duration.ofHours(1));
+        prices.priceFor(ADULT);
+        when(source.priceFor(ADULT)).thenReturn(30);
+
+        prices.invalidate();
+
+        assertEquals(30, prices.priceFor(ADULT));
+        assertEquals(2, prices.getLoadCount());
+    }
+
+    @Test
+    public void test_PriceChange_IsUsedForWholeOrder() {
+
+        CachingTicketPriceLookupService prices = new CachingTicketPriceLookupService(source, Duration.ofHours(1));
+        CinemaTicketsConfigService cinemaTicketsConfigService = mock(CinemaTicketsConfigService.class);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_PURCHASE_TICKETS)).thenReturn(25);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT)).thenReturn(7);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT)).thenReturn(3);
+        TicketPaymentService ticketPaymentService = mock(TicketPaymentService.class);
+        TicketService ticketService = new TicketServiceImpl(ticketPaymentService,
+                mock(SeatReservationService.class), prices, cinemaTicketsConfigService);
+
+        prices.onPriceChange(Map.of(ADULT, 20, CHILD, 10, INFANT, 0));
+        ticketService.purchaseTickets(1L, new TicketTypeRequest(ADULT, 1), new TicketTypeRequest(CHILD, 1));
+
+        verify(ticketPaymentService, times(1)).makePayment(1L, 30);
+        verify(source, times(0)).priceFor(ADULT);
+    }
+
+    @Test
+    public void test_FailedReload_KeepsServingStaleTable() throws Exception {
+
+        CachingTicketPriceLookupService prices = new CachingTicketPriceLookupService(source, Duration.ofMillis(1));
+        prices.priceFor(ADULT);
+        when(source.priceFor(ADULT)).thenThrow(new IllegalStateException("price service unavailable"));
+        Thread.sleep(5);
+
+        assertEquals(25, prices.priceFor(ADULT));
+        awaitUntil(() -> prices.getFailureCount());
+        assertEquals(25, prices.priceFor(ADULT));
+        assertEquals("price service unavailable", prices.getLastFailure().getMessage());
+    }
+
+    @Test
+    public void test_SlowReload_NeverReplacesNewerPriceChange() throws Exception {
+
+        CachingTicketPriceLookupService prices = new CachingTicketPriceLookupService(source, Duration.ofMillis(1));
+        prices.priceFor(ADULT);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(source.priceFor(ADULT)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return 40;
+        });
+        Thread.sleep(5);
+
+        assertEquals(25, prices.priceFor(ADULT));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        prices.onPriceChange(Map.of(ADULT, 20, CHILD, 10, INFANT, 0));
+        release.countDown();
+        awaitUntil(() -> prices.getDiscardedLoadCount());
+
+        assertEquals(20, prices.loadedTable().priceFor(ADULT));
+    }
+
+    private static void awaitUntil(LongSupplier count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while(count.getAsLong() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, count.getAsLong());
+    }
+}
@@ -0,0 +1,143 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.rules.CompiledRules;
+import uk.gov.dwp.uc.pairtest.rules.DecisionTable;
+import uk.gov.dwp.uc.pairtest.rules.PurchaseRules;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
+
+public class DecisionTableTest {
+
+    @Mock
+    TicketPaymentService ticketPaymentService;
+    @Mock
+    SeatReservationService seatReservationService;
+    @Mock
+    TicketPriceLookupService ticketPriceLookupService;
+    @Mock
+    CinemaTicketsConfigService cinemaTicketsConfigService;
+
+    Map<String, Integer> config = Map.of(KEY_MAX_PURCHASE_TICKETS, 25, KEY_MAX_CHILDREN_WITH_ADULT, 7,
+            KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT, 3);
+
+    PriceTable prices = PriceTable.of(Map.of(ADULT, 25, CHILD, 15, INFANT, 0));
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_PURCHASE_TICKETS)).thenReturn(25);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT)).thenReturn(7);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT)).thenReturn(3);
+        when(ticketPriceLookupService.priceFor(ADULT)).thenReturn(25);
+        when(ticketPriceLookupService.priceFor(CHILD)).thenReturn(15);
+        when(ticketPriceLookupService.priceFor(INFANT)).thenReturn(0);
+    }
+
+    @Test
+    public void test_EveryEntry_MatchesTheCompiledRules() {
+
+        CompiledRules rules = PurchaseRules.DEFAULT.compile(config::get);
+        DecisionTable table = DecisionTable.build(rules, 25, prices);
+
+        for(int adults = 0; adults <= 25; adults++) {
+            for(int children = 0; children <= 25; children++) {
+                for(int infants = 0; infants <= 25; infants++) {
+                    assertEntry(table, rules, TicketOrder.of(adults, children, infants));
+                }
+            }
+        }
+    }
+
+    private void assertEntry(DecisionTable table, CompiledRules rules, TicketOrder order) {
+        int index = table.indexOf(order);
+        assertTrue(index >= 0, order::toString);
+        assertEquals(rules.violations(order), table.violations(index), order::toString);
+        assertEquals(rules.firstBroken(order), table.firstBroken(index), order::toString);
+        assertEquals(order.getAdults() * 25 + order.getChildren() * 15, table.totalPrice(index), order::toString);
+    }
+
+    @Test
+    public void test_OrdersOutsideTheTable_AreNotIndexed() {
+
+        DecisionTable table = DecisionTable.build(PurchaseRules.DEFAULT.compile(config::get), 25, null);
+
+        assertFalse(table.isPriced());
+        assertEquals(-1, table.indexOf(TicketOrder.of(26, 0, 0)));
+        assertEquals(-1, table.indexOf(TicketOrder.from(TicketTypeRequest.of(ADULT, 1), TicketTypeRequest.of(ADULT, 1))));
+        assertEquals(-1, table.indexOf(TicketOrder.from(TicketTypeRequest.of(ADULT, 1), TicketTypeRequest.of(INFANT, 0))));
+        assertEquals(table.indexOf(TicketOrder.of(2, 3, 0)),
+                table.indexOf(TicketOrder.from(TicketTypeRequest.of(CHILD, 3), TicketTypeRequest.of(ADULT, 2))));
+        assertEquals(-1, table.indexOf(TicketOrder.from(new TicketTypeRequest(ADULT, 2), new TicketTypeRequest(CHILD, -1))));
+    }
+
+    @Test
+    public void test_LargeLimits_AreCappedInTableSize() {
+
+        DecisionTable table = DecisionTable.build(PurchaseRules.DEFAULT.compile(config::get), 1_000, null);
+
+        int counts = DecisionTable.MAX_TICKETS_PER_TYPE + 1;
+        assertEquals(counts * counts * counts, table.size());
+        assertEquals(-1, table.indexOf(TicketOrder.of(counts, 0, 0)));
+    }
+
+    @Test
+    public void test_Quote_NeverPaysOrReserves() {
+
+        TicketServiceImpl ticketService = new TicketServiceImpl(ticketPaymentService, seatReservationService,
+                ticketPriceLookupService, cinemaTicketsConfigService);
+
+        PurchaseResult accepted = ticketService.quote(1L, TicketTypeRequest.of(ADULT, 2), TicketTypeRequest.of(CHILD, 3));
+        PurchaseResult rejected = ticketService.quote(0L, TicketTypeRequest.of(CHILD, 3));
+
+        assertTrue(accepted.isAccepted());
+        assertEquals(95, accepted.totalAmountToPay());
+        assertEquals(5, accepted.totalSeatsToAllocate());
+        InvalidPurchaseException exception = assertThrows(InvalidPurchaseException.class,
+                () -> new TicketServiceImpl(ticketPaymentService, seatReservationService, ticketPriceLookupService,
+                        cinemaTicketsConfigService).purchaseTickets(0L, TicketTypeRequest.of(CHILD, 3)));
+        assertEquals(exception.getMessage(), rejected.error());
+        verifyNoInteractions(ticketPaymentService, seatReservationService);
+    }
+
+    @Test
+    public void test_Quote_FollowsPriceChanges() {
+
+        CachingTicketPriceLookupService caching = new CachingTicketPriceLookupService(ticketPriceLookupService,
+                Duration.ofHours(1));
+        TicketServiceImpl ticketService = new TicketServiceImpl(ticketPaymentService, seatReservationService,
+                caching, cinemaTicketsConfigService);
+
+        for(int i = 0; i < 1_000; i++) {
+            assertEquals(65, ticketService.quote(1L, TicketTypeRequest.of(ADULT, 2), TicketTypeRequest.of(CHILD, 1))
+                    .totalAmountToPay());
+        }
+        caching.onPriceChange(Map.of(ADULT, 30, CHILD, 20, INFANT, 0));
+
+        for(int i = 0; i < 1_000; i++) {
+            assertEquals(80, ticketService.quote(1L, TicketTypeRequest.of(ADULT, 2), TicketTypeRequest.of(CHILD, 1))
+                    .totalAmountToPay());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.FailFastTicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.exception.PurchaseRejectedException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
+
+public class FailFastTicketServiceTest {
+
+    @Mock
+    TicketPaymentService ticketPaymentService;
+    @Mock
+    SeatReservationService seatReservationService;
+    @Mock
+    TicketPriceLookupService ticketPriceLookupService;
+    @Mock
+    CinemaTicketsConfigService cinemaTicketsConfigService;
+
+    TicketServiceImpl ticketService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_PURCHASE_TICKETS)).thenReturn(25);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT)).thenReturn(7);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT)).thenReturn(3);
+        when(ticketPriceLookupService.priceFor(ADULT)).thenReturn(25);
+        when(ticketPriceLookupService.priceFor(CHILD)).thenReturn(15);
+        when(ticketPriceLookupService.priceFor(INFANT)).thenReturn(0);
+        ticketService = new TicketServiceImpl(ticketPaymentService, seatReservationService, ticketPriceLookupService,
+                cinemaTicketsConfigService);
+    }
+
+    @Test
+    public void test_TryPurchase_ReturnsFirstBrokenRule_WithoutCallingDownstream() {
+
+        assertEquals(PurchaseCode.ACCOUNT_ID, ticketService.tryPurchaseTickets(0L, TicketOrder.of(0, 1, 0)));
+        assertEquals(PurchaseCode.REQUESTS_EXIST, ticketService.tryPurchaseTickets(1L, TicketOrder.EMPTY));
+        assertEquals(PurchaseCode.ADULT_PRESENT, ticketService.tryPurchaseTickets(1L, TicketOrder.of(0, 1, 1)));
+        assertEquals(PurchaseCode.ENOUGH_ADULTS_FOR_CHILDREN, ticketService.tryPurchaseTickets(1L,
+                new TicketTypeRequest(ADULT, 1), new TicketTypeRequest(CHILD, 4), new TicketTypeRequest(INFANT, 1)));
+
+        verify(ticketPaymentService, never()).makePayment(anyLong(), anyInt());
+        verify(seatReservationService, never()).reserveSeat(anyLong(), anyInt());
+    }
+
+    @Test
+    public void test_TryPurchase_AcceptedOrder_IsPaidAndReserved() {
+
+        assertEquals(PurchaseCode.ACCEPTED, ticketService.tryPurchaseTickets(1L, TicketOrder.of(2, 2, 1)));
+
+        verify(ticketPaymentService).makePayment(1L, 80);
+        verify(seatReservationService).reserveSeat(1L, 5);
+    }
+
+    @Test
+    public void test_FailFastService_ThrowsSharedStacklessException() {
+
+        FailFastTicketService failFast = new FailFastTicketService(ticketService);
+
+        PurchaseRejectedException first = assertThrows(PurchaseRejectedException.class,
+                () -> failFast.purchaseTickets(1L, new TicketTypeRequest(INFANT, 1)));
+        PurchaseRejectedException second = assertThrows(PurchaseRejectedException.class,
+                () -> failFast.purchaseTickets(2L, new TicketTypeRequest(CHILD, 1)));
+
+        assertSame(first, second);
+        assertEquals(PurchaseCode.ADULT_PRESENT, first.getCode());
+        assertEquals("Infants or Child only purchase not allowed", first.getMessage());
+        assertEquals(0, first.getStackTrace().length);
+    }
+}
@@ -0,0 +1,169 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.HoldConfirmTicketService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.exception.SeatCapacityExhaustedException;
+import uk.gov.dwp.uc.pairtest.sales.SalesAggregates;
+import uk.gov.dwp.uc.pairtest.exception.SeatHoldExpiredException;
+import uk.gov.dwp.uc.pairtest.seating.InventorySeatHoldService;
+import uk.gov.dwp.uc.pairtest.seating.SeatHold;
+import uk.gov.dwp.uc.pairtest.seating.SeatHoldService;
+import uk.gov.dwp.uc.pairtest.seating.SeatInventory;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+
+public class HoldConfirmTicketServiceTest {
+
+    long accountId = 1;
+
+    TicketPaymentService ticketPaymentService;
+    TicketPriceLookupService ticketPriceLookupService;
+    CinemaTicketsConfigService cinemaTicketsConfigService;
+    SeatInventory inventory;
+    InventorySeatHoldService seatHoldService;
+
+    @BeforeEach
+    public void setUp() {
+
+        ticketPaymentService = mock(TicketPaymentService.class);
+        ticketPriceLookupService = mock(TicketPriceLookupService.class);
+        cinemaTicketsConfigService = mock(CinemaTicketsConfigService.class);
+
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_PURCHASE_TICKETS)).thenReturn(25);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT)).thenReturn(7);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT)).thenReturn(3);
+        when(ticketPriceLookupService.priceFor(ADULT)).thenReturn(25);
+
+        inventory = new SeatInventory("screen-1", 1, 4);
+        seatHoldService = new InventorySeatHoldService(inventory, Duration.ofMinutes(5), Duration.ofMillis(10));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        seatHoldService.close();
+    }
+
+    @Test
+    public void test_Purchase_HoldsPaysAndConfirms() {
+
+        TicketService ticketService = new HoldConfirmTicketService(ticketPaymentService, seatHoldService,
+                ticketPriceLookupService, cinemaTicketsConfigService);
+
+        ticketService.purchaseTickets(accountId, new TicketTypeRequest(ADULT, 3));
+
+        verify(ticketPaymentService, times(1)).makePayment(accountId, 75);
+        assertEquals(1, inventory.getFreeSeats());
+    }
+
+    @Test
+    public void test_OnlyConfirmedPurchases_AreCountedAsSales() {
+
+        SalesAggregates sales = new SalesAggregates();
+        TicketService ticketService = new HoldConfirmTicketService(ticketPaymentService, seatHoldService,
+                ticketPriceLookupService, cinemaTicketsConfigService, sales);
+
+        ticketService.purchaseTickets(accountId, new TicketTypeRequest(ADULT, 3));
+        assertThrows(SeatCapacityExhaustedException.class,
+                () -> ticketService.purchaseTickets(accountId, new TicketTypeRequest(ADULT, 2)));
+
+        assertEquals(75, sales.snapshot().revenue());
+        assertEquals(3, sales.snapshot().ticketsSold().get(ADULT));
+    }
+
+    @Test
+    public void test_NoSeats_FailsBeforePayment() {
+
+        TicketService ticketService = new HoldConfirmTicketService(ticketPaymentService, seatHoldService,
+                ticketPriceLookupService, cinemaTicketsConfigService);
+
+        assertThrows(SeatCapacityExhaustedException.class,
+                () -> ticketService.purchaseTickets(accountId, new TicketTypeRequest(ADULT, 5)));
+
+        verify(ticketPaymentService, never()).makePayment(anyLong(), anyInt());
+    }
+
+    @Test
+    public void test_FailedPayment_ReleasesHold() {
+
+        doThrow(new IllegalStateException("payment declined")).when(ticketPaymentService).makePayment(accountId, 50);
+        TicketService ticketService = new HoldConfirmTicketService(ticketPaymentService, seatHoldService,
+                ticketPriceLookupService, cinemaTicketsConfigService);
+
+        assertThrows(IllegalStateException.class,
+                () -> ticketService.purchaseTickets(accountId, new TicketTypeRequest(ADULT, 2)));
+
+        assertEquals(4, inventory.getFreeSeats());
+    }
+
+    @Test
+    public void test_ExpiredHold_IsReleasedBySweeper_AndCannotBeConfirmed() throws Exception {
+
+        try (InventorySeatHoldService shortHolds = new InventorySeatHoldService(inventory, Duration.ofMillis(20), Duration.ofMillis(5))) {
+            SeatHold hold = shortHolds.hold(accountId, 4);
+            assertEquals(0, inventory.getFreeSeats());
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while(inventory.getFreeSeats() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+
+            assertEquals(4, inventory.getFreeSeats());
+            assertEquals(1, shortHolds.getExpiredCount());
+            assertThrows(SeatHoldExpiredException.class, () -> shortHolds.confirm(hold));
+        }
+    }
+
+    @Test
+    public void test_HoldOutlivingItsDeadline_DuringPayment_IsStillConfirmed() {
+
+        try (InventorySeatHoldService shortHolds = new InventorySeatHoldService(inventory, Duration.ofMillis(20), Duration.ofMillis(5))) {
+            doAnswer(invocation -> {
+                Thread.sleep(100);
+                return null;
+            }).when(ticketPaymentService).makePayment(accountId, 50);
+            TicketService ticketService = new HoldConfirmTicketService(ticketPaymentService, shortHolds,
+                    ticketPriceLookupService, cinemaTicketsConfigService);
+
+            ticketService.purchaseTickets(accountId, new TicketTypeRequest(ADULT, 2));
+
+            assertEquals(2, inventory.getFreeSeats());
+            assertEquals(0, shortHolds.getExpiredCount());
+        }
+    }
+
+    @Test
+    public void test_DefaultAdapter_ReservesAfterPayment() {
+
+        SeatReservationService seatReservationService = mock(SeatReservationService.class);
+        TicketService ticketService = new HoldConfirmTicketService(ticketPaymentService,
+                SeatHoldService.reserveOnConfirm(seatReservationService), ticketPriceLookupService, cinemaTicketsConfigService);
+
+        ticketService.purchaseTickets(accountId, new TicketTypeRequest(ADULT, 2));
+
+        var order = inOrder(ticketPaymentService, seatReservationService);
+        order.verify(ticketPaymentService).makePayment(accountId, 50);
+        order.verify(seatReservationService).reserveSeat(accountId, 2);
+    }
+}
@@ -0,0 +1,238 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.IdempotentTicketService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.PurchaseOverloadException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+
+public class IdempotentTicketServiceTest {
+
+    long accountId = 1;
+    AtomicInteger purchases;
+
+    @BeforeEach
+    public void setUp() {
+        purchases = new AtomicInteger();
+    }
+
+    @Test
+    public void test_RetriedPurchase_RunsOnce() {
+
+        IdempotentTicketService ticketService = new IdempotentTicketService(
+                (account, requests) -> purchases.incrementAndGet(), 1024, Duration.ofMinutes(5));
+
+        ticketService.purchaseTickets("req-1", accountId, new TicketTypeRequest(ADULT, 1));
+        ticketService.purchaseTickets("req-1", accountId, new TicketTypeRequest(ADULT, 1));
+        ticketService.purchaseTickets("req-2", accountId, new TicketTypeRequest(ADULT, 1));
+
+        assertEquals(2, purchases.get());
+    }
+
+    @Test
+    public void test_ConcurrentDuplicates_WaitForInFlightPurchase() throws Exception {
+
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TicketService slowTicketService = (account, requests) -> {
+            purchases.incrementAndGet();
+            inFlight.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        IdempotentTicketService ticketService = new IdempotentTicketService(slowTicketService, 1024, Duration.ofMinutes(5));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for(int i = 0; i < 8; i++) {
+                executor.submit(() -> ticketService.purchaseTickets("req-1", accountId, new TicketTypeRequest(ADULT, 1)));
+            }
+            assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+            release.countDown();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, purchases.get());
+    }
+
+    @Test
+    public void test_RejectedPurchase_IsRemembered() {
+
+        IdempotentTicketService ticketService = new IdempotentTicketService((account, requests) -> {
+            purchases.incrementAndGet();
+            throw new InvalidPurchaseException("Infants or Child only purchase not allowed");
+        }, 1024, Duration.ofMinutes(5));
+
+        assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets("req-1", accountId, new TicketTypeRequest(CHILD, 1)));
+        InvalidPurchaseException e = assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets("req-1", accountId, new TicketTypeRequest(CHILD, 1)));
+
+        assertEquals("Infants or Child only purchase not allowed", e.getMessage());
+        assertEquals(1, purchases.get());
+    }
+
+    @Test
+    public void test_FailedPurchase_CanBeRetried() {
+
+        IdempotentTicketService ticketService = new IdempotentTicketService((account, requests) -> {
+            if(purchases.incrementAndGet() == 1) {
+                throw new IllegalStateException("payment gateway unavailable");
+            }
+        }, 1024, Duration.ofMinutes(5));
+
+        assertThrows(IllegalStateException.class,
+                () -> ticketService.purchaseTickets("req-1", accountId, new TicketTypeRequest(ADULT, 1)));
+        ticketService.purchaseTickets("req-1", accountId, new TicketTypeRequest(ADULT, 1));
+
+        assertEquals(2, purchases.get());
+    }
+
+    @Test
+    public void test_ShedPurchase_CanBeRetried() {
+
+        IdempotentTicketService ticketService = new IdempotentTicketService((account, requests) -> {
+            if(purchases.incrementAndGet() == 1) {
+                throw new PurchaseOverloadException("Too many purchases in progress, please try again later");
+            }
+        }, 1024, Duration.ofMinutes(5));
+
+        assertThrows(PurchaseOverloadException.class,
+                () -> ticketService.purchaseTickets("req-1", accountId, new TicketTypeRequest(ADULT, 1)));
+        ticketService.purchaseTickets("req-1", accountId, new TicketTypeRequest(ADULT, 1));
+
+        assertEquals(2, purchases.get());
+    }
+
+    @Test
+    public void test_ReusedRequestId_ForDifferentPurchase_IsRejected() {
+
+        IdempotentTicketService ticketService = new IdempotentTicketService(
+                (account, requests) -> purchases.incrementAndGet(), 1024, Duration.ofMinutes(5));
+
+        ticketService.purchaseTickets("req-1", accountId, new TicketTypeRequest(ADULT, 1));
+        InvalidPurchaseException otherOrder = assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets("req-1", accountId, new TicketTypeRequest(ADULT, 2)));
+        assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets("req-1", 2L, new TicketTypeRequest(ADULT, 1)));
+        ticketService.purchaseTickets("req-1", accountId, new TicketTypeRequest(ADULT, 1));
+
+        assertEquals("Request Id was already used for a different purchase", otherOrder.getMessage());
+        assertEquals(1, purchases.get());
+    }
+
+    @Test
+    public void test_ExpiredOutcome_IsEvicted() throws Exception {
+
+        IdempotentTicketService ticketService = new IdempotentTicketService(
+                (account, requests) -> purchases.incrementAndGet(), 1024, Duration.ofMillis(1));
+
+        ticketService.purchaseTickets("req-1", accountId, new TicketTypeRequest(ADULT, 1));
+        Thread.sleep(5);
+        ticketService.purchaseTickets("req-1", accountId, new TicketTypeRequest(ADULT, 1));
+
+        assertEquals(2, purchases.get());
+    }
+
+    @Test
+    public void test_FullStripe_NeverForgetsAnInFlightPurchase() throws Exception {
+
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IdempotentTicketService ticketService = new IdempotentTicketService((account, requests) -> {
+            purchases.incrementAndGet();
+            if(account == 1L) {
+                inFlight.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, 64, Duration.ofMinutes(5));
+        String blocked = "req-0";
+        String sameStripe = "req-1";
+        for(int i = 2; stripe(sameStripe) != stripe(blocked); i++) {
+            sameStripe = "req-" + i;
+        }
+
+        Thread first = Thread.ofVirtual().start(
+                () -> ticketService.purchaseTickets(blocked, 1L, new TicketTypeRequest(ADULT, 1)));
+        assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+        String other = sameStripe;
+        assertThrows(PurchaseOverloadException.class,
+                () -> ticketService.purchaseTickets(other, 2L, new TicketTypeRequest(ADULT, 1)));
+        Thread duplicate = Thread.ofVirtual().start(
+                () -> ticketService.purchaseTickets(blocked, 1L, new TicketTypeRequest(ADULT, 1)));
+        release.countDown();
+        first.join();
+        duplicate.join();
+        ticketService.purchaseTickets(other, 2L, new TicketTypeRequest(ADULT, 1));
+
+        assertEquals(2, purchases.get());
+    }
+
+    @Test
+    public void test_ExpiredOutcome_BehindAnInFlightPurchase_IsEvicted() throws Exception {
+
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IdempotentTicketService ticketService = new IdempotentTicketService((account, requests) -> {
+            purchases.incrementAndGet();
+            if(account == 1L) {
+                inFlight.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, 1024, Duration.ofMillis(1));
+        String blocked = "req-0";
+        String finished = sameStripeAs(blocked, 1);
+        String next = sameStripeAs(blocked, Integer.parseInt(finished.substring(4)) + 1);
+
+        Thread first = Thread.ofVirtual().start(
+                () -> ticketService.purchaseTickets(blocked, 1L, new TicketTypeRequest(ADULT, 1)));
+        assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+        ticketService.purchaseTickets(finished, 2L, new TicketTypeRequest(ADULT, 1));
+        Thread.sleep(5);
+        ticketService.purchaseTickets(next, 2L, new TicketTypeRequest(ADULT, 1));
+
+        assertEquals(2, ticketService.size());
+        release.countDown();
+        first.join();
+    }
+
+    private static String sameStripeAs(String requestId, int from) {
+        for(int i = from; ; i++) {
+            if(stripe("req-" + i) == stripe(requestId)) {
+                return "req-" + i;
+            }
+        }
+    }
+
+    private static int stripe(String requestId) {
+        int hash = requestId.hashCode();
+        return (hash ^ (hash >>> 16)) & 63;
+    }
+}
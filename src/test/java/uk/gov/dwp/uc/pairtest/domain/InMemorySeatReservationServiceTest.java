@@ -0,0 +1,134 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.exception.SeatCapacityExhaustedException;
+import uk.gov.dwp.uc.pairtest.seating.InMemorySeatReservationService;
+import uk.gov.dwp.uc.pairtest.seating.SeatAllocation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InMemorySeatReservationServiceTest {
+
+    @Test
+    public void test_Party_IsSeatedTogether_InOneRow() {
+
+        InMemorySeatReservationService seats = new InMemorySeatReservationService("screen-1", 3, 10);
+
+        seats.reserve("screen-1", 1L, 8);
+        SeatAllocation party = seats.reserve("screen-1", 2L, 4);
+
+        assertEquals(1, party.rows().length);
+        assertEquals(1, party.rows()[0]);
+        assertEquals(0b1111L, party.seatMasks()[0]);
+        assertEquals(18, seats.getFreeSeats("screen-1"));
+    }
+
+    @Test
+    public void test_Party_IsSeatedInTheFirstRowWithRoom_AfterReleases() {
+
+        InMemorySeatReservationService seats = new InMemorySeatReservationService("screen-1", 1_000, 8);
+        List<SeatAllocation> rows = new ArrayList<>();
+        for(long account = 1; account <= 1_000; account++) {
+            rows.add(seats.reserve("screen-1", account, 5));
+        }
+        seats.release(rows.get(700));
+        seats.release(rows.get(300));
+
+        SeatAllocation first = seats.reserve("screen-1", 2_000L, 6);
+        SeatAllocation second = seats.reserve("screen-1", 2_001L, 6);
+
+        assertEquals(300, first.rows()[0]);
+        assertEquals(700, second.rows()[0]);
+        assertEquals(0, seats.reserve("screen-1", 2_002L, 3).rows()[0]);
+    }
+
+    @Test
+    public void test_Party_IsSplit_WhenNoRowFits() {
+
+        InMemorySeatReservationService seats = new InMemorySeatReservationService("screen-1", 2, 4);
+        seats.reserve("screen-1", 1L, 2);
+
+        SeatAllocation party = seats.reserve("screen-1", 2L, 5);
+
+        assertEquals(5, party.noOfSeats());
+        assertEquals(1, seats.getFreeSeats("screen-1"));
+    }
+
+    @Test
+    public void test_NoSeats_AllocatesNothing() {
+
+        InMemorySeatReservationService seats = new InMemorySeatReservationService("screen-1", 1, 4);
+
+        SeatAllocation nothing = seats.reserve("screen-1", 1L, 0);
+        seats.reserveSeat(2L, 0);
+        seats.release(nothing);
+
+        assertEquals(0, nothing.noOfSeats());
+        assertEquals(4, seats.getFreeSeats("screen-1"));
+        assertThrows(IllegalArgumentException.class, () -> seats.reserveSeat(3L, -1));
+    }
+
+    @Test
+    public void test_SecondRelease_FreesNothing() {
+
+        InMemorySeatReservationService seats = new InMemorySeatReservationService("screen-1", 1, 4);
+        SeatAllocation party = seats.reserve("screen-1", 1L, 3);
+
+        seats.release(party);
+        seats.release(party);
+
+        assertEquals(4, seats.getFreeSeats("screen-1"));
+        seats.reserve("screen-1", 2L, 4);
+        assertEquals(0, seats.getFreeSeats("screen-1"));
+        assertThrows(SeatCapacityExhaustedException.class, () -> seats.reserveSeat(3L, 1));
+    }
+
+    @Test
+    public void test_FullScreening_IsExhausted_UntilRelease() {
+
+        InMemorySeatReservationService seats = new InMemorySeatReservationService("screen-1", 2, 5);
+        SeatAllocation first = seats.reserve("screen-1", 1L, 6);
+        seats.reserveSeat(2L, 4);
+
+        assertThrows(SeatCapacityExhaustedException.class, () -> seats.reserveSeat(3L, 1));
+
+        seats.release(first);
+        assertEquals(6, seats.getFreeSeats("screen-1"));
+        seats.reserveSeat(3L, 5);
+    }
+
+    @Test
+    public void test_ConcurrentReservations_NeverShareASeat() throws Exception {
+
+        InMemorySeatReservationService seats = new InMemorySeatReservationService("screen-1", 40, 30);
+        ConcurrentLinkedQueue<SeatAllocation> allocations = new ConcurrentLinkedQueue<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for(int i = 0; i < 400; i++) {
+            long accountId = i;
+            executor.submit(() -> allocations.add(seats.reserve("screen-1", accountId, 3)));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        long[] taken = new long[40];
+        for(SeatAllocation allocation : List.copyOf(allocations)) {
+            for(int i = 0; i < allocation.rows().length; i++) {
+                int row = allocation.rows()[i];
+                assertEquals(0, taken[row] & allocation.seatMasks()[i]);
+                taken[row] |= allocation.seatMasks()[i];
+            }
+        }
+        assertEquals(400, allocations.size());
+        assertEquals(0, seats.getFreeSeats("screen-1"));
+    }
+}
@@ -0,0 +1,142 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.PurchaseIngestPipeline;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
+
+public class PurchaseIngestPipelineTest {
+
+    @Mock
+    TicketPaymentService ticketPaymentService;
+    @Mock
+    SeatReservationService seatReservationService;
+    @Mock
+    TicketPriceLookupService ticketPriceLookupService;
+    @Mock
+    CinemaTicketsConfigService cinemaTicketsConfigService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_PURCHASE_TICKETS)).thenReturn(25);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT)).thenReturn(7);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT)).thenReturn(3);
+        when(ticketPriceLookupService.priceFor(ADULT)).thenReturn(25);
+        when(ticketPriceLookupService.priceFor(CHILD)).thenReturn(15);
+        when(ticketPriceLookupService.priceFor(INFANT)).thenReturn(0);
+    }
+
+    PurchaseIngestPipeline pipeline(int maxInFlight, int batchSize) {
+        return new PurchaseIngestPipeline(ticketPaymentService, seatReservationService, ticketPriceLookupService,
+                cinemaTicketsConfigService, new PurchaseIngestPipeline.Options(4, 2, maxInFlight, batchSize));
+    }
+
+    static List<String> lines(ByteArrayOutputStream results) {
+        return results.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    @Test
+    public void test_Ingest_WritesOneResultPerLine_InOrder() throws IOException {
+
+        String orders = """
+                1,ADULT:2,CHILD:1
+                0,ADULT:1
+                2,CHILD:1
+                three,ADULT:1
+                4,ADULT:1,INFANT:1
+                """;
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+
+        PurchaseIngestPipeline.Summary summary = pipeline(16, 8).ingest(
+                new ByteArrayInputStream(orders.getBytes(StandardCharsets.UTF_8)), results);
+
+        assertEquals(List.of(
+                "1,ACCEPTED,1,65,3",
+                "2,REJECTED,0,Account Id should be greater than zero",
+                "3,REJECTED,2,Infants or Child only purchase not allowed",
+                "4,REJECTED,three,Malformed order line",
+                "5,ACCEPTED,4,25,2"), lines(results));
+        assertEquals(new PurchaseIngestPipeline.Summary(5, 2, 3, 0), summary);
+        verify(ticketPaymentService).makePayment(1L, 65);
+        verify(seatReservationService).reserveSeat(4L, 2);
+    }
+
+    @Test
+    public void test_LargeInput_StaysInOrder_WithFewLinesInFlight() throws IOException {
+
+        int noOfLines = 20_000;
+        StringBuilder orders = new StringBuilder();
+        for(int i = 1; i <= noOfLines; i++) {
+            orders.append(i).append(i % 3 == 0 ? ",CHILD:1" : ",ADULT:1").append('\n');
+        }
+        AtomicLong paid = new AtomicLong();
+        TicketPaymentService counting = (accountId, amount) -> paid.addAndGet(amount);
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+
+        PurchaseIngestPipeline.Summary summary = new PurchaseIngestPipeline(counting, seatReservationService,
+                ticketPriceLookupService, cinemaTicketsConfigService, new PurchaseIngestPipeline.Options(4, 2, 8, 4))
+                .ingest(new ByteArrayInputStream(orders.toString().getBytes(StandardCharsets.UTF_8)), results);
+
+        List<String> lines = lines(results);
+        assertEquals(noOfLines, lines.size());
+        for(int i = 1; i <= noOfLines; i++) {
+            String expected = i + "," + (i % 3 == 0 ? "REJECTED" : "ACCEPTED") + "," + i + ",";
+            assertTrue(lines.get(i - 1).startsWith(expected), lines.get(i - 1));
+        }
+        assertEquals(noOfLines - noOfLines / 3, summary.accepted());
+        assertEquals(25L * summary.accepted(), paid.get());
+    }
+
+    @Test
+    public void test_FailedPayment_MarksBatchFailed() throws IOException {
+
+        doThrow(new IllegalStateException("gateway down")).when(ticketPaymentService).makePayment(anyLong(), anyInt());
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+
+        PurchaseIngestPipeline.Summary summary = pipeline(16, 1).ingest(
+                new ByteArrayInputStream("1,ADULT:1\n".getBytes(StandardCharsets.UTF_8)), results);
+
+        assertEquals(List.of("1,FAILED,1,gateway down"), lines(results));
+        assertEquals(1, summary.failed());
+    }
+
+    @Test
+    public void test_FailureMessages_AreQuoted_AndPaidOrdersWithoutSeatsStandOut() throws IOException {
+
+        doThrow(new IllegalStateException("seat map \"screen 1\" locked,\nretry")).when(seatReservationService)
+                .reserveSeat(anyLong(), anyInt());
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+
+        PurchaseIngestPipeline.Summary summary = pipeline(16, 1).ingest(
+                new ByteArrayInputStream("1,ADULT:1\n".getBytes(StandardCharsets.UTF_8)), results);
+
+        assertEquals("1,UNRESERVED,1,25,\"seat map \"\"screen 1\"\" locked,\nretry\"" + System.lineSeparator(),
+                results.toString(StandardCharsets.UTF_8));
+        assertEquals(1, summary.failed());
+    }
+}
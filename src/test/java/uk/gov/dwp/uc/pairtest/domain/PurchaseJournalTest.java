@@ -0,0 +1,196 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.journal.MappedPurchaseJournal;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseJournalReader;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseStatus;
+import uk.gov.dwp.uc.pairtest.sales.SalesAggregates;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
+
+public class PurchaseJournalTest {
+
+    @Mock
+    TicketPaymentService ticketPaymentService;
+    @Mock
+    SeatReservationService seatReservationService;
+    @Mock
+    TicketPriceLookupService ticketPriceLookupService;
+    @Mock
+    CinemaTicketsConfigService cinemaTicketsConfigService;
+
+    @TempDir
+    Path directory;
+
+    record Entry(long accountId, int adults, int children, int infants, int totalPrice, PurchaseStatus status) {
+    }
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_PURCHASE_TICKETS)).thenReturn(25);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT)).thenReturn(7);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT)).thenReturn(3);
+        when(ticketPriceLookupService.priceFor(ADULT)).thenReturn(20);
+        when(ticketPriceLookupService.priceFor(CHILD)).thenReturn(10);
+        when(ticketPriceLookupService.priceFor(INFANT)).thenReturn(0);
+    }
+
+    List<Entry> replay() {
+        List<Entry> entries = new ArrayList<>();
+        PurchaseJournalReader.replay(directory, (accountId, timestamp, adults, children, infants, totalPrice, status) ->
+                entries.add(new Entry(accountId, adults, children, infants, totalPrice, status)));
+        return entries;
+    }
+
+    TicketServiceImpl ticketService(MappedPurchaseJournal journal) {
+        return TicketServiceImpl.builder(ticketPaymentService, seatReservationService, ticketPriceLookupService,
+                cinemaTicketsConfigService).journal(journal).build();
+    }
+
+    @Test
+    public void test_Purchase_IsJournaled_AsPaidThenCompleted() {
+
+        try (MappedPurchaseJournal journal = new MappedPurchaseJournal(directory)) {
+            ticketService(journal).purchaseTickets(7L, new TicketTypeRequest(ADULT, 2),
+                    new TicketTypeRequest(CHILD, 1), new TicketTypeRequest(INFANT, 1));
+        }
+
+        assertEquals(List.of(new Entry(7L, 2, 1, 1, 50, PurchaseStatus.PAID),
+                new Entry(7L, 2, 1, 1, 50, PurchaseStatus.COMPLETED)), replay());
+    }
+
+    @Test
+    public void test_FailedReservation_IsJournaled_AfterPayment() {
+
+        doThrow(new IllegalStateException("no seats")).when(seatReservationService).reserveSeat(anyLong(), anyInt());
+
+        try (MappedPurchaseJournal journal = new MappedPurchaseJournal(directory)) {
+            assertThrows(IllegalStateException.class,
+                    () -> ticketService(journal).purchaseTickets(7L, new TicketTypeRequest(ADULT, 1)));
+        }
+
+        assertEquals(List.of(new Entry(7L, 1, 0, 0, 20, PurchaseStatus.PAID),
+                new Entry(7L, 1, 0, 0, 20, PurchaseStatus.RESERVATION_FAILED)), replay());
+    }
+
+    @Test
+    public void test_Batch_JournalsEachOrder_AsItsOwnCallsReturn() {
+
+        doThrow(new IllegalStateException("card declined")).when(ticketPaymentService).makePayment(2L, 20);
+        doThrow(new IllegalStateException("no seats")).when(seatReservationService).reserveSeat(3L, 1);
+
+        try (MappedPurchaseJournal journal = new MappedPurchaseJournal(directory)) {
+            ticketService(journal).purchaseTickets(List.of(
+                    new PurchaseOrder(1L, new TicketTypeRequest(ADULT, 1)),
+                    new PurchaseOrder(2L, new TicketTypeRequest(ADULT, 1)),
+                    new PurchaseOrder(3L, new TicketTypeRequest(ADULT, 1))));
+        }
+
+        assertEquals(List.of(new Entry(1L, 1, 0, 0, 20, PurchaseStatus.PAID),
+                new Entry(2L, 1, 0, 0, 20, PurchaseStatus.PAYMENT_FAILED),
+                new Entry(3L, 1, 0, 0, 20, PurchaseStatus.PAID),
+                new Entry(1L, 1, 0, 0, 20, PurchaseStatus.COMPLETED),
+                new Entry(3L, 1, 0, 0, 20, PurchaseStatus.RESERVATION_FAILED)), replay());
+    }
+
+    @Test
+    public void test_ConcurrentPurchases_ShareForces() throws Exception {
+
+        int threads = 8;
+        int purchasesPerThread = 200;
+        try (MappedPurchaseJournal journal = new MappedPurchaseJournal(directory, 4096)) {
+            TicketServiceImpl ticketService = ticketService(journal);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            for(int t = 0; t < threads; t++) {
+                long accountId = t + 1;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    for(int i = 0; i < purchasesPerThread; i++) {
+                        ticketService.purchaseTickets(accountId, new TicketTypeRequest(ADULT, 1));
+                    }
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+            assertEquals(2L * threads * purchasesPerThread, journal.getAppendCount());
+            assertTrue(journal.getForceCount() <= threads * purchasesPerThread);
+        }
+
+        assertEquals(2L * threads * purchasesPerThread, replay().size());
+        assertTrue(Files.list(directory).count() > 1);
+    }
+
+    @Test
+    public void test_LargeCounts_ReplayUnchanged() {
+
+        try (MappedPurchaseJournal journal = new MappedPurchaseJournal(directory, 1024)) {
+            journal.append(9L, TicketOrder.of(200, 40_000, 128), 4_400_000, PurchaseStatus.COMPLETED);
+        }
+
+        SalesAggregates rebuilt = new SalesAggregates();
+        PurchaseJournalReader.replay(directory, rebuilt);
+
+        assertEquals(List.of(new Entry(9L, 200, 40_000, 128, 4_400_000, PurchaseStatus.COMPLETED)), replay());
+        assertEquals(Map.of(ADULT, 200L, CHILD, 40_000L, INFANT, 128L), rebuilt.snapshot().ticketsSold());
+    }
+
+    @Test
+    public void test_Reopen_AppendsAfterLastIntactRecord() throws IOException {
+
+        TicketOrder order = TicketOrder.of(1, 0, 0);
+        try (MappedPurchaseJournal journal = new MappedPurchaseJournal(directory, 1024)) {
+            journal.append(1L, order, 20, PurchaseStatus.PAID);
+            journal.append(2L, order, 20, PurchaseStatus.PAID);
+        }
+        try (RandomAccessFile segment = new RandomAccessFile(Files.list(directory).findFirst().orElseThrow().toFile(), "rw")) {
+            segment.seek(72);
+            segment.write(0x7f);
+        }
+
+        try (MappedPurchaseJournal journal = new MappedPurchaseJournal(directory, 1024)) {
+            journal.append(3L, order, 20, PurchaseStatus.COMPLETED);
+        }
+
+        assertEquals(List.of(new Entry(1L, 1, 0, 0, 20, PurchaseStatus.PAID),
+                new Entry(3L, 1, 0, 0, 20, PurchaseStatus.COMPLETED)), replay());
+    }
+}
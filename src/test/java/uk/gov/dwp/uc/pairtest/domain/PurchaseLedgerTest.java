@@ -0,0 +1,243 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.ledger.OffHeapPurchaseLedger;
+import uk.gov.dwp.uc.pairtest.metrics.InMemoryPurchaseMetrics;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
+
+public class PurchaseLedgerTest {
+
+    private static final String CAP_MESSAGE = "Too many tickets bought by account in purchase window";
+
+    @Mock
+    TicketPaymentService ticketPaymentService;
+    @Mock
+    SeatReservationService seatReservationService;
+    @Mock
+    TicketPriceLookupService ticketPriceLookupService;
+    @Mock
+    CinemaTicketsConfigService cinemaTicketsConfigService;
+
+    @TempDir
+    Path directory;
+
+    AtomicLong clock = new AtomicLong(TimeUnit.DAYS.toMillis(20_000));
+    OffHeapPurchaseLedger ledger;
+    InMemoryPurchaseMetrics metrics;
+    TicketServiceImpl ticketService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_PURCHASE_TICKETS)).thenReturn(25);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT)).thenReturn(7);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT)).thenReturn(3);
+        when(ticketPriceLookupService.priceFor(ADULT)).thenReturn(25);
+        when(ticketPriceLookupService.priceFor(CHILD)).thenReturn(15);
+        when(ticketPriceLookupService.priceFor(INFANT)).thenReturn(0);
+        ledger = new OffHeapPurchaseLedger(1_000, 10, Duration.ofHours(1), clock::get);
+        metrics = new InMemoryPurchaseMetrics();
+        ticketService = TicketServiceImpl.builder(ticketPaymentService, seatReservationService, ticketPriceLookupService,
+                cinemaTicketsConfigService).metrics(metrics).ledger(ledger).build();
+    }
+
+    @Test
+    public void test_ManySmallOrders_AreCappedPerAccount() {
+
+        ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 4));
+        ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 2), TicketTypeRequest.of(CHILD, 3));
+        InvalidPurchaseException exception = assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 2)));
+
+        assertEquals(CAP_MESSAGE, exception.getMessage());
+        assertEquals(PurchaseCode.ACCOUNT_WINDOW_CAP, ticketService.tryPurchaseTickets(1L, TicketTypeRequest.of(ADULT, 2)));
+        assertEquals(PurchaseCode.ACCEPTED, ticketService.tryPurchaseTickets(1L, TicketTypeRequest.of(ADULT, 1)));
+        assertEquals(PurchaseCode.ACCEPTED, ticketService.tryPurchaseTickets(2L, TicketTypeRequest.of(ADULT, 10)));
+        assertEquals(10, ledger.ticketsInWindow(1L));
+        assertEquals(2, ledger.accounts());
+        assertEquals(2L, metrics.snapshot().rejections().get(PurchaseRule.ACCOUNT_WINDOW_CAP));
+    }
+
+    @Test
+    public void test_CapMessage_FollowsTheOtherRules() {
+
+        ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 8));
+
+        InvalidPurchaseException exception = assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets(1L, TicketTypeRequest.of(INFANT, 3)));
+
+        assertEquals("Infants or Child only purchase not allowed\n" + CAP_MESSAGE, exception.getMessage());
+        assertEquals(8, ledger.ticketsInWindow(1L));
+    }
+
+    @Test
+    public void test_Window_StartsAgainOnceItHasRunOut() {
+
+        ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 10));
+        clock.addAndGet(Duration.ofMinutes(59).toMillis());
+        assertThrows(InvalidPurchaseException.class, () -> ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 1)));
+
+        clock.addAndGet(Duration.ofMinutes(1).toMillis());
+        ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 10));
+
+        assertEquals(10, ledger.ticketsInWindow(1L));
+    }
+
+    @Test
+    public void test_FailedPurchases_AndQuotes_DoNotCount() {
+
+        doThrow(new IllegalStateException("Gateway down")).when(ticketPaymentService).makePayment(eq(1L), anyInt());
+
+        assertThrows(IllegalStateException.class, () -> ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 6)));
+        assertTrue(ticketService.quote(1L, TicketTypeRequest.of(ADULT, 10)).isAccepted());
+        assertFalse(ticketService.quote(1L, TicketTypeRequest.of(ADULT, 11)).isAccepted());
+        assertEquals(PurchaseResult.Outcome.PAYMENT_FAILED, ticketService.purchaseTickets(List.of(
+                new PurchaseOrder(1L, TicketTypeRequest.of(ADULT, 5)))).get(0).outcome());
+
+        assertEquals(0, ledger.ticketsInWindow(1L));
+    }
+
+    @Test
+    public void test_ConcurrentPurchases_NeverExceedTheCap() throws Exception {
+
+        OffHeapPurchaseLedger shared = new OffHeapPurchaseLedger(1 << 10, 500, Duration.ofHours(1), clock::get);
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> recorded = new ArrayList<>();
+        for(int t = 0; t < threads; t++) {
+            recorded.add(executor.submit(() -> {
+                start.await();
+                int count = 0;
+                for(int i = 0; i < 1_000; i++) {
+                    for(long accountId = 1; accountId <= 4; accountId++) {
+                        count += shared.tryRecord(accountId, TicketOrder.of(1, 0, 0)) ? 1 : 0;
+                    }
+                }
+                return count;
+            }));
+        }
+        start.countDown();
+        int total = 0;
+        for(Future<Integer> future : recorded) {
+            total += future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(4 * 500, total);
+        for(long accountId = 1; accountId <= 4; accountId++) {
+            assertEquals(500, shared.ticketsInWindow(accountId));
+        }
+        assertEquals(4, shared.accounts());
+    }
+
+    @Test
+    public void test_Snapshot_RestoresOpenWindows() {
+
+        for(long accountId = 1; accountId <= 500; accountId++) {
+            assertTrue(ledger.tryRecord(accountId, TicketOrder.of(1, (int) (accountId % 5), 0)));
+        }
+        clock.addAndGet(Duration.ofMinutes(30).toMillis());
+        assertTrue(ledger.tryRecord(1_000L, TicketOrder.of(7, 0, 0)));
+        Path file = directory.resolve("ledger.snapshot");
+
+        assertEquals(501, ledger.snapshot(file));
+
+        clock.addAndGet(Duration.ofMinutes(45).toMillis());
+        OffHeapPurchaseLedger restored = new OffHeapPurchaseLedger(1_000, 10, Duration.ofHours(1), clock::get);
+        assertEquals(1, restored.restore(file));
+        assertEquals(7, restored.ticketsInWindow(1_000L));
+        assertEquals(0, restored.ticketsInWindow(1L));
+        assertFalse(restored.tryRecord(1_000L, TicketOrder.of(4, 0, 0)));
+        assertEquals(0, restored.restore(directory.resolve("missing.snapshot")));
+    }
+
+    @Test
+    public void test_HugeCounts_AreRefused_WithoutCorruptingTheWindow() {
+
+        assertTrue(ledger.tryRecord(1L, TicketOrder.of(3, 0, 0)));
+
+        assertFalse(ledger.allows(1L, TicketOrder.of(Integer.MAX_VALUE, 1, 0)));
+        assertFalse(ledger.tryRecord(1L, TicketOrder.of(Integer.MAX_VALUE, 1, 0)));
+        assertFalse(ledger.tryRecord(1L, TicketOrder.of(0, 1 << 30, 1 << 30)));
+        assertFalse(ledger.tryRecord(2L, TicketOrder.of(1_024, 0, 0)));
+
+        assertEquals(3, ledger.ticketsInWindow(1L));
+        assertEquals(0, ledger.ticketsInWindow(2L));
+        assertTrue(ledger.tryRecord(1L, TicketOrder.of(7, 0, 0)));
+        assertFalse(ledger.tryRecord(1L, TicketOrder.of(1, 0, 0)));
+    }
+
+    @Test
+    public void test_FullTable_LetsNewAccountsThrough() {
+
+        OffHeapPurchaseLedger small = new OffHeapPurchaseLedger(3, 2, Duration.ofHours(1), clock::get);
+
+        assertEquals(4, small.capacity());
+        for(long accountId = 1; accountId <= 5; accountId++) {
+            assertTrue(small.tryRecord(accountId, TicketOrder.of(2, 0, 0)));
+        }
+
+        assertEquals(4, small.accounts());
+        assertEquals(1, small.overflows());
+        assertFalse(small.tryRecord(1L, TicketOrder.of(1, 0, 0)));
+    }
+
+    @Test
+    public void test_FullTable_ReusesSlotsOfRunOutWindows() {
+
+        OffHeapPurchaseLedger small = new OffHeapPurchaseLedger(4, 2, Duration.ofHours(1), clock::get);
+        for(long accountId = 1; accountId <= 3; accountId++) {
+            assertTrue(small.tryRecord(accountId, TicketOrder.of(2, 0, 0)));
+        }
+        clock.addAndGet(Duration.ofMinutes(30).toMillis());
+        assertTrue(small.tryRecord(4L, TicketOrder.of(2, 0, 0)));
+        clock.addAndGet(Duration.ofMinutes(31).toMillis());
+
+        for(long accountId = 5; accountId <= 7; accountId++) {
+            assertTrue(small.tryRecord(accountId, TicketOrder.of(2, 0, 0)));
+            assertFalse(small.tryRecord(accountId, TicketOrder.of(1, 0, 0)));
+        }
+
+        assertEquals(0, small.overflows());
+        assertEquals(3, small.reclaims());
+        assertEquals(4, small.accounts());
+        assertEquals(0, small.ticketsInWindow(1L));
+        assertEquals(2, small.ticketsInWindow(4L));
+        assertTrue(small.tryRecord(8L, TicketOrder.of(1, 0, 0)));
+        assertEquals(1, small.overflows());
+    }
+}
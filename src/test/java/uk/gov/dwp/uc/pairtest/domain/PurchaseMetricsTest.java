@@ -0,0 +1,110 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.metrics.InMemoryPurchaseMetrics;
+import uk.gov.dwp.uc.pairtest.metrics.LatencyHistogram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
+import static uk.gov.dwp.uc.pairtest.metrics.PurchaseMetrics.Stage.PAYMENT;
+import static uk.gov.dwp.uc.pairtest.metrics.PurchaseMetrics.Stage.RESERVATION;
+import static uk.gov.dwp.uc.pairtest.metrics.PurchaseMetrics.Stage.VALIDATION;
+
+public class PurchaseMetricsTest {
+
+    InMemoryPurchaseMetrics metrics;
+    TicketService ticketService;
+
+    @BeforeEach
+    public void setUp() {
+
+        metrics = new InMemoryPurchaseMetrics();
+        ticketService = TicketServiceImpl.builder(mock(TicketPaymentService.class), mock(SeatReservationService.class),
+                mock(TicketPriceLookupService.class), configService()).metrics(metrics).build();
+    }
+
+    private static CinemaTicketsConfigService configService() {
+        CinemaTicketsConfigService cinemaTicketsConfigService = mock(CinemaTicketsConfigService.class);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_PURCHASE_TICKETS)).thenReturn(25);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT)).thenReturn(7);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT)).thenReturn(3);
+        return cinemaTicketsConfigService;
+    }
+
+    @Test
+    public void test_Stages_AreTimed_ForAcceptedPurchase() {
+
+        ticketService.purchaseTickets(1L, new TicketTypeRequest(ADULT, 1));
+
+        InMemoryPurchaseMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.accepted());
+        assertEquals(1, snapshot.latencies().get(VALIDATION).getCount());
+        assertEquals(1, snapshot.latencies().get(PAYMENT).getCount());
+        assertEquals(1, snapshot.latencies().get(RESERVATION).getCount());
+    }
+
+    @Test
+    public void test_Rejections_AreCountedPerRule() {
+
+        assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets(0L, new TicketTypeRequest(CHILD, 1)));
+        assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets(1L, new TicketTypeRequest(INFANT, 2), new TicketTypeRequest(ADULT, 1)));
+
+        InMemoryPurchaseMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.rejected());
+        assertEquals(1L, snapshot.rejections().get(PurchaseRule.ACCOUNT_ID));
+        assertEquals(1L, snapshot.rejections().get(PurchaseRule.ADULT_PRESENT));
+        assertEquals(1L, snapshot.rejections().get(PurchaseRule.ENOUGH_ADULTS_FOR_INFANTS));
+        assertEquals(0L, snapshot.rejections().get(PurchaseRule.MAX_TICKETS));
+        assertEquals(0, snapshot.latencies().get(PAYMENT).getCount());
+    }
+
+    @Test
+    public void test_FailedPayment_IsCountedAsNotAccepted() {
+
+        TicketPaymentService ticketPaymentService = mock(TicketPaymentService.class);
+        doThrow(new IllegalStateException("payment declined")).when(ticketPaymentService).makePayment(1L, 0);
+        TicketService failingPayments = TicketServiceImpl.builder(ticketPaymentService,
+                mock(SeatReservationService.class), mock(TicketPriceLookupService.class), configService())
+                .metrics(metrics).build();
+
+        assertThrows(IllegalStateException.class,
+                () -> failingPayments.purchaseTickets(1L, new TicketTypeRequest(ADULT, 1)));
+
+        InMemoryPurchaseMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(0, snapshot.accepted());
+        assertEquals(1, snapshot.rejected());
+    }
+
+    @Test
+    public void test_Histogram_Percentiles_AreWithinBucketPrecision() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(long nanos = 1; nanos <= 10_000; nanos++) {
+            histogram.record(nanos * 1_000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.getCount());
+        long p99 = snapshot.valueAtPercentile(99);
+        assertTrue(p99 >= 9_900_000 && p99 <= 9_900_000 * 1.07, "p99 was " + p99);
+        assertTrue(snapshot.getMaxValue() >= 10_000_000);
+    }
+}
@@ -0,0 +1,153 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.jfr.PaymentEvent;
+import uk.gov.dwp.uc.pairtest.jfr.PurchaseRecordingAnalyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
+
+public class PurchaseRecordingTest {
+
+    @Mock
+    TicketPaymentService ticketPaymentService;
+    @Mock
+    SeatReservationService seatReservationService;
+    @Mock
+    TicketPriceLookupService ticketPriceLookupService;
+    @Mock
+    CinemaTicketsConfigService cinemaTicketsConfigService;
+
+    @TempDir
+    Path directory;
+
+    TicketServiceImpl ticketService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_PURCHASE_TICKETS)).thenReturn(25);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT)).thenReturn(7);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT)).thenReturn(3);
+        when(ticketPriceLookupService.priceFor(ADULT)).thenReturn(25);
+        when(ticketPriceLookupService.priceFor(CHILD)).thenReturn(15);
+        when(ticketPriceLookupService.priceFor(INFANT)).thenReturn(0);
+        ticketService = new TicketServiceImpl(ticketPaymentService, seatReservationService, ticketPriceLookupService,
+                cinemaTicketsConfigService);
+    }
+
+    @Test
+    public void test_BundledProfile_RecordsEveryStage() throws Exception {
+
+        doThrow(new IllegalStateException("Gateway down")).when(ticketPaymentService).makePayment(eq(9L), anyInt());
+        Path file = directory.resolve("purchases.jfr");
+
+        try (Recording recording = new Recording(bundledProfile())) {
+            recording.start();
+            ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 2), TicketTypeRequest.of(CHILD, 1));
+            ticketService.purchaseTickets(2L, TicketTypeRequest.of(ADULT, 1));
+            assertThrows(InvalidPurchaseException.class, () -> ticketService.purchaseTickets(3L, TicketTypeRequest.of(INFANT, 1)));
+            assertEquals(PurchaseCode.ADULT_PRESENT, ticketService.tryPurchaseTickets(4L, TicketTypeRequest.of(CHILD, 1)));
+            assertThrows(IllegalStateException.class, () -> ticketService.purchaseTickets(9L, TicketTypeRequest.of(ADULT, 1)));
+            ticketService.purchaseTickets(List.of(new PurchaseOrder(5L, TicketTypeRequest.of(ADULT, 3)),
+                    new PurchaseOrder(6L, TicketTypeRequest.of(ADULT, 1))));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        PurchaseRecordingAnalyzer.Summary summary = PurchaseRecordingAnalyzer.summarise(file);
+
+        assertEquals(5, summary.stages().get("purchase").getCount());
+        assertEquals(5, summary.stages().get("validation").getCount());
+        assertEquals(4, summary.stages().get("payment").getCount());
+        assertEquals(3, summary.stages().get("reservation").getCount());
+        assertEquals(Map.of("ACCEPTED", 2L, "REJECTED", 2L, "FAILED", 1L), summary.purchaseOutcomes());
+
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        PurchaseRecordingAnalyzer.print(summary, new PrintStream(printed, true, StandardCharsets.UTF_8));
+        assertTrue(printed.toString(StandardCharsets.UTF_8).contains("reservation"));
+    }
+
+    @Test
+    public void test_PaymentEvents_CarryTheTicketsPaidFor() throws Exception {
+
+        Path file = directory.resolve("payments.jfr");
+
+        try (Recording recording = new Recording(bundledProfile())) {
+            recording.start();
+            ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 2), TicketTypeRequest.of(CHILD, 1),
+                    TicketTypeRequest.of(INFANT, 1));
+            ticketService.purchaseTickets(List.of(new PurchaseOrder(5L, TicketTypeRequest.of(ADULT, 3)),
+                    new PurchaseOrder(6L, TicketTypeRequest.of(ADULT, 1), TicketTypeRequest.of(CHILD, 2))));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> payments = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(PaymentEvent.NAME))
+                .toList();
+
+        assertEquals(2, payments.size());
+        assertEquals(List.of(2, 1, 1), tickets(payments.get(0)));
+        assertEquals(List.of(4, 2, 0), tickets(payments.get(1)));
+    }
+
+    @Test
+    public void test_BuiltInThresholds_SkipFastPurchases() throws Exception {
+
+        Path file = directory.resolve("default.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("uk.gov.dwp.uc.pairtest.Purchase");
+            recording.start();
+            ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 2));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        assertEquals(0, PurchaseRecordingAnalyzer.summarise(file).stages().get("purchase").getCount());
+    }
+
+    private static List<Integer> tickets(RecordedEvent payment) {
+        return List.of(payment.getInt("adults"), payment.getInt("children"), payment.getInt("infants"));
+    }
+
+    private static Configuration bundledProfile() throws Exception {
+        try (Reader reader = new InputStreamReader(
+                PurchaseRecordingTest.class.getResourceAsStream("/jfr/cinema-tickets.jfc"), StandardCharsets.UTF_8)) {
+            return Configuration.create(reader);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.rules.CompiledRules;
+import uk.gov.dwp.uc.pairtest.rules.PurchaseRules;
+import uk.gov.dwp.uc.pairtest.rules.RuleDefinition;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
+
+public class PurchaseRulesTest {
+
+    @Mock
+    TicketPaymentService ticketPaymentService;
+    @Mock
+    SeatReservationService seatReservationService;
+    @Mock
+    TicketPriceLookupService ticketPriceLookupService;
+    @Mock
+    CinemaTicketsConfigService cinemaTicketsConfigService;
+
+    Map<String, Integer> config = Map.of(KEY_MAX_PURCHASE_TICKETS, 25, KEY_MAX_CHILDREN_WITH_ADULT, 7,
+            KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT, 3, "MAX_INFANTS_PER_SCREENING_ORDER", 2);
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        config.forEach((key, value) -> when(cinemaTicketsConfigService.getIntConfig(key)).thenReturn(value));
+        when(ticketPriceLookupService.priceFor(ADULT)).thenReturn(25);
+        when(ticketPriceLookupService.priceFor(CHILD)).thenReturn(15);
+        when(ticketPriceLookupService.priceFor(INFANT)).thenReturn(0);
+    }
+
+    @Test
+    public void test_DefaultRules_ReportInDefinedOrder() {
+
+        CompiledRules rules = PurchaseRules.DEFAULT.compile(config::get);
+
+        long broken = rules.violations(TicketOrder.of(0, 2, 1));
+
+        assertEquals(List.of("ADULT_PRESENT"), names(rules, broken));
+        assertEquals("Not enough adults for children (1 adult per 3 children when infants are present)",
+                rules.message(Long.numberOfTrailingZeros(rules.violations(TicketOrder.of(1, 4, 1)))));
+        assertTrue(rules.accepts(TicketOrder.of(2, 2, 1)));
+        assertFalse(rules.accepts(TicketOrder.of(1, 0, 2)));
+    }
+
+    @Test
+    public void test_ConfiguredRule_IsAppliedAfterBuiltInRules() {
+
+        PurchaseRules rules = PurchaseRules.DEFAULT.with(PurchaseRules.parse("""
+                # promo: at most a couple of infants per order
+                INFANT_CAP: when INFANT require infants <= ${MAX_INFANTS_PER_SCREENING_ORDER} else At most ${MAX_INFANTS_PER_SCREENING_ORDER} infants per order
+                """).definitions().toArray(RuleDefinition[]::new));
+        TicketServiceImpl ticketService = TicketServiceImpl.builder(ticketPaymentService, seatReservationService,
+                ticketPriceLookupService, cinemaTicketsConfigService).rules(rules).build();
+
+        InvalidPurchaseException e = assertThrows(InvalidPurchaseException.class, () ->
+                ticketService.purchaseTickets(1L, new TicketTypeRequest(ADULT, 2), new TicketTypeRequest(INFANT, 3)));
+        ticketService.purchaseTickets(1L, new TicketTypeRequest(ADULT, 2), new TicketTypeRequest(INFANT, 2));
+
+        assertEquals("Not enough adults for infants\nAt most 2 infants per order", e.getMessage());
+        verify(ticketPaymentService).makePayment(1L, 50);
+    }
+
+    @Test
+    public void test_Conditions_SupportSumsAndStrictComparisons() {
+
+        CompiledRules rules = PurchaseRules.parse("""
+                GROUP: when tickets > 10 require 2 * adults - children >= 0 and requests < 3 else Groups need one adult per two children
+                """).compile(config::get);
+
+        assertTrue(rules.accepts(TicketOrder.of(5, 5, 0)));
+        assertTrue(rules.accepts(TicketOrder.of(2, 4, 0)));
+        assertFalse(rules.accepts(TicketOrder.of(4, 9, 0)));
+        assertFalse(rules.accepts(TicketOrder.of(6, 5, 1)));
+    }
+
+    @Test
+    public void test_InvalidRule_IsRejectedWhenLoaded() {
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> PurchaseRules.parse("BAD: require adults * children >= 1 else nope"));
+
+        assertEquals("Invalid condition 'adults * children >= 1' in rule BAD: terms are linear, found a second variable children",
+                e.getMessage());
+    }
+
+    static List<String> names(CompiledRules rules, long broken) {
+        return IntStream.range(0, rules.size())
+                .filter(rule -> (broken & (1L << rule)) != 0)
+                .mapToObj(rules::name)
+                .toList();
+    }
+}
@@ -0,0 +1,117 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.rules.PurchaseRules;
+import uk.gov.dwp.uc.pairtest.rules.RuleDefinition;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
+
+public class RefreshingCinemaTicketsConfigServiceTest {
+
+    CinemaTicketsConfigService source;
+    RefreshingCinemaTicketsConfigService configService;
+
+    @BeforeEach
+    public void setUp() {
+
+        source = mock(CinemaTicketsConfigService.class);
+
+        when(source.getIntConfig(KEY_MAX_PURCHASE_TICKETS)).thenReturn(25);
+        when(source.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT)).thenReturn(7);
+        when(source.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT)).thenReturn(3);
+
+        configService = new RefreshingCinemaTicketsConfigService(source, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        configService.close();
+    }
+
+    @Test
+    public void test_Purchases_ReadSnapshot_NotSource() {
+
+        TicketService ticketService = new TicketServiceImpl(mock(TicketPaymentService.class),
+                mock(SeatReservationService.class), mock(TicketPriceLookupService.class), configService);
+
+        ticketService.purchaseTickets(1L, new TicketTypeRequest(ADULT, 1));
+        ticketService.purchaseTickets(1L, new TicketTypeRequest(ADULT, 1));
+
+        verify(source, times(1)).getIntConfig(KEY_MAX_PURCHASE_TICKETS);
+    }
+
+    @Test
+    public void test_Refresh_SwapsInChangedLimits() {
+
+        TicketServiceImpl ticketService = new TicketServiceImpl(mock(TicketPaymentService.class),
+                mock(SeatReservationService.class), mock(TicketPriceLookupService.class), configService);
+        when(source.getIntConfig(KEY_MAX_PURCHASE_TICKETS)).thenReturn(1);
+
+        assertTrue(configService.refresh());
+
+        assertEquals(1, configService.getIntConfig(KEY_MAX_PURCHASE_TICKETS));
+        assertEquals(1, configService.getChangeCount());
+        assertEquals(1, ticketService.getConfig().maxPurchaseTickets());
+        InvalidPurchaseException e = assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets(1L, new TicketTypeRequest(ADULT, 1), new TicketTypeRequest(ADULT, 1)));
+        assertEquals("Too many tickets in purchase", e.getMessage());
+    }
+
+    @Test
+    public void test_FailedRefresh_KeepsLastKnownGood() {
+
+        when(source.getIntConfig(KEY_MAX_PURCHASE_TICKETS)).thenThrow(new IllegalStateException("config backend down"));
+
+        assertFalse(configService.refresh());
+
+        assertEquals(25, configService.getIntConfig(KEY_MAX_PURCHASE_TICKETS));
+        assertEquals(1, configService.getFailureCount());
+        assertEquals(0, configService.getChangeCount());
+        assertEquals("config backend down", configService.getLastFailure().getMessage());
+    }
+
+    @Test
+    public void test_CustomRuleKeys_AreCarriedByTheSnapshot_AndRefreshed() {
+
+        when(source.getIntConfig("MAX_INFANTS")).thenReturn(1);
+        TicketService ticketService = TicketServiceImpl.builder(mock(TicketPaymentService.class),
+                mock(SeatReservationService.class), mock(TicketPriceLookupService.class), configService)
+                .rules(PurchaseRules.DEFAULT.with(PurchaseRules.parse(
+                        "INFANT_CAP: require infants <= ${MAX_INFANTS} else At most ${MAX_INFANTS} infants")
+                        .definitions().toArray(RuleDefinition[]::new)))
+                .build();
+
+        InvalidPurchaseException e = assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets(1L, new TicketTypeRequest(ADULT, 2), new TicketTypeRequest(INFANT, 2)));
+        assertEquals("At most 1 infants", e.getMessage());
+        assertEquals(1, configService.getIntConfig("MAX_INFANTS"));
+
+        when(source.getIntConfig("MAX_INFANTS")).thenReturn(2);
+        assertTrue(configService.refresh());
+
+        ticketService.purchaseTickets(1L, new TicketTypeRequest(ADULT, 2), new TicketTypeRequest(INFANT, 2));
+        assertEquals(2, configService.snapshot().getIntConfig("MAX_INFANTS"));
+        verify(source, times(2)).getIntConfig("MAX_INFANTS");
+    }
+}
@@ -0,0 +1,208 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.Test;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.exception.DependencyUnavailableException;
+import uk.gov.dwp.uc.pairtest.exception.SeatCapacityExhaustedException;
+import uk.gov.dwp.uc.pairtest.resilience.CircuitState;
+import uk.gov.dwp.uc.pairtest.resilience.ResilienceConfig;
+import uk.gov.dwp.uc.pairtest.resilience.ResilienceGuard;
+import uk.gov.dwp.uc.pairtest.resilience.ResilientSeatReservationService;
+import uk.gov.dwp.uc.pairtest.resilience.ResilientTicketPaymentService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ResilienceGuardTest {
+
+    AtomicInteger payments = new AtomicInteger();
+    AtomicBoolean paymentGatewayDown = new AtomicBoolean();
+    TicketPaymentService flaky = (accountId, amount) -> {
+        payments.incrementAndGet();
+        if(paymentGatewayDown.get()) {
+            throw new IllegalStateException("gateway down");
+        }
+    };
+
+    static ResilienceConfig config(Duration openDuration, int maxConcurrentCalls, Duration callTimeout) {
+        return new ResilienceConfig(4, 4, 0.5, 1.0, Duration.ofSeconds(5), openDuration,
+                2, maxConcurrentCalls, Duration.ofMillis(10), callTimeout);
+    }
+
+    @Test
+    public void test_Circuit_Opens_AfterFailures_AndRejectsWithoutCalling() {
+
+        List<CircuitState> transitions = new ArrayList<>();
+        ResilienceGuard guard = new ResilienceGuard("payment", config(Duration.ofMinutes(1), 4, Duration.ofSeconds(1)),
+                (from, to) -> transitions.add(to));
+        TicketPaymentService paymentService = new ResilientTicketPaymentService(flaky, guard);
+
+        paymentGatewayDown.set(true);
+        for(int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> paymentService.makePayment(1L, 20));
+        }
+        DependencyUnavailableException e = assertThrows(DependencyUnavailableException.class,
+                () -> paymentService.makePayment(1L, 20));
+
+        assertEquals("payment circuit is open", e.getMessage());
+        assertEquals(4, payments.get());
+        assertEquals(CircuitState.OPEN, guard.getState());
+        assertEquals(List.of(CircuitState.OPEN), transitions);
+        assertEquals(1, guard.getRejectedByCircuitCount());
+        guard.close();
+    }
+
+    @Test
+    public void test_Circuit_Closes_AfterSuccessfulTrialCalls() throws Exception {
+
+        ResilienceGuard guard = new ResilienceGuard("payment", config(Duration.ofMillis(20), 4, Duration.ofSeconds(1)),
+                (from, to) -> {});
+        TicketPaymentService paymentService = new ResilientTicketPaymentService(flaky, guard);
+
+        paymentGatewayDown.set(true);
+        for(int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> paymentService.makePayment(1L, 20));
+        }
+        paymentGatewayDown.set(false);
+        Thread.sleep(30);
+
+        paymentService.makePayment(1L, 20);
+        assertEquals(CircuitState.HALF_OPEN, guard.getState());
+        paymentService.makePayment(1L, 20);
+
+        assertEquals(CircuitState.CLOSED, guard.getState());
+        guard.close();
+    }
+
+    @Test
+    public void test_SlowCall_TimesOut() {
+
+        ResilienceGuard guard = new ResilienceGuard("reservation", config(Duration.ofMinutes(1), 4, Duration.ofMillis(20)),
+                (from, to) -> {});
+        SeatReservationService reservationService = new ResilientSeatReservationService((accountId, seats) -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, guard);
+
+        DependencyUnavailableException e = assertThrows(DependencyUnavailableException.class,
+                () -> reservationService.reserveSeat(1L, 2));
+
+        assertEquals("reservation timed out", e.getMessage());
+        assertEquals(1, guard.getTimeoutCount());
+        guard.close();
+    }
+
+    @Test
+    public void test_SlowPayment_IsNeverAbandoned() {
+
+        ResilienceGuard guard = new ResilienceGuard("payment", config(Duration.ofMinutes(1), 4, Duration.ofMillis(20)),
+                (from, to) -> {});
+        TicketPaymentService paymentService = new ResilientTicketPaymentService((accountId, amount) -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            payments.incrementAndGet();
+        }, guard);
+
+        paymentService.makePayment(1L, 20);
+
+        assertEquals(1, payments.get());
+        assertEquals(0, guard.getTimeoutCount());
+        guard.close();
+    }
+
+    @Test
+    public void test_FullBulkhead_RejectsCall() throws Exception {
+
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ResilienceGuard guard = new ResilienceGuard("payment", config(Duration.ofMinutes(1), 1, Duration.ofSeconds(5)),
+                (from, to) -> {});
+        TicketPaymentService paymentService = new ResilientTicketPaymentService((accountId, amount) -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, guard);
+
+        Thread busy = Thread.ofVirtual().start(() -> paymentService.makePayment(1L, 20));
+        entered.await();
+        DependencyUnavailableException e = assertThrows(DependencyUnavailableException.class,
+                () -> paymentService.makePayment(2L, 20));
+        release.countDown();
+        busy.join();
+
+        assertEquals("payment has too many calls in flight", e.getMessage());
+        assertEquals(1, guard.getRejectedByBulkheadCount());
+        guard.close();
+    }
+
+    @Test
+    public void test_TimedOutCall_KeepsItsPermit_UntilItFinishes() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+        ResilienceGuard guard = new ResilienceGuard("reservation", config(Duration.ofMinutes(1), 1, Duration.ofMillis(20)),
+                (from, to) -> {});
+        AtomicBoolean stuck = new AtomicBoolean(true);
+        SeatReservationService reservationService = new ResilientSeatReservationService((accountId, seats) -> {
+            while(stuck.get()) {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }, guard);
+
+        assertEquals("reservation timed out",
+                assertThrows(DependencyUnavailableException.class, () -> reservationService.reserveSeat(1L, 2)).getMessage());
+        assertEquals("reservation has too many calls in flight",
+                assertThrows(DependencyUnavailableException.class, () -> reservationService.reserveSeat(2L, 2)).getMessage());
+
+        stuck.set(false);
+        release.countDown();
+        guard.close();
+    }
+
+    @Test
+    public void test_BusinessExceptions_DoNotOpenTheCircuit() {
+
+        ResilienceGuard guard = new ResilienceGuard("reservation", config(Duration.ofMinutes(1), 4, Duration.ofSeconds(1)),
+                (from, to) -> {});
+
+        for(int i = 0; i < 8; i++) {
+            assertThrows(SeatCapacityExhaustedException.class, () -> guard.call(() -> {
+                throw new SeatCapacityExhaustedException("Sold out");
+            }));
+        }
+
+        assertEquals(CircuitState.CLOSED, guard.getState());
+        assertEquals(0, guard.getFailureCount());
+        guard.close();
+    }
+
+    @Test
+    public void test_Config_RejectsNonPositiveThresholdsAndDurations() {
+
+        assertThrows(IllegalArgumentException.class, () -> new ResilienceConfig(4, 4, 0, 1.0, Duration.ofSeconds(5),
+                Duration.ofMinutes(1), 2, 4, Duration.ofMillis(10), Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new ResilienceConfig(4, 4, 0.5, 1.0, Duration.ofSeconds(5),
+                Duration.ZERO, 2, 4, Duration.ofMillis(10), Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new ResilienceConfig(4, 4, 0.5, 1.0, Duration.ofSeconds(5),
+                Duration.ofMinutes(1), 2, 4, Duration.ofMillis(10), Duration.ofMillis(-1)));
+    }
+}
@@ -0,0 +1,89 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.journal.MappedPurchaseJournal;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseJournal;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseJournalReader;
+import uk.gov.dwp.uc.pairtest.sales.PurchaseListener;
+import uk.gov.dwp.uc.pairtest.sales.SalesAggregates;
+import uk.gov.dwp.uc.pairtest.sales.SalesSnapshot;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
+
+public class SalesAggregatesTest {
+
+    static final long MINUTE = 60_000L;
+
+    AtomicLong now = new AtomicLong(100 * MINUTE);
+    SalesAggregates sales = new SalesAggregates(accountId -> accountId % 2 == 0 ? "even" : "odd", 3, now::get);
+
+    TicketServiceImpl ticketService(PurchaseJournal journal, PurchaseListener listener) {
+        return TicketServiceImpl.builder((accountId, amount) -> {}, (accountId, seats) -> {},
+                TicketServiceStressHarness.PRICES, TicketServiceStressHarness.CONFIG)
+                .journal(journal)
+                .listener(listener)
+                .build();
+    }
+
+    @Test
+    public void test_Purchases_AreCountedByType_Screening_AndMinute() {
+
+        TicketServiceImpl ticketService = ticketService(PurchaseJournal.NONE, sales);
+
+        ticketService.purchaseTickets(1L, new TicketTypeRequest(ADULT, 2), new TicketTypeRequest(CHILD, 1));
+        now.addAndGet(MINUTE);
+        ticketService.purchaseTickets(2L, new TicketTypeRequest(ADULT, 1), new TicketTypeRequest(INFANT, 1));
+        assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets(2L, new TicketTypeRequest(CHILD, 1)));
+
+        SalesSnapshot snapshot = sales.snapshot();
+        assertEquals(Map.of(ADULT, 3L, CHILD, 1L, INFANT, 1L), snapshot.ticketsSold());
+        assertEquals(90L, snapshot.revenue());
+        assertEquals(Map.of("even", 25L, "odd", 65L), snapshot.revenueByScreening());
+        assertEquals(List.of(
+                new SalesSnapshot.MinuteRollup(100, Map.of(ADULT, 2L, CHILD, 1L, INFANT, 0L), 65, 1),
+                new SalesSnapshot.MinuteRollup(101, Map.of(ADULT, 1L, CHILD, 0L, INFANT, 1L), 25, 1)),
+                snapshot.minutes());
+    }
+
+    @Test
+    public void test_OldMinutes_DropOutOfTheWindow_ButTotalsRemain() {
+
+        sales.onPurchase(1L, TicketOrder.of(1, 0, 0), 25);
+        now.addAndGet(3 * MINUTE);
+        sales.onPurchase(1L, TicketOrder.of(1, 0, 0), 25);
+
+        SalesSnapshot snapshot = sales.snapshot();
+        assertEquals(50L, snapshot.revenue());
+        assertEquals(1, snapshot.minutes().size());
+        assertEquals(103, snapshot.minutes().get(0).epochMinute());
+    }
+
+    @Test
+    public void test_Aggregates_CanBeRebuilt_FromTheJournal(@TempDir Path directory) {
+
+        try (MappedPurchaseJournal journal = new MappedPurchaseJournal(directory, 4096)) {
+            TicketServiceImpl ticketService = ticketService(journal, sales);
+            ticketService.purchaseTickets(1L, new TicketTypeRequest(ADULT, 2), new TicketTypeRequest(CHILD, 1));
+            ticketService.purchaseTickets(2L, new TicketTypeRequest(ADULT, 1));
+        }
+
+        SalesAggregates rebuilt = new SalesAggregates(accountId -> accountId % 2 == 0 ? "even" : "odd", 3, now::get);
+        PurchaseJournalReader.replay(directory, rebuilt);
+
+        assertEquals(sales.snapshot().ticketsSold(), rebuilt.snapshot().ticketsSold());
+        assertEquals(sales.snapshot().revenueByScreening(), rebuilt.snapshot().revenueByScreening());
+    }
+}
@@ -0,0 +1,118 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.ShardedTicketService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+
+public class ShardedTicketServiceTest {
+
+    @Test
+    public void test_PurchasesForOneAccount_RunInOrder() throws Exception {
+
+        Map<Long, List<Integer>> seen = new ConcurrentHashMap<>();
+        TicketService recording = (account, requests) ->
+                seen.computeIfAbsent(account, a -> new ArrayList<>()).add(requests[0].getNoOfTickets());
+
+        try (ShardedTicketService ticketService = new ShardedTicketService(recording, 4, 1024, ShardedTicketService.Backpressure.BLOCK)) {
+            List<CompletableFuture<Void>> purchases = new ArrayList<>();
+            for(int i = 1; i <= 200; i++) {
+                for(long account = 1; account <= 5; account++) {
+                    purchases.add(ticketService.submit(account, new TicketTypeRequest(ADULT, i)));
+                }
+            }
+            CompletableFuture.allOf(purchases.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+        }
+
+        for(long account = 1; account <= 5; account++) {
+            List<Integer> tickets = seen.get(account);
+            assertEquals(200, tickets.size());
+            for(int i = 0; i < tickets.size(); i++) {
+                assertEquals(i + 1, tickets.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void test_InvalidPurchase_IsThrownToCaller() throws Exception {
+
+        TicketService rejecting = (account, requests) -> {
+            throw new InvalidPurchaseException("Infants or Child only purchase not allowed");
+        };
+
+        try (ShardedTicketService ticketService = new ShardedTicketService(rejecting, 2, 16, ShardedTicketService.Backpressure.BLOCK)) {
+            InvalidPurchaseException e = assertThrows(InvalidPurchaseException.class,
+                    () -> ticketService.purchaseTickets(1L, new TicketTypeRequest(CHILD, 1)));
+            assertEquals("Infants or Child only purchase not allowed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_FullShard_RejectsWhenConfigured() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+        TicketService blocked = (account, requests) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        try (ShardedTicketService ticketService = new ShardedTicketService(blocked, 1, 2, ShardedTicketService.Backpressure.REJECT)) {
+            CompletableFuture<Void> running = ticketService.submit(1L, new TicketTypeRequest(ADULT, 1));
+            while(ticketService.shardStats().get(0).queueDepth() > 0) {
+                Thread.onSpinWait();
+            }
+            ticketService.submit(1L, new TicketTypeRequest(ADULT, 1));
+            ticketService.submit(1L, new TicketTypeRequest(ADULT, 1));
+
+            assertThrows(RejectedExecutionException.class, () -> ticketService.submit(1L, new TicketTypeRequest(ADULT, 1)));
+            assertEquals(1, ticketService.shardStats().get(0).rejected());
+            assertEquals(2, ticketService.shardStats().get(0).queueDepth());
+
+            release.countDown();
+            running.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void test_Close_FinishesQueuedPurchases_AndKeepsTheInterrupt() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+        TicketService blocked = (account, requests) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        ShardedTicketService ticketService = new ShardedTicketService(blocked, 1, 4, ShardedTicketService.Backpressure.BLOCK);
+        CompletableFuture<Void> running = ticketService.submit(1L, new TicketTypeRequest(ADULT, 1));
+        CompletableFuture<Void> queued = ticketService.submit(1L, new TicketTypeRequest(ADULT, 1));
+        release.countDown();
+
+        Thread.currentThread().interrupt();
+        ticketService.close();
+
+        assertTrue(Thread.interrupted());
+        assertTrue(running.isDone() && !running.isCompletedExceptionally());
+        assertTrue(queued.isDone() && !queued.isCompletedExceptionally());
+        assertThrows(RejectedExecutionException.class, () -> ticketService.submit(1L, new TicketTypeRequest(ADULT, 1)));
+    }
+}
@@ -0,0 +1,89 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
+
+public class TicketOrderTest {
+
+    long accountId = 1;
+    TicketServiceImpl ticketService;
+
+    TicketPaymentService ticketPaymentService;
+    SeatReservationService seatReservationService;
+
+    @BeforeEach
+    public void setUp() {
+
+        ticketPaymentService = mock(TicketPaymentService.class);
+        seatReservationService = mock(SeatReservationService.class);
+        TicketPriceLookupService ticketPriceLookupService = mock(TicketPriceLookupService.class);
+        CinemaTicketsConfigService cinemaTicketsConfigService = mock(CinemaTicketsConfigService.class);
+
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_PURCHASE_TICKETS)).thenReturn(25);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT)).thenReturn(7);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT)).thenReturn(3);
+        when(ticketPriceLookupService.priceFor(ADULT)).thenReturn(25);
+        when(ticketPriceLookupService.priceFor(CHILD)).thenReturn(15);
+
+        ticketService = new TicketServiceImpl(ticketPaymentService,
+                seatReservationService, ticketPriceLookupService, cinemaTicketsConfigService);
+    }
+
+    @Test
+    public void test_SmallOrders_AreFlyweights() {
+
+        assertSame(TicketOrder.of(2, 1, 1), TicketOrder.of(2, 1, 1));
+        assertNotSame(TicketOrder.of(20, 1, 1), TicketOrder.of(20, 1, 1));
+        assertEquals(TicketOrder.of(20, 1, 1), TicketOrder.of(20, 1, 1));
+    }
+
+    @Test
+    public void test_Purchase_CompactOrder() {
+
+        ticketService.purchaseTickets(accountId, TicketOrder.of(2, 1, 1));
+
+        verify(ticketPaymentService, times(1)).makePayment(accountId, 65);
+        verify(seatReservationService, times(1)).reserveSeat(accountId, 4);
+    }
+
+    @Test
+    public void test_ConvertedOrder_IsValidatedLikeItsRequests() {
+
+        TicketTypeRequest[] requests = IntStream.range(0, 26)
+                .mapToObj(i -> new TicketTypeRequest(ADULT, 1))
+                .toArray(TicketTypeRequest[]::new);
+
+        InvalidPurchaseException e = assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets(accountId, TicketOrder.from(requests)));
+        assertEquals("Too many tickets in purchase", e.getMessage());
+
+        e = assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets(accountId, TicketOrder.from(new TicketTypeRequest(INFANT, 1))));
+        assertEquals("Infants or Child only purchase not allowed", e.getMessage());
+
+        e = assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets(accountId, (TicketOrder) null));
+        assertEquals("Requests array is null or empty", e.getMessage());
+    }
+}
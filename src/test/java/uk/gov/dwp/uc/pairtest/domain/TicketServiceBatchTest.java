@@ -0,0 +1,146 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.BatchTicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+
+public class TicketServiceBatchTest {
+
+    TicketPriceLookupService ticketPriceLookupService;
+    CinemaTicketsConfigService cinemaTicketsConfigService;
+
+    @BeforeEach
+    public void setUp() {
+
+        ticketPriceLookupService = mock(TicketPriceLookupService.class);
+        cinemaTicketsConfigService = mock(CinemaTicketsConfigService.class);
+
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_PURCHASE_TICKETS)).thenReturn(25);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT)).thenReturn(7);
+        when(cinemaTicketsConfigService.getIntConfig(KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT)).thenReturn(3);
+        when(ticketPriceLookupService.priceFor(ADULT)).thenReturn(25);
+        when(ticketPriceLookupService.priceFor(CHILD)).thenReturn(15);
+    }
+
+    @Test
+    public void test_Batch_ReportsPerOrderResults_AndFallsBackToPerItemCalls() {
+
+        TicketPaymentService ticketPaymentService = mock(TicketPaymentService.class);
+        SeatReservationService seatReservationService = mock(SeatReservationService.class);
+        BatchTicketService ticketService = new TicketServiceImpl(ticketPaymentService,
+                seatReservationService, ticketPriceLookupService, cinemaTicketsConfigService);
+
+        List<PurchaseResult> results = ticketService.purchaseTickets(List.of(
+                new PurchaseOrder(1L, new TicketTypeRequest(ADULT, 1), new TicketTypeRequest(CHILD, 1)),
+                new PurchaseOrder(2L, new TicketTypeRequest(CHILD, 1)),
+                new PurchaseOrder(3L, new TicketTypeRequest(ADULT, 2))
+        ));
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isAccepted());
+        assertEquals(40, results.get(0).totalAmountToPay());
+        assertFalse(results.get(1).isAccepted());
+        assertEquals("Infants or Child only purchase not allowed", results.get(1).error());
+        assertTrue(results.get(2).isAccepted());
+
+        verify(ticketPaymentService, times(1)).makePayment(1L, 40);
+        verify(ticketPaymentService, times(1)).makePayment(3L, 50);
+        verify(seatReservationService, times(1)).reserveSeat(1L, 2);
+        verify(seatReservationService, times(1)).reserveSeat(3L, 2);
+        verify(ticketPaymentService, never()).makePayment(2L, 0);
+    }
+
+    @Test
+    public void test_Batch_UsesBatchCapableServices_WithOneCallEach() {
+
+        BatchTicketPaymentService ticketPaymentService = mock(BatchTicketPaymentService.class);
+        BatchSeatReservationService seatReservationService = mock(BatchSeatReservationService.class);
+        BatchTicketService ticketService = new TicketServiceImpl(ticketPaymentService,
+                seatReservationService, ticketPriceLookupService, cinemaTicketsConfigService);
+
+        ticketService.purchaseTickets(List.of(
+                new PurchaseOrder(1L, new TicketTypeRequest(ADULT, 1)),
+                new PurchaseOrder(0L, new TicketTypeRequest(ADULT, 1)),
+                new PurchaseOrder(2L, new TicketTypeRequest(ADULT, 1), new TicketTypeRequest(CHILD, 2))
+        ));
+
+        verify(ticketPaymentService, times(1)).makePayments(
+                argThat(ids -> Arrays.equals(new long[]{1L, 2L}, ids)),
+                argThat(amounts -> Arrays.equals(new int[]{25, 55}, amounts)));
+        verify(seatReservationService, times(1)).reserveSeats(
+                argThat(ids -> Arrays.equals(new long[]{1L, 2L}, ids)),
+                argThat(seats -> Arrays.equals(new int[]{1, 3}, seats)));
+        verify(ticketPaymentService, never()).makePayment(anyLong(), anyInt());
+        verify(seatReservationService, never()).reserveSeat(anyLong(), anyInt());
+    }
+
+    @Test
+    public void test_Batch_DownstreamFailure_FailsOnlyItsOwnOrder() {
+
+        TicketPaymentService ticketPaymentService = mock(TicketPaymentService.class);
+        SeatReservationService seatReservationService = mock(SeatReservationService.class);
+        doThrow(new IllegalStateException("card declined")).when(ticketPaymentService).makePayment(2L, 25);
+        doThrow(new IllegalStateException("sold out")).when(seatReservationService).reserveSeat(3L, 1);
+        BatchTicketService ticketService = new TicketServiceImpl(ticketPaymentService,
+                seatReservationService, ticketPriceLookupService, cinemaTicketsConfigService);
+
+        List<PurchaseResult> results = ticketService.purchaseTickets(List.of(
+                new PurchaseOrder(1L, new TicketTypeRequest(ADULT, 1)),
+                new PurchaseOrder(2L, new TicketTypeRequest(ADULT, 1)),
+                new PurchaseOrder(3L, new TicketTypeRequest(ADULT, 1)),
+                new PurchaseOrder(4L, new TicketTypeRequest(CHILD, 1))
+        ));
+
+        assertEquals(List.of(PurchaseResult.Outcome.ACCEPTED, PurchaseResult.Outcome.PAYMENT_FAILED,
+                        PurchaseResult.Outcome.RESERVATION_FAILED, PurchaseResult.Outcome.REJECTED),
+                results.stream().map(PurchaseResult::outcome).toList());
+        assertEquals("card declined", results.get(1).error());
+        assertEquals("sold out", results.get(2).error());
+        verify(seatReservationService, times(1)).reserveSeat(1L, 1);
+        verify(seatReservationService, never()).reserveSeat(2L, 1);
+    }
+
+    @Test
+    public void test_Batch_ThrowingBatchCall_FailsEveryOrderInIt() {
+
+        BatchTicketPaymentService ticketPaymentService = mock(BatchTicketPaymentService.class);
+        BatchSeatReservationService seatReservationService = mock(BatchSeatReservationService.class);
+        when(ticketPaymentService.makePayments(any(), any())).thenThrow(new IllegalStateException("gateway down"));
+        BatchTicketService ticketService = new TicketServiceImpl(ticketPaymentService,
+                seatReservationService, ticketPriceLookupService, cinemaTicketsConfigService);
+
+        List<PurchaseResult> results = ticketService.purchaseTickets(List.of(
+                new PurchaseOrder(1L, new TicketTypeRequest(ADULT, 1)),
+                new PurchaseOrder(2L, new TicketTypeRequest(ADULT, 2))
+        ));
+
+        assertTrue(results.stream().allMatch(result -> result.outcome() == PurchaseResult.Outcome.PAYMENT_FAILED
+                && "gateway down".equals(result.error())));
+        verify(seatReservationService, never()).reserveSeats(any(), any());
+    }
+}
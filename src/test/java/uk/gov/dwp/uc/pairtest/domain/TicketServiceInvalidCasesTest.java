@@ -201,6 +201,23 @@ public class TicketServiceInvalidCasesTest {
         fail("should have thrown exception");
     }
 
+    @Test
+    public void test_AllFailingRules_AreReported_InOrder() {
+        try {
+            ticketService.purchaseTickets(0L,
+                    new TicketTypeRequest(CHILD, 1),
+                    new TicketTypeRequest(INFANT, 1)
+            );
+        } catch (InvalidPurchaseException e) {
+            assertEquals("Account Id should be greater than zero\n"
+                    + "Infants or Child only purchase not allowed", e.getMessage());
+            verify(ticketPaymentService, times(0)).makePayment(accountId, 0);
+            verify(seatReservationService, times(0)).reserveSeat(accountId, 0);
+            return;
+        }
+        fail("should have thrown exception");
+    }
+
     @Test
     public void test_ThereCantBe_MoreInfantsThanAdults() {
         try {
@@ -0,0 +1,226 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.metrics.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT;
+import static uk.gov.dwp.uc.pairtest.domain.CinemaTicketsConfigService.KEY_MAX_PURCHASE_TICKETS;
+
+/**
+ * Drives a {@link TicketService} from many platform and virtual threads and checks the outcome against a
+ * single-threaded reference run of the same orders.
+ * Every thread buys for its own account, one purchase at a time, so the payments and reservations recorded for an
+ * account must be exactly the ones its thread expected, in the same order; any interleaving or lost update shows up
+ * as a difference. Orders come from a seeded catalogue so a failing run can be repeated.
+ */
+final class TicketServiceStressHarness {
+
+    static final CinemaTicketsConfigService CONFIG = Map.of(
+            KEY_MAX_PURCHASE_TICKETS, 25,
+            KEY_MAX_CHILDREN_WITH_ADULT, 7,
+            KEY_MAX_CHILDREN_WITH_ADULT_WITH_INFANT, 3)::get;
+
+    static final TicketPriceLookupService PRICES = type -> switch (type) {
+        case ADULT -> 25;
+        case CHILD -> 15;
+        case INFANT -> 0;
+    };
+
+    private static final int CATALOGUE_SIZE = 256;
+    private static final long INVALID_ACCOUNT_ID = 0L;
+
+    record Result(long orders, long accepted, long rejected, long charged, long seatsReserved,
+                  long elapsedNanos, LatencyHistogram.Snapshot latency, List<String> violations) {
+
+        double throughputPerSecond() {
+            return orders * 1e9 / elapsedNanos;
+        }
+
+        String report() {
+            return String.format("%,d orders (%,d accepted, %,d rejected) in %,d ms: %,.0f ops/s, latency p50 %,d ns,"
+                            + " p99 %,d ns, p99.9 %,d ns, max %,d ns, %d violations",
+                    orders, accepted, rejected, elapsedNanos / 1_000_000, throughputPerSecond(),
+                    latency.valueAtPercentile(50), latency.valueAtPercentile(99), latency.valueAtPercentile(99.9),
+                    latency.getMaxValue(), violations.size());
+        }
+    }
+
+    private record Order(boolean validAccount, TicketTypeRequest[] requests, String expectedError,
+                         int expectedPrice, int expectedSeats) {
+    }
+
+    /**
+     * Payment and seat stand-in that logs each call against its account: payments as amount * 2, reservations as
+     * seats * 2 + 1, so one list per account holds both in call order.
+     */
+    static final class Recorder implements TicketPaymentService, SeatReservationService {
+
+        private final ConcurrentHashMap<Long, List<Long>> calls = new ConcurrentHashMap<>();
+        private final LongAdder charged = new LongAdder();
+        private final LongAdder seats = new LongAdder();
+
+        @Override
+        public void makePayment(long accountId, int totalAmountToPay) {
+            calls.computeIfAbsent(accountId, id -> new ArrayList<>()).add(totalAmountToPay * 2L);
+            charged.add(totalAmountToPay);
+        }
+
+        @Override
+        public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+            calls.computeIfAbsent(accountId, id -> new ArrayList<>()).add(totalSeatsToAllocate * 2L + 1);
+            seats.add(totalSeatsToAllocate);
+        }
+    }
+
+    private final int platformThreads;
+    private final int virtualThreads;
+    private final int ordersPerThread;
+    private final long seed;
+    private final Order[] catalogue;
+
+    TicketServiceStressHarness(int platformThreads, int virtualThreads, int ordersPerThread, long seed) {
+        this.platformThreads = platformThreads;
+        this.virtualThreads = virtualThreads;
+        this.ordersPerThread = ordersPerThread;
+        this.seed = seed;
+        this.catalogue = catalogue(seed);
+    }
+
+    /*
+    * The factory is given the recording stand-ins and returns the service under test
+    * */
+    Result run(BiFunction<TicketPaymentService, SeatReservationService, TicketService> factory) throws InterruptedException {
+        Recorder recorder = new Recorder();
+        TicketService ticketService = factory.apply(recorder, recorder);
+        int threads = platformThreads + virtualThreads;
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder accepted = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        LongAdder expectedCharge = new LongAdder();
+        LongAdder expectedSeats = new LongAdder();
+        ConcurrentLinkedQueue<String> violations = new ConcurrentLinkedQueue<>();
+        Map<Long, List<Long>> expectedCalls = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>(threads);
+
+        for(int t = 0; t < threads; t++) {
+            long accountId = t + 1;
+            long threadSeed = seed + accountId;
+            Runnable work = () -> {
+                SplittableRandom random = new SplittableRandom(threadSeed);
+                List<Long> expected = new ArrayList<>();
+                awaitQuietly(start);
+                for(int i = 0; i < ordersPerThread; i++) {
+                    Order order = catalogue[random.nextInt(catalogue.length)];
+                    long began = System.nanoTime();
+                    String error = purchase(ticketService, order.validAccount() ? accountId : INVALID_ACCOUNT_ID,
+                            order.requests());
+                    latency.record(System.nanoTime() - began);
+                    if(!Objects.equals(error, order.expectedError())) {
+                        violations.add("Account " + accountId + " expected " + order.expectedError() + " but got " + error);
+                    }
+                    if(order.expectedError() == null) {
+                        accepted.increment();
+                        expectedCharge.add(order.expectedPrice());
+                        expectedSeats.add(order.expectedSeats());
+                        expected.add(order.expectedPrice() * 2L);
+                        expected.add(order.expectedSeats() * 2L + 1);
+                    } else {
+                        rejected.increment();
+                    }
+                }
+                expectedCalls.put(accountId, expected);
+            };
+            workers.add(t < platformThreads
+                    ? Thread.ofPlatform().name("stress-platform-" + t).start(work)
+                    : Thread.ofVirtual().name("stress-virtual-" + t).start(work));
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        for(Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - began;
+
+        if(recorder.charged.sum() != expectedCharge.sum()) {
+            violations.add("Charged " + recorder.charged.sum() + " but priced orders total " + expectedCharge.sum());
+        }
+        if(recorder.seats.sum() != expectedSeats.sum()) {
+            violations.add("Reserved " + recorder.seats.sum() + " seats but sold " + expectedSeats.sum() + " tickets");
+        }
+        if(recorder.calls.containsKey(INVALID_ACCOUNT_ID)) {
+            violations.add("Payment or reservation made for an invalid account");
+        }
+        expectedCalls.forEach((accountId, expected) -> {
+            List<Long> actual = recorder.calls.getOrDefault(accountId, List.of());
+            if(!expected.equals(actual)) {
+                violations.add("Account " + accountId + " saw " + actual.size() + " calls out of order or lost, expected "
+                        + expected.size());
+            }
+        });
+        return new Result((long) threads * ordersPerThread, accepted.sum(), rejected.sum(), recorder.charged.sum(),
+                recorder.seats.sum(), elapsed, latency.snapshot(), List.copyOf(violations));
+    }
+
+    private static String purchase(TicketService ticketService, long accountId, TicketTypeRequest[] requests) {
+        try {
+            ticketService.purchaseTickets(accountId, requests);
+            return null;
+        } catch (InvalidPurchaseException e) {
+            return e.getMessage();
+        }
+    }
+
+    /*
+    * Mostly small orders, with some of every invalid shape, priced by a single-threaded reference service
+    * */
+    private static Order[] catalogue(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Recorder reference = new Recorder();
+        TicketServiceImpl referenceService = new TicketServiceImpl(reference, reference, PRICES, CONFIG);
+        TicketTypeRequest.Type[] types = TicketTypeRequest.Type.values();
+        Order[] catalogue = new Order[CATALOGUE_SIZE];
+        for(int i = 0; i < CATALOGUE_SIZE; i++) {
+            int noOfLines = random.nextInt(20) == 0 ? 26 : random.nextInt(5);
+            TicketTypeRequest[] requests = new TicketTypeRequest[noOfLines];
+            for(int line = 0; line < noOfLines; line++) {
+                requests[line] = new TicketTypeRequest(types[random.nextInt(types.length)], random.nextInt(8));
+            }
+            if(noOfLines > 0 && random.nextBoolean()) {
+                requests[0] = new TicketTypeRequest(TicketTypeRequest.Type.ADULT, 1 + random.nextInt(4));
+            }
+            boolean validAccount = random.nextInt(10) != 0;
+            long charged = reference.charged.sum();
+            long seats = reference.seats.sum();
+            String error = purchase(referenceService, validAccount ? 1L : INVALID_ACCOUNT_ID, requests);
+            catalogue[i] = new Order(validAccount, requests, error,
+                    (int) (reference.charged.sum() - charged), (int) (reference.seats.sum() - seats));
+        }
+        return catalogue;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
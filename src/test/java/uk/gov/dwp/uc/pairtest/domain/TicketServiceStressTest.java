@@ -0,0 +1,66 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.ShardedTicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.metrics.InMemoryPurchaseMetrics;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Scale with -Dstress.platformThreads, -Dstress.virtualThreads, -Dstress.ordersPerThread and -Dstress.seed, and gate
+ * on speed with -Dstress.minOpsPerSecond.
+ */
+public class TicketServiceStressTest {
+
+    TicketServiceStressHarness harness = new TicketServiceStressHarness(
+            Integer.getInteger("stress.platformThreads", 2 * Runtime.getRuntime().availableProcessors()),
+            Integer.getInteger("stress.virtualThreads", 64),
+            Integer.getInteger("stress.ordersPerThread", 2_000),
+            Long.getLong("stress.seed", 20261017L));
+
+    long minOpsPerSecond = Long.getLong("stress.minOpsPerSecond", 0L);
+
+    void check(TicketServiceStressHarness.Result result) {
+        assertEquals(List.of(), result.violations());
+        assertEquals(result.orders(), result.accepted() + result.rejected());
+        assertTrue(result.accepted() > 0 && result.rejected() > 0);
+        assertTrue(result.throughputPerSecond() >= minOpsPerSecond, result.report());
+    }
+
+    @Test
+    public void test_TicketServiceImpl_UnderParallelLoad() throws Exception {
+
+        check(harness.run((payment, seats) -> new TicketServiceImpl(payment, seats,
+                TicketServiceStressHarness.PRICES, TicketServiceStressHarness.CONFIG)));
+    }
+
+    @Test
+    public void test_TicketServiceImpl_WithRefreshingConfigAndCachedPrices_UnderParallelLoad() throws Exception {
+
+        try (RefreshingCinemaTicketsConfigService config = new RefreshingCinemaTicketsConfigService(
+                TicketServiceStressHarness.CONFIG, Duration.ofMillis(1))) {
+            CachingTicketPriceLookupService prices = new CachingTicketPriceLookupService(
+                    TicketServiceStressHarness.PRICES, Duration.ofMillis(1));
+
+            check(harness.run((payment, seats) -> TicketServiceImpl.builder(payment, seats, prices, config)
+                    .metrics(new InMemoryPurchaseMetrics())
+                    .build()));
+            assertTrue(prices.getLoadCount() > 1);
+        }
+    }
+
+    @Test
+    public void test_ShardedTicketService_UnderParallelLoad() throws Exception {
+
+        ShardedTicketService[] sharded = new ShardedTicketService[1];
+        check(harness.run((payment, seats) -> sharded[0] = new ShardedTicketService(new TicketServiceImpl(payment, seats,
+                TicketServiceStressHarness.PRICES, TicketServiceStressHarness.CONFIG), 8, 1_024,
+                ShardedTicketService.Backpressure.BLOCK)));
+        sharded[0].close();
+    }
+}
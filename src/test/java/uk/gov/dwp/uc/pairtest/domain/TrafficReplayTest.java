@@ -0,0 +1,211 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.exception.DependencyUnavailableException;
+import uk.gov.dwp.uc.pairtest.replay.SimulatedDependency;
+import uk.gov.dwp.uc.pairtest.replay.SimulatedSeatReservationService;
+import uk.gov.dwp.uc.pairtest.replay.SimulatedTicketPaymentService;
+import uk.gov.dwp.uc.pairtest.replay.TrafficCapture;
+import uk.gov.dwp.uc.pairtest.replay.TrafficRecording;
+import uk.gov.dwp.uc.pairtest.replay.TrafficReplayer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.CHILD;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.INFANT;
+
+public class TrafficReplayTest {
+
+    @TempDir
+    Path directory;
+
+    AtomicInteger purchases = new AtomicInteger();
+    TicketService counting = (account, requests) -> purchases.incrementAndGet();
+    AtomicLong clock = new AtomicLong(5_000_000_000L);
+
+    private Path capture(int count, Duration interArrival) {
+        Path file = directory.resolve("traffic.bin");
+        try (TrafficCapture capture = new TrafficCapture(counting, file, clock::get, 0)) {
+            for(int i = 0; i < count; i++) {
+                clock.addAndGet(interArrival.toNanos());
+                capture.purchaseTickets(1L + i, TicketTypeRequest.of(ADULT, 1 + i % 3), TicketTypeRequest.of(CHILD, i % 2));
+            }
+        }
+        return file;
+    }
+
+    @Test
+    public void test_Capture_ReadsBackEveryPurchase() throws Exception {
+
+        Path file = directory.resolve("traffic.bin");
+        List<TicketTypeRequest[]> sent = List.of(
+                new TicketTypeRequest[]{TicketTypeRequest.of(ADULT, 2), TicketTypeRequest.of(CHILD, 3)},
+                new TicketTypeRequest[]{TicketTypeRequest.of(INFANT, 1), null, new TicketTypeRequest(null, 4)},
+                new TicketTypeRequest[]{new TicketTypeRequest(ADULT, -7), new TicketTypeRequest(CHILD, 300)},
+                new TicketTypeRequest[]{});
+        try (TrafficCapture capture = new TrafficCapture(counting, file, clock::get, 1_700_000_000_000L)) {
+            clock.addAndGet(1_500);
+            capture.purchaseTickets(42L, sent.get(0));
+            clock.addAndGet(2_000_000);
+            capture.purchaseTickets(null, sent.get(1));
+            capture.purchaseTickets(Long.MAX_VALUE, sent.get(2));
+            clock.addAndGet(7);
+            capture.purchaseTickets(-3L, sent.get(3));
+            capture.purchaseTickets(5L, (TicketTypeRequest[]) null);
+            assertEquals(5, capture.getCapturedCount());
+            assertEquals(0, capture.getDroppedCount());
+        }
+
+        TrafficRecording recording = TrafficRecording.read(file);
+
+        assertEquals(5, purchases.get());
+        assertEquals(1_700_000_000_000L, recording.getStartEpochMillis());
+        assertEquals(5, recording.getPurchases().size());
+        assertEquals(List.of(1_500L, 2_001_500L, 2_001_500L, 2_001_507L, 2_001_507L),
+                recording.getPurchases().stream().map(TrafficRecording.Purchase::arrivalNanos).toList());
+        assertEquals(Arrays.asList(42L, null, Long.MAX_VALUE, -3L, 5L),
+                recording.getPurchases().stream().map(TrafficRecording.Purchase::accountId).toList());
+        for(int i = 0; i < sent.size(); i++) {
+            assertRequests(sent.get(i), recording.getPurchases().get(i).ticketTypeRequests());
+        }
+        assertNull(recording.getPurchases().get(4).ticketTypeRequests());
+        assertTrue(Files.size(file) < 16 + 5 * 16);
+    }
+
+    private static void assertRequests(TicketTypeRequest[] expected, TicketTypeRequest[] actual) {
+        assertEquals(expected.length, actual.length);
+        for(int i = 0; i < expected.length; i++) {
+            if(expected[i] == null) {
+                assertNull(actual[i]);
+                continue;
+            }
+            assertEquals(expected[i].getTicketType(), actual[i].getTicketType());
+            assertEquals(expected[i].getNoOfTickets(), actual[i].getNoOfTickets());
+        }
+    }
+
+    @Test
+    public void test_ConcurrentCapture_KeepsEveryPurchaseNotDropped() throws Exception {
+
+        Path file = directory.resolve("concurrent.bin");
+        long captured;
+        long dropped;
+        try (TrafficCapture capture = new TrafficCapture(counting, file, System::nanoTime, 0, 256)) {
+            Thread[] threads = new Thread[4];
+            for(int t = 0; t < threads.length; t++) {
+                long account = t + 1;
+                threads[t] = Thread.ofPlatform().start(() -> {
+                    for(int i = 0; i < 5_000; i++) {
+                        capture.purchaseTickets(account, TicketTypeRequest.of(ADULT, 1));
+                    }
+                });
+            }
+            for(Thread thread : threads) {
+                thread.join();
+            }
+            capture.flush();
+            captured = capture.getCapturedCount();
+            dropped = capture.getDroppedCount();
+        }
+
+        TrafficRecording recording = TrafficRecording.read(file);
+
+        assertEquals(20_000, purchases.get());
+        assertEquals(20_000, captured + dropped);
+        assertEquals(captured, recording.getPurchases().size());
+        long previous = 0;
+        for(TrafficRecording.Purchase purchase : recording.getPurchases()) {
+            assertTrue(purchase.arrivalNanos() >= previous);
+            previous = purchase.arrivalNanos();
+        }
+    }
+
+    @Test
+    public void test_TruncatedCapture_KeepsTheCompletePurchases() throws Exception {
+
+        Path file = capture(10, Duration.ofMillis(1));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 2));
+
+        TrafficRecording recording = TrafficRecording.read(file);
+
+        assertEquals(9, recording.getPurchases().size());
+        assertEquals(Duration.ofMillis(9).toNanos(), recording.getDurationNanos());
+    }
+
+    @Test
+    public void test_Replay_IsOpenLoop_AtTheRequestedSpeed() throws Exception {
+
+        TrafficRecording recording = TrafficRecording.read(capture(20, Duration.ofMillis(50)));
+        Object oneAtATime = new Object();
+        TicketService slow = (account, requests) -> {
+            synchronized (oneAtATime) {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        TrafficReplayer.Report report = TrafficReplayer.replay(recording, slow, 10);
+
+        assertEquals(20, report.accepted());
+        assertTrue(report.elapsedNanos() >= Duration.ofMillis(400).toNanos());
+        assertTrue(report.maxSendLagNanos() < Duration.ofMillis(20).toNanos(),
+                "Sending should never wait for earlier purchases to finish");
+        assertTrue(report.responseTime().getMaxValue() >= Duration.ofMillis(100).toNanos(),
+                "Purchases sent every 5 ms to a service taking 20 ms should queue");
+        assertEquals(20, report.responseTime().getCount());
+        assertThrows(IllegalArgumentException.class, () -> TrafficReplayer.replay(recording, slow, 0));
+    }
+
+    @Test
+    public void test_Replay_AgainstStandIns_CountsEachOutcome() throws Exception {
+
+        Path file = directory.resolve("mixed.bin");
+        try (TrafficCapture capture = new TrafficCapture(counting, file, clock::get, 0)) {
+            for(long accountId = 1; accountId <= 30; accountId++) {
+                clock.addAndGet(100_000);
+                capture.purchaseTickets(accountId % 3 == 0 ? 0L : accountId, TicketTypeRequest.of(ADULT, 2));
+            }
+        }
+        TicketService ticketService = new TicketServiceImpl(
+                new SimulatedTicketPaymentService(new SimulatedDependency(Duration.ofMillis(1), Duration.ofMillis(1), 0)),
+                new SimulatedSeatReservationService(new SimulatedDependency(Duration.ZERO, Duration.ZERO, 1)),
+                PriceTable.of(Map.of(ADULT, 25, CHILD, 15, INFANT, 0)),
+                TicketServiceStressHarness.CONFIG);
+
+        TrafficReplayer.Report report = TrafficReplayer.replay(TrafficRecording.read(file), ticketService, 1);
+
+        assertEquals(30, report.purchases());
+        assertEquals(0, report.accepted());
+        assertEquals(10, report.rejected());
+        assertEquals(20, report.failed());
+        assertTrue(report.serviceTime().valueAtPercentile(50) >= Duration.ofMillis(1).toNanos());
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        TrafficReplayer.print(report, new PrintStream(printed, true, StandardCharsets.UTF_8));
+        assertTrue(printed.toString(StandardCharsets.UTF_8).contains("response"));
+        assertThrows(DependencyUnavailableException.class,
+                () -> new SimulatedSeatReservationService(new SimulatedDependency(Duration.ZERO, Duration.ZERO, 1))
+                        .reserveSeat(1L, 1));
+    }
+}
@@ -0,0 +1,178 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.WaitingRoomTicketService;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.PurchaseOverloadException;
+import uk.gov.dwp.uc.pairtest.resilience.CircuitState;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type.ADULT;
+
+public class WaitingRoomTicketServiceTest {
+
+    AtomicInteger purchases = new AtomicInteger();
+    TicketService counting = (account, requests) -> purchases.incrementAndGet();
+    AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    private WaitingRoomTicketService waitingRoom(TicketService ticketService, double maxRate, double minRate, int burst,
+                                                 int queueCapacity, Duration adjustInterval) {
+        return new WaitingRoomTicketService(ticketService, new WaitingRoomTicketService.Limits(maxRate, minRate, burst,
+                2, queueCapacity, Duration.ofMinutes(1), Duration.ofSeconds(1), adjustInterval), clock::get);
+    }
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    public void test_Customers_WalkIn_UntilAQueueForms() {
+
+        WaitingRoomTicketService ticketService = waitingRoom(counting, 10, 10, 1, 1_024, Duration.ofHours(1));
+
+        ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 1));
+        InvalidPurchaseException e = assertThrows(PurchaseOverloadException.class,
+                () -> ticketService.purchaseTickets(2L, TicketTypeRequest.of(ADULT, 1)));
+        WaitingRoomTicketService.Ticket second = ticketService.join(2L);
+        WaitingRoomTicketService.Ticket third = ticketService.join(3L);
+
+        assertEquals("Please join the waiting room to buy tickets", e.getMessage());
+        assertEquals(new WaitingRoomTicketService.Status(false, 1, Duration.ofMillis(100)), ticketService.status(second));
+        assertEquals(new WaitingRoomTicketService.Status(false, 2, Duration.ofMillis(200)), ticketService.status(third));
+
+        advance(Duration.ofMillis(100));
+
+        assertTrue(ticketService.status(second).admitted());
+        assertEquals(1, ticketService.status(third).position());
+        assertThrows(PurchaseOverloadException.class, () -> ticketService.purchaseTickets(3L, TicketTypeRequest.of(ADULT, 1)));
+        ticketService.purchaseTickets(2L, TicketTypeRequest.of(ADULT, 1));
+        assertThrows(PurchaseOverloadException.class, () -> ticketService.purchaseTickets(2L, TicketTypeRequest.of(ADULT, 1)));
+        assertEquals(2, purchases.get());
+        assertEquals(3, ticketService.getTurnedAwayCount());
+        assertEquals(1, ticketService.getAdmittedCount());
+        assertEquals(1, ticketService.getWaitingCount());
+    }
+
+    @Test
+    public void test_HigherPriority_IsAdmittedFirst_ThenFirstComeFirstServed() {
+
+        WaitingRoomTicketService ticketService = waitingRoom(counting, 10, 10, 1, 1_024, Duration.ofHours(1));
+        ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 1));
+
+        WaitingRoomTicketService.Ticket first = ticketService.join(2L);
+        WaitingRoomTicketService.Ticket second = ticketService.join(3L);
+        WaitingRoomTicketService.Ticket priority = ticketService.join(4L, 0);
+
+        assertEquals(1, ticketService.status(priority).position());
+        assertEquals(2, ticketService.status(first).position());
+        assertEquals(3, ticketService.status(second).position());
+
+        advance(Duration.ofMillis(100));
+        assertTrue(ticketService.status(priority).admitted());
+        assertEquals(1, ticketService.status(first).position());
+
+        advance(Duration.ofMillis(100));
+        assertTrue(ticketService.status(first).admitted());
+        assertFalse(ticketService.status(second).admitted());
+    }
+
+    @Test
+    public void test_Queue_WrapsAround_AndTurnsAwayWhenFull() {
+
+        WaitingRoomTicketService ticketService = waitingRoom(counting, 10, 10, 1, 4, Duration.ofHours(1));
+        ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 1));
+
+        for(long accountId = 2; accountId < 20; accountId++) {
+            WaitingRoomTicketService.Ticket ticket = ticketService.join(accountId);
+            assertFalse(ticketService.status(ticket).admitted());
+            advance(Duration.ofMillis(100));
+            assertTrue(ticketService.status(ticket).admitted());
+            ticketService.purchaseTickets(accountId, TicketTypeRequest.of(ADULT, 1));
+        }
+        for(long accountId = 20; accountId < 24; accountId++) {
+            ticketService.join(accountId);
+        }
+
+        assertThrows(PurchaseOverloadException.class, () -> ticketService.join(24L));
+        assertEquals(19, purchases.get());
+        assertEquals(4, ticketService.getWaitingCount());
+    }
+
+    @Test
+    public void test_AdmissionRate_FollowsDownstreamHealth() {
+
+        AtomicInteger calls = new AtomicInteger();
+        TicketService failingTwice = (account, requests) -> {
+            if(calls.incrementAndGet() <= 2) {
+                throw new IllegalStateException("Gateway down");
+            }
+        };
+        WaitingRoomTicketService ticketService = waitingRoom(failingTwice, 1_000, 10, 1_000, 1_024, Duration.ofMillis(1));
+
+        assertThrows(IllegalStateException.class, () -> ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 1)));
+        advance(Duration.ofMillis(2));
+        assertThrows(IllegalStateException.class, () -> ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 1)));
+        assertEquals(750, ticketService.getAdmissionsPerSecond(), 0.001);
+
+        ticketService.onStateChange(CircuitState.CLOSED, CircuitState.OPEN);
+        assertEquals(10, ticketService.getAdmissionsPerSecond(), 0.001);
+
+        ticketService.onStateChange(CircuitState.HALF_OPEN, CircuitState.CLOSED);
+        for(int i = 0; i < 5; i++) {
+            advance(Duration.ofMillis(2));
+            ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 1));
+        }
+        assertTrue(ticketService.getAdmissionsPerSecond() > 10);
+    }
+
+    @Test
+    public void test_ConcurrentJoins_EachGetAPlace() throws Exception {
+
+        WaitingRoomTicketService ticketService = waitingRoom(counting, 0.001, 0.001, 1, 1 << 16, Duration.ofHours(1));
+        ticketService.purchaseTickets(1L, TicketTypeRequest.of(ADULT, 1));
+        int threads = 8;
+        int joinsPerThread = 5_000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<Long>>> numbers = new ArrayList<>();
+        for(int t = 0; t < threads; t++) {
+            long firstAccount = 2 + (long) t * joinsPerThread;
+            numbers.add(executor.submit(() -> {
+                start.await();
+                List<Long> joined = new ArrayList<>();
+                for(int i = 0; i < joinsPerThread; i++) {
+                    joined.add(ticketService.join(firstAccount + i).number());
+                }
+                return joined;
+            }));
+        }
+        start.countDown();
+        Set<Long> distinct = new HashSet<>();
+        for(Future<List<Long>> future : numbers) {
+            distinct.addAll(future.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertEquals(threads * joinsPerThread, distinct.size());
+        assertEquals(0L, distinct.stream().mapToLong(Long::longValue).min().orElseThrow());
+        assertEquals(threads * joinsPerThread - 1L, distinct.stream().mapToLong(Long::longValue).max().orElseThrow());
+        assertEquals(threads * joinsPerThread, ticketService.getWaitingCount());
+    }
+}